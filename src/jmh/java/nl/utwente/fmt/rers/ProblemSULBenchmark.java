@@ -0,0 +1,232 @@
+package nl.utwente.fmt.rers;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import de.learnlib.algorithms.ttt.mealy.TTTLearnerMealyBuilder;
+import de.learnlib.api.SUL;
+import de.learnlib.oracle.membership.SULOracle;
+import net.automatalib.words.Alphabet;
+import net.automatalib.words.impl.Alphabets;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the throughput of {@link ProblemSUL#step(int)} and {@link ProblemSUL#post()} (the reset), through whole
+ * queries, and through queries of a single step; the latter are dominated by the reset, but include a step as well.
+ *
+ * Queries are either random words, or the queries a TTT learner asks for its first hypothesis, as input indices (as
+ * the {@link IndexedSULOracle} passes them). The SUL is either the plain ProblemSUL, the {@link CompiledProblemSUL},
+ * or the stack {@link RERSExperiment} puts under an equivalence oracle with a query cache: a {@link DeadlineSUL}, a
+ * {@link MetricsSUL} and a {@link TaggingSUL} on a {@link QueryCacheSUL}, on the MetricsSUL of the real queries. As the
+ * workload repeats, the cache answers most queries of that stack after the first pass. Besides queries per second, the
+ * {@link Counters} report steps and resets per second.
+ *
+ * @author Jeroen Meijer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProblemSULBenchmark {
+
+    /**
+     * The maximum number of queries in a workload.
+     */
+    private static final int QUERIES = 10_000;
+
+    private static final long SEED = 42;
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9"})
+    public int problem;
+
+    /**
+     * random: random words of length 1 to 50; recorded: the queries of a TTT learner.
+     */
+    @Param({"random", "recorded"})
+    public String workload;
+
+    /**
+     * plain: the ProblemSUL; compiled: the CompiledProblemSUL; counters: the equivalence stack of RERSExperiment, with
+     * a query cache.
+     */
+    @Param({"plain", "compiled", "counters"})
+    public String stack;
+
+    private IndexedSUL sul;
+
+    private List<int[]> queries;
+
+    private int next;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long steps;
+
+        public long resets;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            steps = 0;
+            resets = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws FileNotFoundException {
+        final ProblemSUL problemSUL = new ProblemSUL(problem);
+        final String[] inputs = problemSUL.getInputs();
+
+        switch (workload) {
+            case "random":
+                queries = randomQueries(inputs.length);
+                break;
+            case "recorded":
+                queries = recordedQueries(new ProblemSUL(problem), inputs);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown workload: " + workload);
+        }
+
+        switch (stack) {
+            case "plain":
+                sul = problemSUL;
+                break;
+            case "compiled":
+                sul = new CompiledProblemSUL(problem, false);
+                break;
+            case "counters":
+                final ExperimentMetrics metrics = new ExperimentMetrics();
+                final IndexedSUL realSUL = new MetricsSUL<>(metrics.get(ExperimentMetrics.Category.REAL), problemSUL);
+                final IndexedSUL cacheSUL =
+                        new QueryCacheSUL("equivalence", new QueryCache(problemSUL.getSymbols()), realSUL);
+                sul = new DeadlineSUL<>(new Deadline(),
+                                        new MetricsSUL<>(metrics.get(ExperimentMetrics.Category.EQ),
+                                                         new TaggingSUL<>("equivalence", cacheSUL)));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown stack: " + stack);
+        }
+    }
+
+    private static List<int[]> randomQueries(int inputs) {
+        final Random random = new Random(SEED);
+        final List<int[]> result = new ArrayList<>(QUERIES);
+        for (int q = 0; q < QUERIES; q++) {
+            final int[] query = new int[1 + random.nextInt(50)];
+            for (int i = 0; i < query.length; i++) query[i] = random.nextInt(inputs);
+            result.add(query);
+        }
+
+        return result;
+    }
+
+    private static List<int[]> recordedQueries(ProblemSUL problemSUL, String[] inputs) {
+        final RecordingSUL recordingSUL = new RecordingSUL(problemSUL, problemSUL.getSymbols());
+        final Alphabet<String> alphabet = Alphabets.fromArray(inputs);
+        try {
+            new TTTLearnerMealyBuilder<String, String>().withAlphabet(alphabet)
+                                                        .withOracle(new SULOracle<>(recordingSUL))
+                                                        .create()
+                                                        .startLearning();
+        } catch (RecordingSUL.Full full) {
+            // enough queries recorded
+        }
+
+        return recordingSUL.queries;
+    }
+
+    @Benchmark
+    public void query(Counters counters, Blackhole blackhole) {
+        final int[] query = queries.get(next);
+        next = (next + 1) % queries.size();
+
+        sul.pre();
+        for (int input : query) blackhole.consume(sul.step(input));
+        sul.post();
+
+        counters.steps += query.length;
+        counters.resets++;
+    }
+
+    /**
+     * Answers only the first symbol of the next query, such that the time is mostly spent in {@code pre()} and
+     * {@code post()}; the step is included, such that the reset starts from a state that is not the initial state.
+     */
+    @Benchmark
+    public void singleStepQuery(Counters counters, Blackhole blackhole) {
+        final int[] query = queries.get(next);
+        next = (next + 1) % queries.size();
+
+        sul.pre();
+        blackhole.consume(sul.step(query[0]));
+        sul.post();
+
+        counters.steps++;
+        counters.resets++;
+    }
+
+    /**
+     * A SUL that records the queries asked as input indices, until {@link #QUERIES} queries have been recorded.
+     */
+    private static final class RecordingSUL implements SUL<String, String> {
+
+        static final class Full extends RuntimeException {
+
+            Full() {
+                super(null, null, false, false);
+            }
+        }
+
+        final SUL<String, String> sul;
+
+        final SymbolTable symbols;
+
+        final List<int[]> queries = new ArrayList<>();
+
+        final List<Integer> current = new ArrayList<>();
+
+        RecordingSUL(SUL<String, String> sul, SymbolTable symbols) {
+            this.sul = sul;
+            this.symbols = symbols;
+        }
+
+        @Override
+        public void pre() {
+            current.clear();
+            sul.pre();
+        }
+
+        @Override
+        public void post() {
+            sul.post();
+            if (!current.isEmpty()) queries.add(current.stream().mapToInt(Integer::intValue).toArray());
+            if (queries.size() >= QUERIES) throw new Full();
+        }
+
+        @Override
+        public String step(String input) {
+            current.add(symbols.inputIndex(input));
+            return sul.step(input);
+        }
+    }
+}
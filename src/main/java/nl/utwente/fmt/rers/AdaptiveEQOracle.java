@@ -0,0 +1,324 @@
+package nl.utwente.fmt.rers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nullable;
+
+import de.learnlib.api.logging.LearnLogger;
+import de.learnlib.api.oracle.EquivalenceOracle;
+import de.learnlib.api.oracle.MembershipOracle;
+import de.learnlib.api.query.DefaultQuery;
+import de.learnlib.api.query.Query;
+import de.learnlib.oracle.equivalence.RandomWordsEQOracle;
+import de.learnlib.oracle.equivalence.WpMethodEQOracle;
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.words.Word;
+
+/**
+ * An equivalence oracle that tries several search strategies in the order of their yield.
+ *
+ * The strategies are property-guided search (the black-box oracle), the Wp-method at the depths 1 to
+ * {@link #WP_MAX_DEPTH}, and random words. For every strategy the number of counter examples found, and the number of
+ * symbols spent (by equivalence, emptiness and inclusion queries) is tracked; strategies are tried in the order of
+ * counter examples per symbol. The Wp-method and random words may spend {@link #INITIAL_BUDGET} equivalence symbols
+ * before the next strategy gets its turn; when all strategies used up their budget without finding a counter example,
+ * the budget is doubled. A strategy that finishes without a counter example is not tried again for the same
+ * hypothesis, and when all strategies finish, the hypothesis is equivalent as far as this oracle can tell.
+ *
+ * The property-guided strategy asks its own emptiness and inclusion queries, which bypass the budget: its turn always
+ * runs to the end. Its symbols are still counted, so a property-guided search that is expensive and finds nothing is
+ * tried later.
+ *
+ * Every Wp depth keeps its own position in its test suite: when it runs out of budget, its next turn for the same
+ * hypothesis resumes where the previous turn stopped, instead of starting over. The depth is hence chosen by yield as
+ * well. The test suite of a depth contains those of the lower depths, so when a depth finishes, the lower depths are
+ * finished too.
+ *
+ * @author Jeroen Meijer
+ */
+public class AdaptiveEQOracle implements EquivalenceOracle.MealyEquivalenceOracle<String, String> {
+
+    public static final LearnLogger LOGGER = LearnLogger.getLogger(AdaptiveEQOracle.class);
+
+    /**
+     * The number of equivalence symbols a strategy may spend in its first turn.
+     */
+    public static final long INITIAL_BUDGET = 10000;
+
+    /**
+     * The maximum depth of the Wp-method.
+     */
+    public static final int WP_MAX_DEPTH = 3;
+
+    /**
+     * The number of symbols a strategy is assumed to spend on a counter example before it tried, such that a single
+     * cheap (or expensive) counter example does not dominate the order.
+     */
+    private static final double PRIOR_SYMBOLS = 1000;
+
+    private final BudgetedOracle budgetedOracle;
+
+    private final ExperimentMetrics metrics;
+
+    private final List<Strategy> strategies = new ArrayList<>();
+
+    /**
+     * Constructs a new AdaptiveEQOracle.
+     *
+     * @param blackBoxOracle the oracle for property-guided search, may be {@code null}.
+     * @param eqOracle the membership oracle for the Wp-method and random words.
+     * @param randomWords whether to search with random words.
+     * @param minLength the minimum length of random words.
+     * @param maxLength the maximum length of random words.
+     * @param batchSize the number of equivalence queries in a batch.
+     * @param metrics the metrics to measure spent symbols with.
+     */
+    public AdaptiveEQOracle(@Nullable MealyEquivalenceOracle<String, String> blackBoxOracle,
+                            MembershipOracle.MealyMembershipOracle<String, String> eqOracle,
+                            boolean randomWords,
+                            int minLength,
+                            int maxLength,
+                            int batchSize,
+                            ExperimentMetrics metrics) {
+        this.budgetedOracle = new BudgetedOracle(eqOracle);
+        this.metrics = metrics;
+
+        if (blackBoxOracle != null) strategies.add(new Strategy("property-guided", blackBoxOracle));
+        for (int depth = 1; depth <= WP_MAX_DEPTH; depth++) strategies.add(new WpStrategy(depth, batchSize));
+        if (randomWords) {
+            strategies.add(new Strategy("random words",
+                                        new RandomWordsEQOracle.MealyRandomWordsEQOracle<>(budgetedOracle,
+                                                                                           minLength,
+                                                                                           maxLength,
+                                                                                           1000 * 1000 * 100,
+                                                                                           new Random(123456L),
+                                                                                           batchSize)));
+        }
+    }
+
+    @Nullable
+    @Override
+    public DefaultQuery<String, Word<String>> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                                 Collection<? extends String> inputs) {
+        for (Strategy strategy : strategies) strategy.reset();
+
+        long budget = INITIAL_BUDGET;
+        boolean cutOff = true;
+        while (cutOff) {
+            cutOff = false;
+
+            final List<Strategy> order = new ArrayList<>(strategies);
+            order.sort(Comparator.comparingDouble(Strategy::getYield).reversed());
+            for (Strategy strategy : order) {
+                if (strategy.finished) continue;
+
+                budgetedOracle.setBudget(budget);
+                final long before = getSpent();
+                DefaultQuery<String, Word<String>> result = null;
+                try {
+                    result = strategy.findCounterExample(hypothesis, inputs);
+                    if (result == null) finished(strategy);
+                } catch (BudgetExhaustedException bee) {
+                    cutOff = true;
+                } finally {
+                    strategy.spent += getSpent() - before;
+                }
+
+                if (result != null) {
+                    strategy.found++;
+                    LOGGER.info(String.format("Counter example by %s (budget %d): %s", strategy.name, budget, this));
+                    return result;
+                }
+            }
+
+            budget *= 2;
+        }
+
+        LOGGER.info("No counter example: " + this);
+
+        return null;
+    }
+
+    /**
+     * Marks the given strategy finished for the current hypothesis, and the Wp depths below it if it is a Wp depth.
+     */
+    private void finished(Strategy strategy) {
+        strategy.finished = true;
+        if (strategy instanceof WpStrategy) {
+            final int depth = ((WpStrategy) strategy).depth;
+            for (Strategy s : strategies) {
+                if (s instanceof WpStrategy && ((WpStrategy) s).depth < depth) s.finished = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of symbols spent by all oracles that search for counter examples.
+     */
+    private long getSpent() {
+        return metrics.get(ExperimentMetrics.Category.EQ).getSymbols() +
+               metrics.get(ExperimentMetrics.Category.EM).getSymbols() +
+               metrics.get(ExperimentMetrics.Category.EMO).getSymbols() +
+               metrics.get(ExperimentMetrics.Category.IN).getSymbols();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        for (Strategy strategy : strategies) {
+            if (result.length() > 0) result.append(", ");
+            result.append(String.format("%s %d/%d", strategy, strategy.found, strategy.spent));
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * A search strategy, and its yield so far.
+     */
+    private static class Strategy {
+
+        final String name;
+
+        private final MealyEquivalenceOracle<String, String> oracle;
+
+        long found;
+
+        long spent;
+
+        /**
+         * Whether the strategy finished for the current hypothesis.
+         */
+        boolean finished;
+
+        Strategy(String name, MealyEquivalenceOracle<String, String> oracle) {
+            this.name = name;
+            this.oracle = oracle;
+        }
+
+        /**
+         * Prepares the strategy for a new hypothesis.
+         */
+        void reset() {
+            finished = false;
+        }
+
+        double getYield() {
+            return (found + 1) / (spent + PRIOR_SYMBOLS);
+        }
+
+        DefaultQuery<String, Word<String>> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                              Collection<? extends String> inputs) {
+            return oracle.findCounterExample(hypothesis, inputs);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * The Wp-method at a single depth, that resumes its test suite across turns.
+     *
+     * The test suite of a hypothesis is generated in the same order every time, so the queries answered in earlier
+     * turns (which were no counter example) are answered with the output of the hypothesis, instead of spending budget
+     * on them again.
+     */
+    private final class WpStrategy extends Strategy implements MembershipOracle.MealyMembershipOracle<String, String> {
+
+        final int depth;
+
+        private final MealyEquivalenceOracle<String, String> wpOracle;
+
+        private MealyMachine<?, String, ?, String> hypothesis;
+
+        /**
+         * The number of queries of the test suite of the current hypothesis answered in earlier turns.
+         */
+        private long answered;
+
+        /**
+         * The number of queries of the test suite passed in the current turn.
+         */
+        private long passed;
+
+        WpStrategy(int depth, int batchSize) {
+            super("wp-" + depth, null);
+            this.depth = depth;
+            wpOracle = new WpMethodEQOracle.MealyWpMethodEQOracle<>(this, depth, batchSize);
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            answered = 0;
+        }
+
+        @Override
+        DefaultQuery<String, Word<String>> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                              Collection<? extends String> inputs) {
+            this.hypothesis = hypothesis;
+            passed = 0;
+
+            return wpOracle.findCounterExample(hypothesis, inputs);
+        }
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            final List<Query<String, Word<String>>> remaining = new ArrayList<>();
+            for (Query<String, Word<String>> query : queries) {
+                if (passed < answered) {
+                    query.answer(hypothesis.computeSuffixOutput(query.getPrefix(), query.getSuffix()));
+                    passed++;
+                } else {
+                    remaining.add(query);
+                }
+            }
+
+            // nothing is answered when the batch does not fit in the budget, such that the next turn asks it again.
+            budgetedOracle.processQueries(remaining);
+            passed += remaining.size();
+            answered = passed;
+        }
+    }
+
+    private static final class BudgetExhaustedException extends RuntimeException {
+
+        BudgetExhaustedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A membership oracle that throws a {@link BudgetExhaustedException} when a batch would exceed its budget.
+     */
+    private static final class BudgetedOracle implements MembershipOracle.MealyMembershipOracle<String, String> {
+
+        private final MembershipOracle.MealyMembershipOracle<String, String> delegate;
+
+        private long budget;
+
+        BudgetedOracle(MembershipOracle.MealyMembershipOracle<String, String> delegate) {
+            this.delegate = delegate;
+        }
+
+        void setBudget(long budget) {
+            this.budget = budget;
+        }
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            long symbols = 0;
+            for (Query<String, Word<String>> query : queries) symbols += query.getInput().length();
+            if (symbols > budget) throw new BudgetExhaustedException();
+            budget -= symbols;
+
+            delegate.processQueries(queries);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package nl.utwente.fmt.rers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import de.learnlib.api.logging.LearnLogger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Runs a matrix of experiments in a single JVM, instead of a JVM per experiment (see slurm.sh).
+ *
+ * The matrix is a file with one dimension per line, comments start with {@code #}:
+ * <pre>
+ * problem: 1-9
+ * learner: ADT TTT
+ * options: -M | -B | -M -B
+ * options: | -C | -D
+ * </pre>
+ * The problems and learners are separated by whitespace, problems may be ranges. Every {@code options} line is a
+ * dimension of alternative arguments, separated by {@code |}. Every experiment gets the arguments of the batch command
+ * line, followed by one alternative of every options line.
+ *
+ * Experiments on the same problem share the loaded Problem class, the parsed formulae and the alphabet; and optionally
+ * the {@link QueryCache}. Every result is tagged with the name of the experiment, which is the name slurm.sh uses.
+ * The matrix of slurm.sh is in matrix.txt.
+ *
+ * @author Jeroen Meijer
+ */
+public class BatchRunner {
+
+    public static final LearnLogger LOGGER = LearnLogger.getLogger(BatchRunner.class);
+
+    private final List<Experiment> experiments;
+
+    private final String[] args;
+
+    private final int parallelism;
+
+    private final Map<Integer, QueryCache> sharedQueryCaches;
+
+    private final ResultSink resultSink;
+
+    /**
+     * Constructs a new BatchRunner.
+     *
+     * @param experiments the experiments, see {@link #parseMatrix(Path)}.
+     * @param args the arguments of the batch command line, that apply to every experiment.
+     * @param parallelism the number of experiments to run concurrently.
+     * @param shareQueryCache whether experiments on the same problem share their query cache.
+     * @param resultSink the sink the results of all experiments are written to.
+     */
+    public BatchRunner(List<Experiment> experiments,
+                       String[] args,
+                       int parallelism,
+                       boolean shareQueryCache,
+                       ResultSink resultSink) {
+        this.experiments = experiments;
+        this.args = args;
+        this.parallelism = parallelism;
+        this.sharedQueryCaches = shareQueryCache ? new ConcurrentHashMap<>() : null;
+        this.resultSink = resultSink;
+    }
+
+    /**
+     * A single experiment of a batch.
+     */
+    public static final class Experiment {
+
+        private final String name;
+
+        private final List<String> args;
+
+        Experiment(String name, List<String> args) {
+            this.name = name;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Parses a matrix file into its experiments.
+     *
+     * @param path the matrix file.
+     *
+     * @return the experiments, in the order slurm.sh would start them.
+     *
+     * @throws IOException when the file can not be read, or is malformed.
+     */
+    public static List<Experiment> parseMatrix(Path path) throws IOException {
+        final List<String> problems = new ArrayList<>();
+        final List<String> learners = new ArrayList<>();
+        final List<List<String>> dimensions = new ArrayList<>();
+
+        for (String line : Files.readAllLines(path)) {
+            final int comment = line.indexOf('#');
+            if (comment != -1) line = line.substring(0, comment);
+            if (line.trim().isEmpty()) continue;
+
+            final int colon = line.indexOf(':');
+            if (colon == -1) throw new IOException("missing ':' in matrix line: " + line);
+            final String key = line.substring(0, colon).trim();
+            final String value = line.substring(colon + 1).trim();
+
+            switch (key) {
+                case "problem":
+                    for (String problem : value.split("\\s+")) {
+                        final int dash = problem.indexOf('-');
+                        if (dash == -1) problems.add(problem);
+                        else {
+                            final int to = Integer.parseInt(problem.substring(dash + 1));
+                            for (int p = Integer.parseInt(problem.substring(0, dash)); p <= to; p++) {
+                                problems.add(Integer.toString(p));
+                            }
+                        }
+                    }
+                    break;
+                case "learner":
+                    learners.addAll(Arrays.asList(value.split("\\s+")));
+                    break;
+                case "options":
+                    final List<String> alternatives = new ArrayList<>();
+                    for (String alternative : value.split("\\|", -1)) alternatives.add(alternative.trim());
+                    dimensions.add(alternatives);
+                    break;
+                default:
+                    throw new IOException("unknown matrix key: " + key);
+            }
+        }
+
+        if (problems.isEmpty() || learners.isEmpty()) throw new IOException("matrix needs a problem and learner");
+
+        List<Experiment> result = new ArrayList<>();
+        for (String problem : problems) {
+            for (String learner : learners) {
+                result.add(new Experiment("problem-" + problem + "-" + learner, Arrays.asList(problem, learner)));
+            }
+        }
+
+        for (List<String> alternatives : dimensions) {
+            final List<Experiment> expanded = new ArrayList<>();
+            for (Experiment experiment : result) {
+                for (String alternative : alternatives) {
+                    final List<String> args = new ArrayList<>(experiment.args);
+                    if (!alternative.isEmpty()) args.addAll(Arrays.asList(alternative.split("\\s+")));
+                    expanded.add(new Experiment((experiment.name + "-" + alternative).replace(' ', '_'), args));
+                }
+            }
+            result = expanded;
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Runs all experiments, and writes their results to the sink.
+     *
+     * @return whether all experiments completed.
+     */
+    public boolean run() {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final List<Future<Boolean>> futures = new ArrayList<>();
+            for (Experiment experiment : experiments) futures.add(pool.submit(() -> run(experiment)));
+
+            boolean result = true;
+            for (Future<Boolean> future : futures) result &= future.get();
+
+            return result;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException ee) {
+            throw new IllegalStateException(ee.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a single experiment, failures are logged such that the remaining experiments still run.
+     */
+    private boolean run(Experiment experiment) {
+        final List<String> experimentArgs = new ArrayList<>(Arrays.asList(args));
+        experimentArgs.addAll(experiment.args);
+
+        try {
+            final CommandLine line = new DefaultParser().parse(Main.getOptions(),
+                                                               experimentArgs.toArray(new String[experimentArgs.size()]));
+            final ExperimentOptions options = Main.parseOptions(line);
+
+            final String error = Main.validate(options);
+            if (error != null) {
+                LOGGER.info(String.format("Skipping %s: %s", experiment.name, error));
+                return false;
+            }
+
+            options.setTag(experiment.name);
+            options.setResultSink(resultSink);
+            if (sharedQueryCaches != null) options.setSharedQueryCaches(sharedQueryCaches);
+
+            // files written per experiment must not be overwritten by other experiments
+            if (options.getErrors() != null) options.setErrors(options.getErrors() + "-" + experiment.name);
+            if (options.getMetrics() != null) {
+                options.setMetrics(new File(options.getMetrics().getPath() + "-" + experiment.name));
+            }
+            if (options.getCheckpoint() != null) {
+                options.setCheckpoint(new File(options.getCheckpoint().getPath() + "-" + experiment.name));
+            }
+
+            LOGGER.info("Starting " + experiment.name);
+            Main.runExperiment(options);
+            LOGGER.info("Finished " + experiment.name);
+
+            return true;
+        } catch (ParseException | IOException | RuntimeException e) {
+            LOGGER.info(String.format("Experiment %s failed: %s", experiment.name, e));
+            return false;
+        }
+    }
+}
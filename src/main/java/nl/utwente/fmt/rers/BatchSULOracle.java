@@ -0,0 +1,157 @@
+package nl.utwente.fmt.rers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import de.learnlib.api.oracle.SymbolQueryOracle;
+import de.learnlib.api.query.Query;
+import net.automatalib.words.Word;
+import net.automatalib.words.WordBuilder;
+
+/**
+ * A membership oracle that answers batches of queries in a single pass, directly on the SUL below the per-oracle
+ * wrappers (i.e. the query cache, or the real SUL).
+ *
+ * The queries of a batch are sorted by their input, such that a query directly follows its prefixes. A query that
+ * extends the previous query continues where the previous query stopped, instead of resetting the SUL and replaying the
+ * prefix; a duplicate query is answered without executing anything. The queries and symbols of the batch are counted in
+ * bulk, as if every query was executed separately, and the deadline is checked before every query.
+ *
+ * Symbol queries are answered by {@link #symbolOracle}, which executes them through the wrappers on the same SUL.
+ *
+ * @author Jeroen Meijer
+ */
+public class BatchSULOracle implements SymbolQueryOracle<String, String> {
+
+    /**
+     * Orders inputs lexicographically, such that a word directly precedes its extensions.
+     */
+    private static final Comparator<Word<String>> LEXICOGRAPHIC = (a, b) -> {
+        final int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            final int c = a.getSymbol(i).compareTo(b.getSymbol(i));
+            if (c != 0) return c;
+        }
+
+        return Integer.compare(a.length(), b.length());
+    };
+
+    private final SymbolQueryOracle<String, String> symbolOracle;
+
+    private final ExperimentMetrics.Counters counters;
+
+    /**
+     * The name of the oracle for the {@link ErrorIndex}, {@code null} if errors are not recorded.
+     */
+    @Nullable
+    private final String oracle;
+
+    @Nullable
+    private final Deadline deadline;
+
+    private final IndexedSUL sul;
+
+    private final SymbolTable symbols;
+
+    /**
+     * A query of a batch, with its input computed once for sorting.
+     */
+    private static final class Entry {
+
+        final Query<String, Word<String>> query;
+
+        final Word<String> input;
+
+        Entry(Query<String, Word<String>> query) {
+            this.query = query;
+            this.input = query.getInput();
+        }
+    }
+
+    /**
+     * Constructs a new BatchSULOracle.
+     *
+     * @param symbolOracle the oracle to answer symbol queries, which must execute them on {@code sul}.
+     * @param counters the counters of this oracle.
+     * @param oracle the name of the oracle for the {@link ErrorIndex}, may be {@code null}.
+     * @param deadline the deadline to check before every query, may be {@code null}.
+     * @param sul the SUL to execute batches on.
+     */
+    public BatchSULOracle(SymbolQueryOracle<String, String> symbolOracle,
+                          ExperimentMetrics.Counters counters,
+                          @Nullable String oracle,
+                          @Nullable Deadline deadline,
+                          IndexedSUL sul) {
+        this.symbolOracle = symbolOracle;
+        this.counters = counters;
+        this.oracle = oracle;
+        this.deadline = deadline;
+        this.sul = sul;
+        this.symbols = sul.getSymbols();
+    }
+
+    @Override
+    public String query(String i) {
+        return symbolOracle.query(i);
+    }
+
+    @Override
+    public void reset() {
+        symbolOracle.reset();
+    }
+
+    @Override
+    public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+        if (queries.isEmpty()) return;
+
+        // a pending symbol query must release the SUL.
+        symbolOracle.reset();
+
+        final List<Entry> entries = new ArrayList<>(queries.size());
+        for (Query<String, Word<String>> query : queries) entries.add(new Entry(query));
+        entries.sort((a, b) -> LEXICOGRAPHIC.compare(a.input, b.input));
+
+        final WordBuilder<String> outputs = new WordBuilder<>();
+        Word<String> executed = null;
+        long answered = 0;
+        long length = 0;
+
+        if (oracle != null) ErrorIndex.setOracle(oracle);
+        try {
+            for (Entry entry : entries) {
+                if (deadline != null) deadline.check();
+
+                final int start;
+                if (executed != null && executed.isPrefixOf(entry.input)) {
+                    start = executed.length();
+                } else {
+                    if (executed != null) sul.post();
+                    executed = null;
+                    outputs.clear();
+                    sul.pre();
+                    start = 0;
+                }
+                executed = entry.input;
+
+                for (int i = start; i < entry.input.length(); i++) {
+                    outputs.append(symbols.symbol(sul.step(symbols.inputIndex(entry.input.getSymbol(i)))));
+                }
+
+                entry.query.answer(outputs.toWord(entry.query.getPrefix().length(), entry.input.length()));
+                answered++;
+                length += entry.input.length();
+            }
+        } finally {
+            try {
+                if (executed != null) sul.post();
+            } finally {
+                counters.add(answered, length);
+                if (oracle != null) ErrorIndex.setOracle(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package nl.utwente.fmt.rers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link ResultSink} that writes results in a binary, columnar format.
+ *
+ * The file starts with the UTF string {@code RERSRES1}, followed by blocks of at most {@link #BLOCK_SIZE} results. A
+ * block starts with the number of results (an int), followed by the columns of the CSV (see
+ * {@link CsvResultSink#HEADER}), preceded by the experiment column, one column at a time. Strings are written as UTF
+ * (the experiment is empty if results are not tagged), the problem, property, size and length as ints, and the counts
+ * and millis as longs.
+ *
+ * @author Jeroen Meijer
+ */
+public class BinaryResultSink implements ResultSink {
+
+    private static final String MAGIC = "RERSRES1";
+
+    /**
+     * The maximum number of results in a block.
+     */
+    public static final int BLOCK_SIZE = 1024;
+
+    private final DataOutputStream out;
+
+    private final List<Result> block = new ArrayList<>(BLOCK_SIZE);
+
+    public BinaryResultSink(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeUTF(MAGIC);
+    }
+
+    @Override
+    public synchronized void write(Result result) {
+        block.add(result);
+        if (block.size() == BLOCK_SIZE) {
+            try {
+                writeBlock();
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (block.isEmpty()) return;
+
+        out.writeInt(block.size());
+        for (Result r : block) out.writeUTF(r.getTag() != null ? r.getTag() : "");
+        for (Result r : block) out.writeInt(r.getProblem());
+        for (Result r : block) out.writeUTF(r.getLearner());
+        for (Result r : block) out.writeUTF(r.getAut());
+        for (Result r : block) out.writeUTF(r.getBbo());
+        for (Result r : block) out.writeInt(r.getProperty());
+        for (Result r : block) out.writeInt(r.getSize());
+        for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+            for (Result r : block) out.writeLong(r.getCounts().getSymbols(category));
+        }
+        for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+            for (Result r : block) out.writeLong(r.getCounts().getQueries(category));
+        }
+        for (Result r : block) out.writeInt(r.getLength());
+        for (Result r : block) out.writeLong(r.getCounts().getMillis());
+
+        block.clear();
+    }
+
+    /**
+     * Writes the pending results as a (possibly smaller) block.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -0,0 +1,290 @@
+package nl.utwente.fmt.rers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import de.learnlib.api.oracle.PropertyOracle;
+import de.learnlib.api.query.DefaultQuery;
+import lombok.Getter;
+import net.automatalib.words.Word;
+import net.automatalib.words.WordBuilder;
+
+/**
+ * The state of a {@link RERSExperiment} that survives the JVM: the last hypothesis, the contents of the
+ * {@link QueryCache}, the values of the counters, and the counter examples of disproved properties.
+ *
+ * A checkpoint is a gzipped binary file. Symbols are written once, in a table, and referred to by index everywhere
+ * else; the query cache trie is written in pre-order.
+ *
+ * @author Jeroen Meijer
+ */
+public final class Checkpoint {
+
+    private static final String MAGIC = "RERSCP02";
+
+    @Getter
+    private final int problem;
+
+    @Getter
+    private final String learner;
+
+    /**
+     * The hypothesis, {@code null} if no hypothesis was constructed yet.
+     */
+    @Getter
+    private final HypothesisSnapshot hypothesis;
+
+    /**
+     * The counter examples of disproved properties, by property index.
+     */
+    @Getter
+    private final Map<Integer, DefaultQuery<String, Word<String>>> counterExamples;
+
+    private Checkpoint(int problem,
+                       String learner,
+                       HypothesisSnapshot hypothesis,
+                       Map<Integer, DefaultQuery<String, Word<String>>> counterExamples) {
+        this.problem = problem;
+        this.learner = learner;
+        this.hypothesis = hypothesis;
+        this.counterExamples = counterExamples;
+    }
+
+    /**
+     * Writes a checkpoint; the file is written next to the given path, and then atomically moved over it.
+     *
+     * @param path the file.
+     * @param problem the problem number.
+     * @param learner the learner.
+     * @param symbols the symbols of the problem.
+     * @param hypothesis the hypothesis, may be {@code null}.
+     * @param cache the query cache, may be {@code null}.
+     * @param propertyOracles the property oracles.
+     * @param metrics the counts of the experiment.
+     *
+     * @throws IOException when the checkpoint can not be written.
+     */
+    static void write(Path path,
+                      int problem,
+                      String learner,
+                      SymbolTable symbols,
+                      HypothesisSnapshot hypothesis,
+                      QueryCache cache,
+                      List<? extends PropertyOracle.MealyPropertyOracle<String, String, String>> propertyOracles,
+                      ExperimentMetrics metrics) throws IOException {
+        final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(
+                tmp))))) {
+            out.writeUTF(MAGIC);
+            out.writeInt(problem);
+            out.writeUTF(learner);
+
+            // every symbol of the checkpoint is in the SymbolTable, hence the table is written first, and the body is
+            // streamed; the hypothesis and counter examples normally only contain symbols of the table already.
+            final List<Integer> disproved = new ArrayList<>();
+            for (int p = 0; p < propertyOracles.size(); p++) {
+                if (!propertyOracles.get(p).isDisproved()) continue;
+                final DefaultQuery<String, Word<String>> ce = propertyOracles.get(p).getCounterExample();
+                if (ce != null) {
+                    disproved.add(p);
+                    for (String symbol : ce.getInput()) symbols.index(symbol);
+                    for (String symbol : ce.getOutput()) symbols.index(symbol);
+                }
+            }
+            if (hypothesis != null) {
+                for (int s = 0; s < hypothesis.size(); s++) {
+                    for (int i = 0; i < hypothesis.getInputs().size(); i++) symbols.intern(hypothesis.getOutput(s, i));
+                }
+            }
+
+            // outputs the SUL produces while the checkpoint is written may be added to the table after it is written
+            final int tableSize = symbols.size();
+            out.writeInt(tableSize);
+            for (int i = 0; i < tableSize; i++) out.writeUTF(symbols.symbol(i));
+            final ToIntFunction<String> index = symbols::index;
+
+            // hypothesis
+            if (hypothesis == null) {
+                out.writeInt(-1);
+            } else {
+                final List<String> inputs = hypothesis.getInputs();
+                out.writeInt(hypothesis.size());
+                out.writeInt(inputs.size());
+                for (String input : inputs) out.writeInt(index.applyAsInt(input));
+                for (int s = 0; s < hypothesis.size(); s++) {
+                    for (int i = 0; i < inputs.size(); i++) {
+                        out.writeInt(hypothesis.getSuccessor(s, i));
+                        final String output = hypothesis.getOutput(s, i);
+                        out.writeInt(output == null ? -1 : index.applyAsInt(output));
+                    }
+                }
+            }
+
+            // query cache, in pre-order: the number of successors, then per successor its input, output and subtree;
+            // the indices of the cache are those of the table. Nodes with an output that is not in the table were
+            // added after the table was written, they are skipped with their subtrees.
+            if (cache == null) {
+                out.writeInt(0);
+            } else {
+                final Deque<QueryCache.Node> stack = new ArrayDeque<>();
+                stack.push(cache.getRoot());
+                while (!stack.isEmpty()) {
+                    final QueryCache.Node node = stack.pop();
+                    final List<QueryCache.Node> present = new ArrayList<>();
+                    final List<Integer> presentInputs = new ArrayList<>();
+                    for (int i = 0; i < node.successors.length(); i++) {
+                        final QueryCache.Node successor = node.successors.get(i);
+                        if (successor != null && successor.output < tableSize) {
+                            present.add(successor);
+                            presentInputs.add(i);
+                        }
+                    }
+                    out.writeInt(present.size());
+                    for (int c = 0; c < present.size(); c++) {
+                        out.writeInt(presentInputs.get(c));
+                        out.writeInt(present.get(c).output);
+                    }
+                    // pushed in reverse, such that the subtrees are written in the same order as their headers
+                    for (int c = present.size() - 1; c >= 0; c--) stack.push(present.get(c));
+                }
+            }
+
+            // counters, per category
+            out.writeInt(ExperimentMetrics.Category.values().length);
+            for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+                final ExperimentMetrics.Counters counters = metrics.get(category);
+                out.writeLong(counters.getQueries());
+                out.writeLong(counters.getSymbols());
+                out.writeLong(counters.getDiscardedQueries());
+                out.writeLong(counters.getDiscardedSymbols());
+            }
+
+            // disproved properties
+            out.writeInt(disproved.size());
+            for (int p : disproved) {
+                final DefaultQuery<String, Word<String>> ce = propertyOracles.get(p).getCounterExample();
+                out.writeInt(p);
+                writeWord(out, ce.getInput(), index);
+                writeWord(out, ce.getOutput(), index);
+            }
+        }
+
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeWord(DataOutputStream out,
+                                  Word<String> word,
+                                  ToIntFunction<String> index) throws IOException {
+        out.writeInt(word.length());
+        for (String symbol : word) out.writeInt(index.applyAsInt(symbol));
+    }
+
+    private static Word<String> readWord(DataInputStream in, String[] table) throws IOException {
+        final int length = in.readInt();
+        final WordBuilder<String> result = new WordBuilder<>(length);
+        for (int i = 0; i < length; i++) result.append(table[in.readInt()]);
+
+        return result.toWord();
+    }
+
+    /**
+     * Reads a checkpoint; the query cache contents are added to the given cache, and the counts are added to the given
+     * metrics.
+     *
+     * @param path the file.
+     * @param problem the problem number, which must match the number of the checkpoint.
+     * @param cache the query cache to fill, may be {@code null} if the cached queries should be skipped.
+     * @param metrics the metrics to add the counts to.
+     *
+     * @return the checkpoint.
+     *
+     * @throws IOException when the checkpoint can not be read, or is of another problem.
+     */
+    static Checkpoint read(Path path, int problem, QueryCache cache, ExperimentMetrics metrics) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(
+                path))))) {
+            if (!MAGIC.equals(in.readUTF())) throw new IOException("not a checkpoint: " + path);
+            final int checkpointProblem = in.readInt();
+            if (checkpointProblem != problem) {
+                throw new IOException(String.format("checkpoint is of problem %d, not %d", checkpointProblem, problem));
+            }
+            final String learner = in.readUTF();
+
+            final String[] table = new String[in.readInt()];
+            for (int i = 0; i < table.length; i++) table[i] = in.readUTF();
+
+            // hypothesis
+            HypothesisSnapshot hypothesis = null;
+            final int size = in.readInt();
+            if (size >= 0) {
+                final List<String> inputs = new ArrayList<>();
+                final int inputSize = in.readInt();
+                for (int i = 0; i < inputSize; i++) inputs.add(table[in.readInt()]);
+                final int[][] successors = new int[size][inputSize];
+                final String[][] outputs = new String[size][inputSize];
+                for (int s = 0; s < size; s++) {
+                    for (int i = 0; i < inputSize; i++) {
+                        successors[s][i] = in.readInt();
+                        final int output = in.readInt();
+                        outputs[s][i] = output == -1 ? null : table[output];
+                    }
+                }
+                hypothesis = HypothesisSnapshot.of(inputs, successors, outputs);
+            }
+
+            // query cache
+            final Deque<QueryCache.Node> stack = new ArrayDeque<>();
+            stack.push(cache != null ? cache.getRoot() : null);
+            while (!stack.isEmpty()) {
+                final QueryCache.Node node = stack.pop();
+                final int count = in.readInt();
+                final List<QueryCache.Node> children = new ArrayList<>(count);
+                for (int c = 0; c < count; c++) {
+                    final String input = table[in.readInt()];
+                    final String output = table[in.readInt()];
+                    children.add(node == null ? null :
+                                         cache.addSuccessor(node,
+                                                            cache.getSymbols().inputIndex(input),
+                                                            cache.getSymbols().index(output)));
+                }
+                for (int c = count - 1; c >= 0; c--) stack.push(children.get(c));
+            }
+
+            // counters, per category
+            final int categories = in.readInt();
+            for (int c = 0; c < categories; c++) {
+                final ExperimentMetrics.Counters counters = metrics.get(ExperimentMetrics.Category.values()[c]);
+                counters.add(in.readLong(), in.readLong());
+                counters.discard(in.readLong(), in.readLong());
+            }
+
+            // disproved properties
+            final Map<Integer, DefaultQuery<String, Word<String>>> counterExamples = new HashMap<>();
+            final int disproved = in.readInt();
+            for (int d = 0; d < disproved; d++) {
+                final int p = in.readInt();
+                final Word<String> input = readWord(in, table);
+                final Word<String> output = readWord(in, table);
+                counterExamples.put(p, new DefaultQuery<>(input, output));
+            }
+
+            return new Checkpoint(problem, learner, hypothesis, counterExamples);
+        }
+    }
+}
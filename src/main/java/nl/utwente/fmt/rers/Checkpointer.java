@@ -0,0 +1,137 @@
+package nl.utwente.fmt.rers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import de.learnlib.api.logging.LearnLogger;
+import de.learnlib.api.oracle.EquivalenceOracle;
+import de.learnlib.api.oracle.PropertyOracle;
+import de.learnlib.api.query.DefaultQuery;
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.words.Word;
+
+/**
+ * An equivalence oracle that periodically writes a {@link Checkpoint} of every hypothesis it is asked about, before
+ * delegating.
+ *
+ * A checkpoint is written at most once every {@link #INTERVAL}, and once more when the JVM shuts down (e.g. when a
+ * job is killed by the scheduler) before the Checkpointer is closed.
+ *
+ * @author Jeroen Meijer
+ */
+public class Checkpointer implements EquivalenceOracle.MealyEquivalenceOracle<String, String> {
+
+    public static final LearnLogger LOGGER = LearnLogger.getLogger(Checkpointer.class);
+
+    /**
+     * The minimum time between two checkpoints.
+     */
+    public static final Duration INTERVAL = Duration.ofMinutes(5);
+
+    private final MealyEquivalenceOracle<String, String> eqOracle;
+
+    private final Path path;
+
+    private final int problem;
+
+    private final String learner;
+
+    private final SymbolTable symbols;
+
+    private final QueryCache cache;
+
+    private final List<? extends PropertyOracle.MealyPropertyOracle<String, String, String>> propertyOracles;
+
+    private final ExperimentMetrics metrics;
+
+    /**
+     * The last hypothesis, immutable such that the shutdown hook can write it while the learner continues.
+     */
+    private volatile HypothesisSnapshot hypothesis;
+
+    private Instant last = Instant.now();
+
+    /**
+     * The shutdown hook that writes the last checkpoint.
+     */
+    private final Thread shutdownHook = new Thread(this::checkpoint, "checkpointer");
+
+    /**
+     * Constructs a new Checkpointer, and registers a shutdown hook that writes the last checkpoint.
+     *
+     * @param eqOracle the equivalence oracle to delegate to.
+     * @param path the checkpoint file.
+     * @param problem the problem number.
+     * @param learner the learner.
+     * @param symbols the symbols of the problem.
+     * @param cache the query cache, may be {@code null}.
+     * @param propertyOracles the property oracles, of which the counter examples are written.
+     * @param metrics the counts of the experiment.
+     */
+    public Checkpointer(MealyEquivalenceOracle<String, String> eqOracle,
+                        Path path,
+                        int problem,
+                        String learner,
+                        SymbolTable symbols,
+                        QueryCache cache,
+                        List<? extends PropertyOracle.MealyPropertyOracle<String, String, String>> propertyOracles,
+                        ExperimentMetrics metrics) {
+        this.eqOracle = eqOracle;
+        this.path = path;
+        this.problem = problem;
+        this.learner = learner;
+        this.symbols = symbols;
+        this.cache = cache;
+        this.propertyOracles = propertyOracles;
+        this.metrics = metrics;
+
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Nullable
+    @Override
+    public DefaultQuery<String, Word<String>> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                                 Collection<? extends String> inputs) {
+        this.hypothesis = HypothesisSnapshot.of(hypothesis, inputs);
+
+        if (Duration.between(last, Instant.now()).compareTo(INTERVAL) >= 0) {
+            checkpoint();
+            last = Instant.now();
+        }
+
+        return eqOracle.findCounterExample(hypothesis, inputs);
+    }
+
+    /**
+     * Writes a checkpoint of the last hypothesis.
+     */
+    public synchronized void checkpoint() {
+        final Instant start = Instant.now();
+        try {
+            Checkpoint.write(path, problem, learner, symbols, hypothesis, cache, propertyOracles, metrics);
+            LOGGER.info(String.format("Checkpoint written to %s in %d ms",
+                                      path,
+                                      Duration.between(start, Instant.now()).toMillis()));
+        } catch (IOException ioe) {
+            LOGGER.warn("Could not write checkpoint: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Unregisters the shutdown hook, which otherwise keeps this Checkpointer (and the experiment it refers to)
+     * reachable until the JVM exits.
+     */
+    public void close() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ise) {
+            // the JVM is shutting down, and the hook is writing the last checkpoint
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package nl.utwente.fmt.rers;
+
+import java.io.FileNotFoundException;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * A ProblemSUL that steps through the {@link ProblemStateTable} of its problem, instead of through the Problem.
+ *
+ * The current state of a query is a {@link ProblemStateTable.State}; a step with a known transition only looks up the
+ * successor, output and status. Only a step with an unknown transition restores the Problem to the state, executes
+ * it, and adds the transition (and possibly a new state) to the table. Triggered errors are still recorded as by a
+ * ProblemSUL, since the status and error are part of the transition.
+ *
+ * In verify mode, the Problem executes every query as well, and every step is checked against the table: a different
+ * output, status, error or successor state throws an {@link IllegalStateException}.
+ *
+ * The number of states is bounded by the table, after that queries leaving the table are just executed. The Problem is
+ * not synchronized with the current query (except in verify mode); {@link #getState()} first restores it from the
+ * current state of the table.
+ *
+ * The table is shared by all experiments on the same problem in this JVM, the numbers of steps answered from the table
+ * and executed on the Problem are counted per CompiledProblemSUL, and shared with its forks.
+ *
+ * @author Jeroen Meijer
+ */
+public class CompiledProblemSUL extends ProblemSUL {
+
+    @Getter
+    private final ProblemStateTable table;
+
+    @Getter
+    private final boolean verify;
+
+    /**
+     * The state of the current query, or {@code null} if the query left the table, and the Problem is executing it.
+     */
+    private ProblemStateTable.State current;
+
+    /**
+     * The index of the output of the last step, if it was answered from the table.
+     */
+    private int output;
+
+    /**
+     * The number of steps answered from the table, by this SUL and its forks.
+     */
+    private final LongAdder hits;
+
+    /**
+     * The number of steps executed on the Problem, by this SUL and its forks.
+     */
+    private final LongAdder misses;
+
+    /**
+     * Constructs a new CompiledProblemSUL.
+     *
+     * @param number the problem number to instantiate
+     * @param verify whether to check every step against the Problem.
+     *
+     * @throws FileNotFoundException when the appropriate Java class can not be found.
+     */
+    public CompiledProblemSUL(int number, boolean verify) throws FileNotFoundException {
+        this(number, verify, null);
+    }
+
+    /**
+     * Constructs a new CompiledProblemSUL on the given table.
+     *
+     * @param number the problem number to instantiate
+     * @param verify whether to check every step against the Problem.
+     * @param table the table, or {@code null} for the table shared by all CompiledProblemSULs of the problem.
+     *
+     * @throws FileNotFoundException when the appropriate Java class can not be found.
+     */
+    CompiledProblemSUL(int number, boolean verify, ProblemStateTable table) throws FileNotFoundException {
+        this(number, verify, table, new LongAdder(), new LongAdder());
+    }
+
+    private CompiledProblemSUL(int number, boolean verify, ProblemStateTable table, LongAdder hits, LongAdder misses)
+            throws FileNotFoundException {
+        super(number);
+        this.table = table != null ? table : ProblemStateTable.forProblem(number, getSymbols(), getProblem());
+        this.verify = verify;
+        this.hits = hits;
+        this.misses = misses;
+        current = table.getInitial();
+    }
+
+    @Override
+    public void pre() {
+        current = table.getInitial();
+    }
+
+    /**
+     * Clears the current query; the Problem itself is only reset in verify mode, otherwise it is restored from a
+     * state when needed.
+     */
+    @Override
+    public void post() {
+        if (verify) super.post();
+        else clearInputs();
+    }
+
+    @Override
+    int calculateOutput(int input) {
+        if (current == null) return super.calculateOutput(input);
+
+        final ProblemStateTable.Transition known = current.getTransition(input);
+        if (known != null && !verify) {
+            hits.increment();
+            return follow(known);
+        }
+
+        misses.increment();
+        if (!verify) current.getSnapshot().restore(getProblem());
+
+        final int status = super.calculateOutput(input);
+        final ProblemSnapshot snapshot = ProblemSnapshot.capture(getProblem());
+        final ProblemStateTable.State successor = table.intern(snapshot);
+        final ProblemStateTable.Transition executed =
+                new ProblemStateTable.Transition(successor,
+                                                 super.currentOutput(),
+                                                 status,
+                                                 status == ERROR ? getLastError() : null);
+
+        if (known != null) check(known, executed, snapshot);
+
+        if (successor == null) {
+            // the table is full, the Problem continues executing this query
+            current = null;
+            return status;
+        }
+
+        return follow(current.addTransition(input, executed));
+    }
+
+    /**
+     * Moves to the successor of the given transition.
+     */
+    private int follow(ProblemStateTable.Transition transition) {
+        current = transition.successor;
+        output = transition.output;
+        if (transition.status == ERROR) lastError = transition.error;
+        return transition.status;
+    }
+
+    /**
+     * Checks whether the executed step is the known transition.
+     *
+     * @throws IllegalStateException when they differ.
+     */
+    private void check(ProblemStateTable.Transition known,
+                       ProblemStateTable.Transition executed,
+                       ProblemSnapshot snapshot) {
+        final boolean sameSuccessor = known.successor.getSnapshot().equals(snapshot);
+        if (known.status != executed.status || known.output != executed.output ||
+            !Objects.equals(known.error, executed.error) || !sameSuccessor) {
+            throw new IllegalStateException(String.format("compiled executor differs from problem %d after %s: " +
+                                                          "table output %s, status %d, error %s; problem output %s, " +
+                                                          "status %d, error %s%s",
+                                                          number,
+                                                          getTrace(),
+                                                          getSymbols().symbol(known.output),
+                                                          known.status,
+                                                          known.error,
+                                                          getSymbols().symbol(executed.output),
+                                                          executed.status,
+                                                          executed.error,
+                                                          sameSuccessor ? "" : ", and a different state"));
+        }
+    }
+
+    @Override
+    int currentOutput() {
+        return current == null ? super.currentOutput() : output;
+    }
+
+    /**
+     * Returns the current state of the query, by restoring the Problem from the current state of the table first.
+     *
+     * @return the current state.
+     */
+    @Override
+    public ProblemState getState() {
+        if (current != null && !verify) current.getSnapshot().restore(getProblem());
+        return super.getState();
+    }
+
+    /**
+     * Returns the number of steps answered from the table, by this SUL and its forks.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of steps executed on the Problem, by this SUL and its forks.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Forks this CompiledProblemSUL, the fork shares the {@link ProblemStateTable} and the counts, and records errors in
+     * the same {@link ErrorIndex}.
+     *
+     * @return the forked CompiledProblemSUL.
+     *
+     * @throws UnsupportedOperationException when the appropriate Java class can not be found.
+     */
+    @Override
+    public CompiledProblemSUL fork() throws UnsupportedOperationException {
+        try {
+            final CompiledProblemSUL problemSUL = new CompiledProblemSUL(number, verify, table, hits, misses);
+            problemSUL.setErrorIndex(getErrorIndex());
+            problemSUL.setFullStates(isFullStates());
+            return problemSUL;
+        } catch (FileNotFoundException ex) {
+            throw new UnsupportedOperationException(ex);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package nl.utwente.fmt.rers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link ResultSink} that writes a CSV line per result; the columns are described by {@link #HEADER}.
+ *
+ * @author Jeroen Meijer
+ */
+public class CsvResultSink implements ResultSink {
+
+    /**
+     * The header of the CSV, preceded by the column {@code experiment} if results are tagged; millis is the time from
+     * the start of the experiment until the property was disproved.
+     */
+    public static final String HEADER =
+            "problem," +
+            "learner," +
+            "aut," +
+            "bbo," +
+            "property," +
+            "size," +
+            "realsymbols," +
+            "learnsymbols," +
+            "eqsymbols," +
+            "emsymbols," +
+            "emosymbols," +
+            "insymbols," +
+            "realqueries," +
+            "learnqueries," +
+            "eqqueries," +
+            "emqueries," +
+            "emoqueries," +
+            "inqueries," +
+            "length," +
+            "millis";
+
+    private final BufferedWriter writer;
+
+    private final boolean tagged;
+
+    private final StringBuilder line = new StringBuilder();
+
+    public CsvResultSink(OutputStream out, boolean tagged) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.tagged = tagged;
+
+        writer.write(tagged ? "experiment," + HEADER : HEADER);
+        writer.newLine();
+    }
+
+    @Override
+    public synchronized void write(Result result) {
+        line.setLength(0);
+        if (tagged) line.append(result.getTag()).append(',');
+        line.append(result.getProblem()).append(',')
+            .append(result.getLearner()).append(',')
+            .append(result.getAut()).append(',')
+            .append(result.getBbo()).append(',')
+            .append(result.getProperty()).append(',')
+            .append(result.getSize());
+        for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+            line.append(',').append(result.getCounts().getSymbols(category));
+        }
+        for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+            line.append(',').append(result.getCounts().getQueries(category));
+        }
+        line.append(',').append(result.getLength())
+            .append(',').append(result.getCounts().getMillis());
+
+        try {
+            writer.append(line);
+            writer.newLine();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,71 @@
+package nl.utwente.fmt.rers;
+
+/**
+ * A point in time after which the search for counter examples of an experiment must stop.
+ *
+ * The deadline is checked cooperatively: before every equivalence, emptiness and inclusion query (see
+ * {@link DeadlineSUL}), and before every model checker call (see {@link RERSProperty}). Hence, work is cut off within
+ * the duration of a single query or model checker call after the deadline, by an {@link ExceededException} that
+ * unwinds to the {@link TimeOutEQOracle}.
+ *
+ * @author Jeroen Meijer
+ */
+public final class Deadline {
+
+    /**
+     * Thrown when work is attempted after the deadline.
+     */
+    public static final class ExceededException extends RuntimeException {
+
+        ExceededException() {
+            // thrown to unwind, hence there is no need for a stack trace
+            super("deadline exceeded", null, false, false);
+        }
+    }
+
+    /**
+     * The deadline in terms of {@link System#nanoTime()}.
+     */
+    private volatile long nanos;
+
+    private volatile boolean armed;
+
+    /**
+     * Arms this deadline.
+     *
+     * @param seconds the number of seconds from now.
+     */
+    public void arm(long seconds) {
+        nanos = System.nanoTime() + seconds * 1000L * 1000L * 1000L;
+        armed = true;
+    }
+
+    /**
+     * Disarms this deadline, e.g. to check properties on the final hypothesis after learning timed out.
+     */
+    public void disarm() {
+        armed = false;
+    }
+
+    public boolean isArmed() {
+        return armed;
+    }
+
+    /**
+     * Returns whether the deadline is armed, and has passed.
+     *
+     * @return whether the deadline is exceeded.
+     */
+    public boolean isExceeded() {
+        return armed && System.nanoTime() - nanos > 0;
+    }
+
+    /**
+     * Throws an {@link ExceededException} if the deadline is exceeded.
+     *
+     * @throws ExceededException when the deadline is exceeded.
+     */
+    public void check() throws ExceededException {
+        if (isExceeded()) throw new ExceededException();
+    }
+}
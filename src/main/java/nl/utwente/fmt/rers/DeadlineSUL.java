@@ -0,0 +1,68 @@
+package nl.utwente.fmt.rers;
+
+import de.learnlib.api.ObservableSUL;
+
+/**
+ * A SUL that checks a {@link Deadline} before every query.
+ *
+ * The state can only be observed if the delegate is an {@link ObservableSUL}.
+ *
+ * @param <S> the state type.
+ *
+ * @author Jeroen Meijer
+ */
+public class DeadlineSUL<S> implements ObservableSUL<S, String, String>, IndexedSUL {
+
+    private final Deadline deadline;
+
+    private final IndexedSUL delegate;
+
+    public DeadlineSUL(Deadline deadline, IndexedSUL delegate) {
+        this.deadline = deadline;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void pre() {
+        deadline.check();
+        delegate.pre();
+    }
+
+    @Override
+    public void post() {
+        delegate.post();
+    }
+
+    @Override
+    public SymbolTable getSymbols() {
+        return delegate.getSymbols();
+    }
+
+    @Override
+    public int step(int input) {
+        return delegate.step(input);
+    }
+
+    @Override
+    public boolean canFork() {
+        return delegate.canFork();
+    }
+
+    @Override
+    public DeadlineSUL<S> fork() {
+        return new DeadlineSUL<>(deadline, delegate.fork());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public S getState() {
+        if (!(delegate instanceof ObservableSUL)) throw new UnsupportedOperationException("state is not observable");
+
+        return ((ObservableSUL<S, String, String>) delegate).getState();
+    }
+
+    @Override
+    public boolean deepCopies() {
+        return delegate instanceof ObservableSUL && ((ObservableSUL<?, ?, ?>) delegate).deepCopies();
+    }
+}
@@ -0,0 +1,319 @@
+package nl.utwente.fmt.rers;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import de.learnlib.api.logging.LearnLogger;
+import lombok.Getter;
+
+/**
+ * A catalogue of the errors (assertions) triggered while learning a problem.
+ *
+ * For every error label the first witness trace, the time it was found and the oracle that found it are stored, as well
+ * as the shortest witness trace found so far. The oracle is the name set with {@link #setOracle(String)} on the thread
+ * that executed the trace, see {@link TaggingSUL}.
+ *
+ * Every new error is minimized in the background, on a separate ProblemSUL, by delta debugging its first trace; a
+ * minimized trace replaces the shortest trace if it is shorter.
+ *
+ * @author Jeroen Meijer
+ */
+public class ErrorIndex {
+
+    public static final LearnLogger LOGGER = LearnLogger.getLogger(ErrorIndex.class);
+
+    /**
+     * The oracle name for traces executed on a thread without a name.
+     */
+    public static final String UNKNOWN_ORACLE = "unknown";
+
+    private static final ThreadLocal<String> ORACLE = new ThreadLocal<>();
+
+    /**
+     * A triggered error.
+     */
+    @Getter
+    public static final class Entry {
+
+        private final String error;
+
+        private final List<String> firstTrace;
+
+        /**
+         * The time the error was first triggered, in milliseconds since the epoch.
+         */
+        private final long timestamp;
+
+        /**
+         * The time the error was first triggered, in milliseconds since the ErrorIndex was created.
+         */
+        private final long elapsed;
+
+        private final String oracle;
+
+        private volatile List<String> shortestTrace;
+
+        private volatile boolean minimized;
+
+        Entry(String error, List<String> firstTrace, long timestamp, long elapsed, String oracle) {
+            this.error = error;
+            this.firstTrace = firstTrace;
+            this.timestamp = timestamp;
+            this.elapsed = elapsed;
+            this.oracle = oracle;
+            this.shortestTrace = firstTrace;
+        }
+    }
+
+    private final int number;
+
+    private final long start = System.currentTimeMillis();
+
+    private final Map<String, Entry> entries = new ConcurrentSkipListMap<>();
+
+    private final ExecutorService minimizer = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "error-minimizer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The ProblemSUL the minimizer executes traces on, only accessed by the minimizer thread.
+     */
+    private ProblemSUL problemSUL;
+
+    /**
+     * Constructs a new ErrorIndex.
+     *
+     * @param number the problem number, used to instantiate the ProblemSUL for minimization.
+     */
+    public ErrorIndex(int number) {
+        this.number = number;
+    }
+
+    /**
+     * Sets the name of the oracle that executes queries on the current thread.
+     *
+     * @param oracle the name, or {@code null} to clear it.
+     */
+    public static void setOracle(String oracle) {
+        if (oracle == null) ORACLE.remove();
+        else ORACLE.set(oracle);
+    }
+
+    /**
+     * Returns whether a trace of the given length for the given error would be recorded, i.e. whether the error is new,
+     * or the trace is shorter than the shortest trace so far. Allows the caller to avoid copying the trace.
+     *
+     * @param error the error.
+     * @param length the length of the trace.
+     *
+     * @return whether the trace is interesting.
+     */
+    public boolean isCandidate(String error, int length) {
+        final Entry entry = entries.get(error);
+        return entry == null || length < entry.shortestTrace.size();
+    }
+
+    /**
+     * Records a trace that triggers the given error.
+     *
+     * @param error the error.
+     * @param trace the trace, ending with the input that triggered the error.
+     */
+    public void record(String error, List<String> trace) {
+        final String oracle = ORACLE.get() != null ? ORACLE.get() : UNKNOWN_ORACLE;
+        final long now = System.currentTimeMillis();
+        final Entry entry = new Entry(error, trace, now, now - start, oracle);
+
+        final Entry existing = entries.putIfAbsent(error, entry);
+        if (existing == null) {
+            LOGGER.info(String.format("error %s first reached by %s with a trace of length %d",
+                                      error,
+                                      oracle,
+                                      trace.size()));
+            minimizer.submit(() -> minimize(entry));
+        } else {
+            updateShortest(existing, trace);
+        }
+    }
+
+    private static void updateShortest(Entry entry, List<String> trace) {
+        synchronized (entry) {
+            if (trace.size() < entry.shortestTrace.size()) entry.shortestTrace = trace;
+        }
+    }
+
+    /**
+     * Returns the errors reached so far.
+     *
+     * @return the entries, ordered by error label.
+     */
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * Minimizes the first trace of the given entry with delta debugging (only removing parts, ddmin), on a separate
+     * ProblemSUL.
+     */
+    private void minimize(Entry entry) {
+        try {
+            if (problemSUL == null) problemSUL = new ProblemSUL(number);
+        } catch (FileNotFoundException fnfe) {
+            LOGGER.warn("can not minimize traces: " + fnfe.getMessage());
+            return;
+        }
+
+        List<String> trace = entry.firstTrace;
+        int length = triggers(trace, entry.error);
+        if (length < 0) return;
+        trace = new ArrayList<>(trace.subList(0, length));
+
+        int granularity = 2;
+        while (trace.size() >= 2) {
+            final int chunk = (trace.size() + granularity - 1) / granularity;
+            boolean reduced = false;
+            for (int from = 0; from < trace.size() && !reduced; from += chunk) {
+                final List<String> complement = new ArrayList<>(trace.subList(0, from));
+                complement.addAll(trace.subList(Math.min(trace.size(), from + chunk), trace.size()));
+                length = triggers(complement, entry.error);
+                if (length >= 0) {
+                    trace = new ArrayList<>(complement.subList(0, length));
+                    granularity = Math.max(granularity - 1, 2);
+                    reduced = true;
+                }
+            }
+            if (!reduced) {
+                if (granularity >= trace.size()) break;
+                granularity = Math.min(granularity * 2, trace.size());
+            }
+        }
+
+        updateShortest(entry, trace);
+        entry.minimized = true;
+    }
+
+    /**
+     * Returns the length of the shortest prefix of the trace that triggers the error, or -1 if it is not triggered.
+     */
+    private int triggers(List<String> trace, String error) {
+        problemSUL.pre();
+        try {
+            for (int i = 0; i < trace.size(); i++) {
+                problemSUL.step(trace.get(i));
+                if (problemSUL.getLastStatus() == ProblemSUL.ERROR && error.equals(problemSUL.getLastError())) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        } finally {
+            problemSUL.post();
+        }
+    }
+
+    /**
+     * Stops minimizing, waiting at most the given time for pending minimizations.
+     *
+     * @param seconds the maximum number of seconds to wait.
+     */
+    public void close(long seconds) {
+        minimizer.shutdown();
+        try {
+            if (!minimizer.awaitTermination(seconds, TimeUnit.SECONDS)) minimizer.shutdownNow();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the errors as CSV, with one line per error.
+     *
+     * @param path the file.
+     *
+     * @throws IOException when the file can not be written.
+     */
+    public void writeCSV(Path path) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            writer.println("problem,error,oracle,timestamp,elapsed,firstlength,firsttrace,shortestlength,shortesttrace," +
+                           "minimized");
+            for (Entry entry : getEntries()) {
+                writer.println(String.join(",",
+                                           String.valueOf(number),
+                                           entry.error,
+                                           entry.oracle,
+                                           String.valueOf(entry.timestamp),
+                                           String.valueOf(entry.elapsed),
+                                           String.valueOf(entry.firstTrace.size()),
+                                           String.join(" ", entry.firstTrace),
+                                           String.valueOf(entry.shortestTrace.size()),
+                                           String.join(" ", entry.shortestTrace),
+                                           String.valueOf(entry.minimized)));
+            }
+        }
+    }
+
+    /**
+     * Writes the errors as a JSON array, with one object per error.
+     *
+     * @param path the file.
+     *
+     * @throws IOException when the file can not be written.
+     */
+    public void writeJSON(Path path) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            writer.println("[");
+            boolean first = true;
+            for (Entry entry : getEntries()) {
+                if (!first) writer.println(",");
+                first = false;
+                writer.print(String.format("  {\"problem\": %d, \"error\": %s, \"oracle\": %s, \"timestamp\": %d, " +
+                                           "\"elapsed\": %d, \"firstTrace\": %s, \"shortestTrace\": %s, " +
+                                           "\"minimized\": %b}",
+                                           number,
+                                           quote(entry.error),
+                                           quote(entry.oracle),
+                                           entry.timestamp,
+                                           entry.elapsed,
+                                           toJSON(entry.firstTrace),
+                                           toJSON(entry.shortestTrace),
+                                           entry.minimized));
+            }
+            writer.println();
+            writer.println("]");
+        }
+    }
+
+    private static String toJSON(List<String> trace) {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < trace.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(quote(trace.get(i)));
+        }
+
+        return sb.append(']').toString();
+    }
+
+    private static String quote(String s) {
+        final StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,295 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The query and symbol counts of a single {@link RERSExperiment}, per oracle category.
+ *
+ * Counts are kept in {@link LongAdder}s, such that oracles answering queries on several threads can count without
+ * contention, and several experiments can run in the same JVM. Counts are never decremented: work that turned out to
+ * be useless (e.g. equivalence queries after a timeout) is recorded as discarded, see
+ * {@link Counters#discard(long, long)}.
+ *
+ * Updates hold the read lock of a {@link StampedLock} shared by all categories, such that they do not exclude each
+ * other, and {@link #snapshot()} holds the write lock, such that a snapshot sees either all or none of the counts of an
+ * update. Queries are hence counted once they are finished, together with their symbols (see {@link MetricsSUL}).
+ *
+ * @author Jeroen Meijer
+ */
+public final class ExperimentMetrics {
+
+    /**
+     * The oracle categories, in the order of the CSV columns.
+     */
+    public enum Category {
+        REAL("real"),
+        LEARN("learner"),
+        EQ("equivalence"),
+        EM("emptiness"),
+        EMO("omega emptiness"),
+        IN("inclusion");
+
+        @Getter
+        private final String name;
+
+        Category(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * The counts of a single category.
+     */
+    public static final class Counters {
+
+        @Getter
+        private final String name;
+
+        private final LongAdder queries = new LongAdder();
+
+        private final LongAdder symbols = new LongAdder();
+
+        private final LongAdder discardedQueries = new LongAdder();
+
+        private final LongAdder discardedSymbols = new LongAdder();
+
+        private final StampedLock lock;
+
+        private Counters(String name, StampedLock lock) {
+            this.name = name;
+            this.lock = lock;
+        }
+
+        /**
+         * Records answered queries.
+         *
+         * @param queries the number of queries.
+         * @param symbols the number of symbols of the queries.
+         */
+        void add(long queries, long symbols) {
+            final long stamp = lock.readLock();
+            try {
+                this.queries.add(queries);
+                this.symbols.add(symbols);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Records that work already counted was useless.
+         *
+         * @param queries the number of discarded queries.
+         * @param symbols the number of discarded symbols.
+         */
+        void discard(long queries, long symbols) {
+            final long stamp = lock.readLock();
+            try {
+                discardedQueries.add(queries);
+                discardedSymbols.add(symbols);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Returns the number of queries, including discarded queries.
+         *
+         * @return the number of queries.
+         */
+        public long getQueries() {
+            return queries.sum();
+        }
+
+        /**
+         * Returns the number of symbols, including discarded symbols.
+         *
+         * @return the number of symbols.
+         */
+        public long getSymbols() {
+            return symbols.sum();
+        }
+
+        public long getDiscardedQueries() {
+            return discardedQueries.sum();
+        }
+
+        public long getDiscardedSymbols() {
+            return discardedSymbols.sum();
+        }
+
+        /**
+         * Returns the number of queries that were not discarded, as reported in the CSV.
+         *
+         * @return the number of useful queries.
+         */
+        public long getUsefulQueries() {
+            return getQueries() - getDiscardedQueries();
+        }
+
+        /**
+         * Returns the number of symbols that were not discarded, as reported in the CSV.
+         *
+         * @return the number of useful symbols.
+         */
+        public long getUsefulSymbols() {
+            return getSymbols() - getDiscardedSymbols();
+        }
+    }
+
+    /**
+     * The model checker calls for a single formula.
+     */
+    public static final class ModelCheckerCounters {
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder nanos = new LongAdder();
+
+        /**
+         * Records a model checker call.
+         *
+         * @param nanos the duration of the call in nanoseconds.
+         */
+        void record(long nanos) {
+            calls.increment();
+            this.nanos.add(nanos);
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        /**
+         * Returns the total duration of all calls.
+         *
+         * @return the duration in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos.sum();
+        }
+    }
+
+    /**
+     * The useful counts of all categories at some point in time.
+     */
+    public static final class Snapshot {
+
+        private final long[] queries;
+
+        private final long[] symbols;
+
+        /**
+         * The time since the experiment started, in milliseconds.
+         */
+        @Getter
+        private final long millis;
+
+        Snapshot(long[] queries, long[] symbols, long millis) {
+            this.queries = queries;
+            this.symbols = symbols;
+            this.millis = millis;
+        }
+
+        public long getQueries(Category category) {
+            return queries[category.ordinal()];
+        }
+
+        public long getSymbols(Category category) {
+            return symbols[category.ordinal()];
+        }
+    }
+
+    private final Map<Category, Counters> counters = new EnumMap<>(Category.class);
+
+    /**
+     * Excludes updates of the counters during a {@link #snapshot()}.
+     */
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * The time the experiment started, in terms of {@link System#nanoTime()}.
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * The model checker calls by formula.
+     */
+    private final Map<String, ModelCheckerCounters> modelCheckerCounters = new ConcurrentHashMap<>();
+
+    /**
+     * The number of states of the last hypothesis submitted to the equivalence oracle.
+     */
+    @Getter
+    @Setter
+    private volatile int hypothesisSize;
+
+    public ExperimentMetrics() {
+        for (Category category : Category.values()) counters.put(category, new Counters(category.getName(), lock));
+    }
+
+    /**
+     * Returns the counters of a category.
+     *
+     * @param category the category.
+     *
+     * @return the counters.
+     */
+    public Counters get(Category category) {
+        return counters.get(category);
+    }
+
+    /**
+     * Takes a snapshot of the useful counts of all categories.
+     *
+     * No counter is updated while a snapshot is taken, so the snapshot sees every update as a whole: the queries and
+     * the symbols of a query or batch, and both parts of a discard. A query that is counted in several categories (e.g.
+     * a learner query and the real query below it) is a separate update in each category.
+     *
+     * @return the snapshot.
+     */
+    public Snapshot snapshot() {
+        final Category[] categories = Category.values();
+        final long[] queries = new long[categories.length];
+        final long[] symbols = new long[categories.length];
+        final long stamp = lock.writeLock();
+        try {
+            for (Category category : categories) {
+                queries[category.ordinal()] = get(category).getUsefulQueries();
+                symbols[category.ordinal()] = get(category).getUsefulSymbols();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        return new Snapshot(queries, symbols, (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Returns the model checker counters of a formula.
+     *
+     * @param formula the formula.
+     *
+     * @return the counters.
+     */
+    public ModelCheckerCounters getModelChecker(String formula) {
+        return modelCheckerCounters.computeIfAbsent(formula, f -> new ModelCheckerCounters());
+    }
+
+    /**
+     * Returns the model checker counters of all formulae checked so far.
+     *
+     * @return the counters by formula.
+     */
+    public Map<String, ModelCheckerCounters> getModelCheckerCounters() {
+        return Collections.unmodifiableMap(modelCheckerCounters);
+    }
+}
@@ -0,0 +1,212 @@
+package nl.utwente.fmt.rers;
+
+import java.io.File;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+import nl.utwente.fmt.rers.RERSExperiment.LEARNER;
+
+/**
+ * The options of a {@link RERSExperiment}, see {@link Main#getOptions()} for a description of each option.
+ *
+ * @author Jeroen Meijer
+ */
+@Getter
+@Setter
+public class ExperimentOptions {
+
+    /**
+     * The problem number.
+     */
+    private int problem;
+
+    private LEARNER learner;
+
+    /**
+     * The multiplier used when computing the number of unrolls for a lasso.
+     */
+    private double multiplier = 1.0;
+
+    /**
+     * The minimum number of times a lasso needs to be unrolled.
+     */
+    private int minimumUnfolds = 3;
+
+    private boolean disproveFirst;
+
+    private boolean cexFirst;
+
+    private boolean randomWords = true;
+
+    private boolean alternate = true;
+
+    /**
+     * Whether to order the equivalence strategies by yield with an {@link AdaptiveEQOracle}, instead of a fixed chain.
+     */
+    private boolean adaptiveEQ;
+
+    private boolean monitor;
+
+    /**
+     * Whether to check monitors with the {@link MonitorModelChecker} instead of LTSmin.
+     */
+    private boolean javaMonitor;
+
+    /**
+     * Whether to use a model checker cache.
+     */
+    private boolean cache;
+
+    /**
+     * Whether to reuse model checker results and explored products of previous hypotheses.
+     */
+    private boolean incremental;
+
+    private boolean queryCache;
+
+    private boolean snapshot;
+
+    /**
+     * Whether to answer batches of queries with a {@link BatchSULOracle}.
+     */
+    private boolean batchQueries;
+
+    /**
+     * Whether to answer real queries with a {@link CompiledProblemSUL}.
+     */
+    private boolean compiled;
+
+    /**
+     * Whether the {@link CompiledProblemSUL} checks every step against the Problem.
+     */
+    private boolean verifyCompiled;
+
+    /**
+     * Whether to stop executing queries in an absorbing deadlock, with a {@link SinkDetectingSUL}.
+     */
+    private boolean sinkDetection;
+
+    private boolean buchi;
+
+    /**
+     * Whether to check Büchi automata with the {@link LassoModelChecker} instead of LTSmin.
+     */
+    private boolean javaBuchi;
+
+    /**
+     * Whether to unroll lassos on forked problems with a {@link ParallelLassoEmptinessOracle}, instead of the omega
+     * membership oracle; requires more than one property thread, and no monitors, such that the Büchi model checker
+     * calls, and the lassos they find, are prefetched.
+     */
+    private boolean forkedLasso;
+
+    /**
+     * Whether to compare states of omega queries by fingerprint only, see {@link ProblemState}.
+     */
+    private boolean stateFingerprints;
+
+    /**
+     * Timeout in seconds, -1 means no timeout.
+     */
+    private int timeout = -1;
+
+    /**
+     * The number of threads answering membership queries.
+     */
+    private int threads = 1;
+
+    /**
+     * Whether equivalence oracles ask batches of queries, instead of one query at a time.
+     */
+    private boolean eqBatches;
+
+    /**
+     * The maximum number of concurrent model checker calls.
+     */
+    private int propertyThreads = 1;
+
+    /**
+     * The file of the {@link ModelCheckerResultStore}, {@code null} if results are not persisted.
+     */
+    private File resultStore;
+
+    /**
+     * The path prefix of the CSV and JSON files the triggered errors are written to, {@code null} if errors are only
+     * logged.
+     */
+    private String errors;
+
+    /**
+     * The file a {@link Checkpoint} is periodically written to, {@code null} if no checkpoints are written.
+     */
+    private File checkpoint;
+
+    /**
+     * The {@link Checkpoint} to resume from, {@code null} to start from scratch.
+     */
+    private File resume;
+
+    /**
+     * The time-series file the {@link MetricsSampler} writes to, {@code null} if metrics are not sampled.
+     */
+    private File metrics;
+
+    /**
+     * The interval in seconds between two samples of the {@link MetricsSampler}.
+     */
+    private int metricsInterval = 10;
+
+    /**
+     * The file results are written to, {@code null} for stdout.
+     */
+    private File output;
+
+    /**
+     * The format of the results, see {@link ResultSink#open(File, String, boolean)}.
+     */
+    private String outputFormat = ResultSink.CSV;
+
+    /**
+     * The sink disproved properties are written to.
+     */
+    private ResultSink resultSink;
+
+    /**
+     * The tag of every result, {@code null} for a single experiment without a tag.
+     */
+    private String tag;
+
+    /**
+     * The query caches shared with other experiments of a {@link BatchRunner}, by problem number; {@code null} if the
+     * query cache is not shared.
+     */
+    private Map<Integer, QueryCache> sharedQueryCaches;
+
+    /**
+     * Returns the model checker type, as written in the CSV.
+     *
+     * @return the model checker type.
+     */
+    public String getMcType() {
+        String mcType = monitor ? "monitor" : "";
+        mcType += buchi && monitor ? "-" : "";
+        mcType += buchi ? "buchi" : "";
+
+        return mcType;
+    }
+
+    /**
+     * Returns the black-box oracle type, as written in the CSV.
+     *
+     * @return the black-box oracle type.
+     */
+    public String getBbcType() {
+        final String bbcType;
+        if (cexFirst) bbcType = "cex-first";
+        else if (disproveFirst) bbcType = "disprove-first";
+        else bbcType = "none";
+
+        return bbcType;
+    }
+}
@@ -0,0 +1,300 @@
+package nl.utwente.fmt.rers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+
+import net.automatalib.automata.transout.MealyMachine;
+
+/**
+ * An immutable copy of the reachable part of a hypothesis, with states numbered in breadth-first order.
+ *
+ * Learners refine their hypothesis in place, hence to compare a hypothesis with a previous one, a copy of the previous
+ * one must be kept. States of two snapshots are related by their access sequences, see {@link #diff(HypothesisSnapshot)}.
+ *
+ * @author Jeroen Meijer
+ */
+final class HypothesisSnapshot {
+
+    private final List<String> inputs;
+
+    /**
+     * The successor of every state for every input, -1 if undefined.
+     */
+    private final int[][] successors;
+
+    private final String[][] outputs;
+
+    /**
+     * The index of every (reachable) state of the hypothesis this snapshot was taken from.
+     */
+    private final Map<Object, Integer> indices;
+
+    private HypothesisSnapshot(List<String> inputs, int[][] successors, String[][] outputs, Map<Object, Integer> indices) {
+        this.inputs = inputs;
+        this.successors = successors;
+        this.outputs = outputs;
+        this.indices = indices;
+    }
+
+    /**
+     * Takes a snapshot of the given hypothesis.
+     *
+     * @param hypothesis the hypothesis.
+     * @param inputs the alphabet.
+     *
+     * @return the snapshot.
+     */
+    static HypothesisSnapshot of(MealyMachine<?, String, ?, String> hypothesis, Collection<? extends String> inputs) {
+        return of(hypothesis, new ArrayList<>(inputs));
+    }
+
+    private static <S, T> HypothesisSnapshot of(MealyMachine<S, String, T, String> hypothesis, List<String> inputs) {
+        final Map<Object, Integer> indices = new HashMap<>();
+        final List<int[]> successors = new ArrayList<>();
+        final List<String[]> outputs = new ArrayList<>();
+        final List<S> states = new ArrayList<>();
+
+        final S init = hypothesis.getInitialState();
+        if (init != null) {
+            indices.put(init, 0);
+            states.add(init);
+        }
+
+        for (int s = 0; s < states.size(); s++) {
+            final int[] succ = new int[inputs.size()];
+            final String[] out = new String[inputs.size()];
+            for (int i = 0; i < inputs.size(); i++) {
+                final T transition = hypothesis.getTransition(states.get(s), inputs.get(i));
+                if (transition == null) {
+                    succ[i] = -1;
+                    continue;
+                }
+                final S successor = hypothesis.getSuccessor(transition);
+                Integer index = indices.get(successor);
+                if (index == null) {
+                    index = states.size();
+                    indices.put(successor, index);
+                    states.add(successor);
+                }
+                succ[i] = index;
+                out[i] = hypothesis.getTransitionOutput(transition);
+            }
+            successors.add(succ);
+            outputs.add(out);
+        }
+
+        return new HypothesisSnapshot(inputs,
+                                      successors.toArray(new int[successors.size()][]),
+                                      outputs.toArray(new String[outputs.size()][]),
+                                      indices);
+    }
+
+    /**
+     * Returns the number of reachable states.
+     *
+     * @return the size.
+     */
+    int size() {
+        return successors.length;
+    }
+
+    /**
+     * Returns the alphabet of this snapshot.
+     *
+     * @return the inputs.
+     */
+    List<String> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Returns the successor of a state.
+     *
+     * @param state the index of the state.
+     * @param input the index of the input in {@link #getInputs()}.
+     *
+     * @return the index of the successor, or -1 if undefined.
+     */
+    int getSuccessor(int state, int input) {
+        return successors[state][input];
+    }
+
+    /**
+     * Returns the output of a transition.
+     *
+     * @param state the index of the state.
+     * @param input the index of the input in {@link #getInputs()}.
+     *
+     * @return the output, or {@code null} if undefined.
+     */
+    String getOutput(int state, int input) {
+        return outputs[state][input];
+    }
+
+    /**
+     * Creates a snapshot from its components, e.g. when it is read from a {@link Checkpoint}.
+     *
+     * @param inputs the alphabet.
+     * @param successors the successor of every state for every input, -1 if undefined.
+     * @param outputs the output of every state for every input.
+     *
+     * @return the snapshot, for which {@link #index(Object)} returns {@code null} for every state.
+     */
+    static HypothesisSnapshot of(List<String> inputs, int[][] successors, String[][] outputs) {
+        return new HypothesisSnapshot(inputs, successors, outputs, new HashMap<>());
+    }
+
+    /**
+     * Returns the index of a state of the hypothesis this snapshot was taken from.
+     *
+     * @param state the state.
+     *
+     * @return the index, or {@code null} if the state was not reachable.
+     */
+    Integer index(Object state) {
+        return indices.get(state);
+    }
+
+    /**
+     * Compares this snapshot with a previous one.
+     *
+     * Every state is related to the state of the previous snapshot with the same (breadth-first) access sequence. A
+     * state is clean if it is related to some state, and all its transitions have the same output, and lead to states
+     * related to the previous successors. A state is stable if it can only reach clean states.
+     *
+     * @param previous the previous snapshot.
+     *
+     * @return the difference.
+     */
+    Diff diff(HypothesisSnapshot previous) {
+        final int size = size();
+        final int[] oldIndex = new int[size];
+        Arrays.fill(oldIndex, -1);
+        final BitSet dirty = new BitSet(size);
+
+        if (!inputs.equals(previous.inputs) || size == 0 || previous.size() == 0) {
+            dirty.set(0, size);
+        } else {
+            final boolean[] assigned = new boolean[size];
+            oldIndex[0] = 0;
+            assigned[0] = true;
+
+            // in breadth-first order a state is assigned before the states it discovered
+            for (int s = 0; s < size; s++) {
+                for (int i = 0; i < inputs.size(); i++) {
+                    final int t = successors[s][i];
+                    if (t == -1 || assigned[t]) continue;
+                    assigned[t] = true;
+                    oldIndex[t] = oldIndex[s] == -1 ? -1 : previous.successors[oldIndex[s]][i];
+                }
+            }
+
+            for (int s = 0; s < size; s++) {
+                if (oldIndex[s] == -1 || !isClean(s, oldIndex, previous)) dirty.set(s);
+            }
+        }
+
+        // a state is unstable if it can reach a dirty state
+        final List<List<Integer>> predecessors = new ArrayList<>(size);
+        for (int s = 0; s < size; s++) predecessors.add(new ArrayList<>());
+        for (int s = 0; s < size; s++) {
+            for (int t : successors[s]) if (t != -1) predecessors.get(t).add(s);
+        }
+
+        final BitSet unstable = (BitSet) dirty.clone();
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (int s = dirty.nextSetBit(0); s >= 0; s = dirty.nextSetBit(s + 1)) queue.add(s);
+        while (!queue.isEmpty()) {
+            for (int p : predecessors.get(queue.poll())) {
+                if (!unstable.get(p)) {
+                    unstable.set(p);
+                    queue.add(p);
+                }
+            }
+        }
+
+        final BitSet stable = new BitSet(size);
+        stable.set(0, size);
+        stable.andNot(unstable);
+
+        return new Diff(oldIndex, stable, dirty.isEmpty() && size == previous.size());
+    }
+
+    private boolean isClean(int s, int[] oldIndex, HypothesisSnapshot previous) {
+        final int o = oldIndex[s];
+        for (int i = 0; i < inputs.size(); i++) {
+            final int t = successors[s][i];
+            final int u = previous.successors[o][i];
+            if (t == -1 ? u != -1 : u != oldIndex[t]) return false;
+            if (!Objects.equals(outputs[s][i], previous.outputs[o][i])) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * The difference between a snapshot and a previous one.
+     */
+    static final class Diff {
+
+        private final int[] oldIndex;
+
+        private final BitSet stable;
+
+        private final boolean identical;
+
+        private Diff(int[] oldIndex, BitSet stable, boolean identical) {
+            this.oldIndex = oldIndex;
+            this.stable = stable;
+            this.identical = identical;
+        }
+
+        /**
+         * Returns the state of the previous snapshot with the same access sequence.
+         *
+         * @param state the index of the state in the new snapshot.
+         *
+         * @return the index in the previous snapshot, or -1.
+         */
+        int getOldIndex(int state) {
+            return oldIndex[state];
+        }
+
+        /**
+         * Returns whether everything reachable from the given state is the same as in the previous snapshot.
+         *
+         * @param state the index of the state in the new snapshot.
+         *
+         * @return whether the state is stable.
+         */
+        boolean isStable(int state) {
+            return stable.get(state);
+        }
+
+        /**
+         * Returns whether both snapshots are isomorphic.
+         *
+         * @return whether the snapshots are identical.
+         */
+        boolean isIdentical() {
+            return identical;
+        }
+
+        /**
+         * Returns the number of stable states.
+         *
+         * @return the number of stable states.
+         */
+        int getStableStates() {
+            return stable.cardinality();
+        }
+    }
+}
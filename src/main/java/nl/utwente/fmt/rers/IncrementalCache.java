@@ -0,0 +1,213 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.learnlib.api.logging.LearnLogger;
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+
+/**
+ * Remembers, per property, the result and the explored product of the previous model checker call, such that work can
+ * be reused when the hypothesis is refined.
+ *
+ * When the hypothesis did not change (up to isomorphism) the previous result is returned. Otherwise, if the model
+ * checker is an {@link IncrementalSearch}, and the property held for the previous hypothesis, the product states whose
+ * hypothesis state is stable (see {@link HypothesisSnapshot.Diff}) are not explored again; all other model checkers
+ * check the property from scratch.
+ *
+ * @param <R> the type of counter example.
+ *
+ * @author Jeroen Meijer
+ */
+class IncrementalCache<R> {
+
+    private static final LearnLogger LOGGER = LearnLogger.getLogger(IncrementalCache.class);
+
+    private final PrefetchCache.Check<R> check;
+
+    private final IncrementalSearch<R> search;
+
+    private final Map<String, Entry<R>> entries = new ConcurrentHashMap<>();
+
+    private MealyMachine<?, String, ?, String> hypothesis;
+
+    private int size;
+
+    private HypothesisSnapshot snapshot;
+
+    private final LongAdder verdictsReused = new LongAdder();
+
+    private final LongAdder productStatesReused = new LongAdder();
+
+    private final LongAdder productStates = new LongAdder();
+
+    /**
+     * Constructs a new IncrementalCache.
+     *
+     * @param check the model checker call.
+     * @param search the same model checker as an IncrementalSearch, or {@code null} if it is not.
+     */
+    IncrementalCache(PrefetchCache.Check<R> check, IncrementalSearch<R> search) {
+        this.check = check;
+        this.search = search;
+
+        if (search == null) {
+            LOGGER.info("incremental model checking: the model checker can not reuse its explored product, only " +
+                        "verdicts of unchanged hypotheses are reused");
+        }
+    }
+
+    /**
+     * Returns the snapshot of the given hypothesis, and reports the reuse of the previous round when the hypothesis
+     * changed.
+     */
+    private synchronized HypothesisSnapshot getSnapshot(MealyMachine<?, String, ?, String> hypothesis,
+                                                        Collection<? extends String> inputs) {
+        if (this.hypothesis != hypothesis || size != hypothesis.size() || snapshot == null) {
+            if (snapshot != null) logRound();
+            this.hypothesis = hypothesis;
+            this.size = hypothesis.size();
+            this.snapshot = HypothesisSnapshot.of(hypothesis, inputs);
+        }
+
+        return snapshot;
+    }
+
+    private void logRound() {
+        LOGGER.info(String.format("incremental model checking: reused %d verdicts, and %d of %d product states",
+                                  verdictsReused.sumThenReset(),
+                                  productStatesReused.sumThenReset(),
+                                  productStates.sumThenReset()));
+    }
+
+    /**
+     * Checks the given property, reusing the previous call for the property where possible.
+     *
+     * @param hypothesis the hypothesis.
+     * @param inputs the alphabet.
+     * @param property the property.
+     *
+     * @return the counter example, or {@code null}.
+     *
+     * @throws ModelCheckingException when the model checker fails.
+     */
+    R check(MealyMachine<?, String, ?, String> hypothesis, Collection<? extends String> inputs, String property)
+            throws ModelCheckingException {
+        final HypothesisSnapshot snapshot = getSnapshot(hypothesis, inputs);
+        final Entry<R> entry = entries.computeIfAbsent(property, p -> new Entry<>());
+
+        synchronized (entry) {
+            final HypothesisSnapshot.Diff diff = entry.snapshot == null ? null : snapshot.diff(entry.snapshot);
+            if (diff != null && diff.isIdentical()) {
+                verdictsReused.increment();
+                return entry.result;
+            }
+
+            final R result;
+            final Set<Explored> explored;
+            if (search == null) {
+                result = check.check(hypothesis, inputs, property);
+                explored = Collections.emptySet();
+            } else {
+                final Reuse reuse = new Reuse(snapshot, entry.held ? diff : null, entry.explored);
+                result = search.findCounterExample(hypothesis, inputs, property, reuse);
+                productStatesReused.add(reuse.reused);
+                productStates.add(reuse.current.size());
+                // only the product of a property that holds is explored completely
+                explored = result == null ? reuse.current : Collections.emptySet();
+            }
+
+            entry.snapshot = snapshot;
+            entry.result = result;
+            entry.held = result == null;
+            entry.explored = explored;
+
+            return result;
+        }
+    }
+
+    private static final class Entry<R> {
+
+        HypothesisSnapshot snapshot;
+
+        R result;
+
+        boolean held;
+
+        Set<Explored> explored = Collections.emptySet();
+    }
+
+    /**
+     * A product state, with the hypothesis state replaced by its index in a {@link HypothesisSnapshot}.
+     */
+    private static final class Explored {
+
+        final int state;
+
+        final Object key;
+
+        Explored(int state, Object key) {
+            this.state = state;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Explored)) return false;
+            final Explored that = (Explored) o;
+            return state == that.state && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(state, key);
+        }
+    }
+
+    private static final class Reuse implements ProductReuse {
+
+        final HypothesisSnapshot snapshot;
+
+        final HypothesisSnapshot.Diff diff;
+
+        final Set<Explored> previous;
+
+        final Set<Explored> current = new HashSet<>();
+
+        long reused;
+
+        Reuse(HypothesisSnapshot snapshot, HypothesisSnapshot.Diff diff, Set<Explored> previous) {
+            this.snapshot = snapshot;
+            this.diff = diff;
+            this.previous = previous;
+        }
+
+        @Override
+        public boolean isExplored(Object state, Object key) {
+            if (diff == null || previous.isEmpty()) return false;
+
+            final Integer index = snapshot.index(state);
+            if (index == null || !diff.isStable(index)) return false;
+
+            if (previous.contains(new Explored(diff.getOldIndex(index), key))) {
+                reused++;
+                return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public void explored(Object state, Object key) {
+            final Integer index = snapshot.index(state);
+            if (index != null) current.add(new Explored(index, key));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.ModelChecker;
+
+/**
+ * A MealyModelChecker that reuses the results and explored product of previous hypotheses, see
+ * {@link IncrementalCache}.
+ *
+ * The explored product can only be reused if the wrapped model checker is an {@link IncrementalSearch}, i.e. the Java
+ * model checker itself, or a {@link TimedModelChecker} of it; other wrappers hide it.
+ *
+ * @param <R> the type of counter example.
+ *
+ * @author Jeroen Meijer
+ */
+public class IncrementalModelChecker<R> implements ModelChecker.MealyModelChecker<String, String, String, R> {
+
+    private final IncrementalCache<R> incrementalCache;
+
+    @SuppressWarnings("unchecked")
+    public IncrementalModelChecker(ModelChecker.MealyModelChecker<String, String, String, R> modelChecker) {
+        incrementalCache = new IncrementalCache<>(modelChecker::findCounterExample,
+                                                  modelChecker instanceof IncrementalSearch &&
+                                                  ((IncrementalSearch<?>) modelChecker).isReusing() ?
+                                                          (IncrementalSearch<R>) modelChecker :
+                                                          null);
+    }
+
+    @Nullable
+    @Override
+    public R findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                Collection<? extends String> inputs,
+                                String property) throws ModelCheckingException {
+        return incrementalCache.check(hypothesis, inputs, property);
+    }
+}
@@ -0,0 +1,64 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.Lasso.MealyLasso;
+import net.automatalib.modelchecking.ModelCheckerLasso;
+
+/**
+ * A MealyModelCheckerLasso that reuses the results and explored product of previous hypotheses, see
+ * {@link IncrementalCache}.
+ *
+ * The explored product can only be reused if the wrapped model checker is an {@link IncrementalSearch}, i.e. the Java
+ * model checker itself, or a {@link TimedModelCheckerLasso} of it; other wrappers hide it.
+ *
+ * @author Jeroen Meijer
+ */
+public class IncrementalModelCheckerLasso implements ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> {
+
+    private final ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> modelChecker;
+
+    private final IncrementalCache<MealyLasso<String, String>> incrementalCache;
+
+    @SuppressWarnings("unchecked")
+    public IncrementalModelCheckerLasso(ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> modelChecker) {
+        this.modelChecker = modelChecker;
+        incrementalCache = new IncrementalCache<>(modelChecker::findCounterExample,
+                                                  modelChecker instanceof IncrementalSearch &&
+                                                  ((IncrementalSearch<?>) modelChecker).isReusing() ?
+                                                          (IncrementalSearch<MealyLasso<String, String>>) modelChecker :
+                                                          null);
+    }
+
+    @Nullable
+    @Override
+    public MealyLasso<String, String> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                         Collection<? extends String> inputs,
+                                                         String property) throws ModelCheckingException {
+        return incrementalCache.check(hypothesis, inputs, property);
+    }
+
+    @Override
+    public double getMultiplier() {
+        return modelChecker.getMultiplier();
+    }
+
+    @Override
+    public void setMultiplier(double multiplier) throws IllegalArgumentException {
+        modelChecker.setMultiplier(multiplier);
+    }
+
+    @Override
+    public int getMinimumUnfolds() {
+        return modelChecker.getMinimumUnfolds();
+    }
+
+    @Override
+    public void setMinimumUnfolds(int minimumUnfolds) throws IllegalArgumentException {
+        modelChecker.setMinimumUnfolds(minimumUnfolds);
+    }
+}
@@ -0,0 +1,47 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+
+/**
+ * An in-process model checker that can skip parts of the product it explored before, see {@link ProductReuse}.
+ *
+ * @param <R> the type of counter example.
+ *
+ * @author Jeroen Meijer
+ */
+interface IncrementalSearch<R> {
+
+    /**
+     * Finds a counter example, like {@link net.automatalib.modelchecking.ModelChecker#findCounterExample(Object,
+     * Collection, Object)} does.
+     *
+     * @param hypothesis the hypothesis.
+     * @param inputs the alphabet.
+     * @param property the property.
+     * @param reuse decides which product states need not be explored.
+     *
+     * @return the counter example, or {@code null} if the property holds.
+     *
+     * @throws ModelCheckingException when the property can not be checked.
+     */
+    @Nullable
+    R findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                         Collection<? extends String> inputs,
+                         String property,
+                         ProductReuse reuse) throws ModelCheckingException;
+
+    /**
+     * Returns whether {@link #findCounterExample(MealyMachine, Collection, String, ProductReuse)} uses the given
+     * {@link ProductReuse}; wrappers implement this interface for any model checker, and forward this question.
+     *
+     * @return whether the explored product is reused.
+     */
+    default boolean isReusing() {
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package nl.utwente.fmt.rers;
+
+import de.learnlib.api.SUL;
+
+/**
+ * A SUL over the symbols of a problem, that is stepped with the input indices of its {@link SymbolTable}, and answers
+ * with output indices.
+ *
+ * The SULs that are stacked on a {@link ProblemSUL} (counters, caches, sink detection) pass indices to each other, such
+ * that a symbol is translated once, by the {@link IndexedSULOracle} on top of the stack, instead of hashed in every
+ * layer. The String step of {@link SUL} translates the symbols of a single step, for callers outside an oracle.
+ *
+ * @author Jeroen Meijer
+ */
+public interface IndexedSUL extends SUL<String, String> {
+
+    /**
+     * Returns the symbols of the problem.
+     *
+     * @return the SymbolTable.
+     */
+    SymbolTable getSymbols();
+
+    /**
+     * Executes a single input.
+     *
+     * @param input the index of the input.
+     *
+     * @return the index of the output.
+     */
+    int step(int input);
+
+    @Override
+    default String step(String input) {
+        return getSymbols().symbol(step(getSymbols().inputIndex(input)));
+    }
+
+    @Override
+    default IndexedSUL fork() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,75 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import de.learnlib.api.oracle.SymbolQueryOracle;
+import de.learnlib.api.query.Query;
+import net.automatalib.words.Word;
+import net.automatalib.words.WordBuilder;
+
+/**
+ * A membership oracle that answers queries on an {@link IndexedSUL}; the inputs of a query are translated to input
+ * indices once, and the outputs are the canonical symbols of the {@link SymbolTable}.
+ *
+ * As with LearnLib's SULSymbolQueryOracle, a symbol query starts a query on the SUL, which is finished by
+ * {@link #reset()} or by the next batch. Unlike SULOracle, the SUL is not forked per thread, hence an IndexedSULOracle
+ * must be used by one thread at a time.
+ *
+ * @author Jeroen Meijer
+ */
+public class IndexedSULOracle implements SymbolQueryOracle<String, String> {
+
+    private final IndexedSUL sul;
+
+    private final SymbolTable symbols;
+
+    /**
+     * Whether a symbol query started a query on the SUL.
+     */
+    private boolean started;
+
+    public IndexedSULOracle(IndexedSUL sul) {
+        this.sul = sul;
+        this.symbols = sul.getSymbols();
+    }
+
+    @Override
+    public String query(String i) {
+        if (!started) {
+            sul.pre();
+            started = true;
+        }
+
+        return symbols.symbol(sul.step(symbols.inputIndex(i)));
+    }
+
+    @Override
+    public void reset() {
+        if (started) {
+            started = false;
+            sul.post();
+        }
+    }
+
+    @Override
+    public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+        reset();
+        for (Query<String, Word<String>> query : queries) query.answer(answer(query.getPrefix(), query.getSuffix()));
+    }
+
+    private Word<String> answer(Word<String> prefix, Word<String> suffix) {
+        sul.pre();
+        try {
+            for (int i = 0; i < prefix.length(); i++) sul.step(symbols.inputIndex(prefix.getSymbol(i)));
+
+            final WordBuilder<String> output = new WordBuilder<>(suffix.length());
+            for (int i = 0; i < suffix.length(); i++) {
+                output.append(symbols.symbol(sul.step(symbols.inputIndex(suffix.getSymbol(i)))));
+            }
+
+            return output.toWord();
+        } finally {
+            sul.post();
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package nl.utwente.fmt.rers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.automata.transout.impl.compact.CompactMealy;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.Lasso.MealyLasso;
+import net.automatalib.modelchecking.ModelCheckerLasso;
+import net.automatalib.modelchecking.lasso.MealyLassoImpl;
+import net.automatalib.words.Alphabet;
+import net.automatalib.words.impl.Alphabets;
+import nl.utwente.fmt.rers.ltl.BuchiAutomaton;
+import nl.utwente.fmt.rers.ltl.BuchiTranslator;
+import nl.utwente.fmt.rers.ltl.Constraints;
+import nl.utwente.fmt.rers.ltl.Formula;
+import nl.utwente.fmt.rers.ltl.SCCs;
+
+/**
+ * A MealyModelCheckerLasso that finds lassos violating LTL formulae in-process, instead of through LTSmin.
+ *
+ * Every formula is negated and translated once to a generalized Büchi automaton. The product of the hypothesis and
+ * that automaton is explored explicitly, and its strongly connected components are searched for one that is
+ * reachable and visits every acceptance set; from such a component a lasso is constructed. Formulae and edge semantics
+ * are the same as for the {@link MonitorModelChecker}.
+ *
+ * The number of unfolds of a lasso is computed like LTSmin does: the size of the hypothesis times the multiplier, but
+ * at least the minimum number of unfolds.
+ *
+ * @author Jeroen Meijer
+ */
+public class LassoModelChecker implements ModelCheckerLasso.MealyModelCheckerLasso<String, String, String>,
+                                          IncrementalSearch<MealyLasso<String, String>> {
+
+    /**
+     * The automata of the negated formulae, shared by all LassoModelCheckers.
+     */
+    private static final Map<String, BuchiAutomaton> AUTOMATA = new ConcurrentHashMap<>();
+
+    private final boolean alternate;
+
+    private final Set<String> skipOutputs;
+
+    @Getter
+    private double multiplier;
+
+    @Getter
+    private int minimumUnfolds;
+
+    /**
+     * Constructs a new LassoModelChecker.
+     *
+     * @param alternate whether to use alternating edge semantics.
+     * @param skipOutputs the outputs of transitions that are not explored (e.g. {@link ProblemSUL#DEADLOCK}).
+     * @param minimumUnfolds the minimum number of unfolds of a lasso.
+     * @param multiplier the multiplier for the number of unfolds of a lasso.
+     */
+    public LassoModelChecker(boolean alternate,
+                             Collection<String> skipOutputs,
+                             int minimumUnfolds,
+                             double multiplier) {
+        this.alternate = alternate;
+        this.skipOutputs = new HashSet<>(skipOutputs);
+        setMinimumUnfolds(minimumUnfolds);
+        setMultiplier(multiplier);
+    }
+
+    @Override
+    public void setMultiplier(double multiplier) throws IllegalArgumentException {
+        if (multiplier < 0.0) throw new IllegalArgumentException("multiplier must be >= 0.0");
+        this.multiplier = multiplier;
+    }
+
+    @Override
+    public void setMinimumUnfolds(int minimumUnfolds) throws IllegalArgumentException {
+        if (minimumUnfolds < 1) throw new IllegalArgumentException("minimum unfolds must be > 0");
+        this.minimumUnfolds = minimumUnfolds;
+    }
+
+    /**
+     * Returns the number of times a lasso is unfolded, for a hypothesis of the given size.
+     *
+     * @param size the number of states of the hypothesis.
+     *
+     * @return the number of unfolds.
+     */
+    public int computeUnfolds(int size) {
+        return Math.max(minimumUnfolds, (int) Math.ceil(size * multiplier));
+    }
+
+    /**
+     * Returns the automaton of the negation of the given formula, translating it if necessary.
+     */
+    private static BuchiAutomaton getAutomaton(String property) throws ModelCheckingException {
+        try {
+            return AUTOMATA.computeIfAbsent(property,
+                                            p -> BuchiTranslator.translate(Formula.not(Constraints.compile(p))));
+        } catch (IllegalArgumentException iae) {
+            throw new ModelCheckingException(iae);
+        }
+    }
+
+    @Nullable
+    @Override
+    public MealyLasso<String, String> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                         Collection<? extends String> inputs,
+                                                         String property) throws ModelCheckingException {
+        return findCounterExample(hypothesis, inputs, property, ProductReuse.NONE);
+    }
+
+    @Nullable
+    @Override
+    public MealyLasso<String, String> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                         Collection<? extends String> inputs,
+                                                         String property,
+                                                         ProductReuse reuse) throws ModelCheckingException {
+        final CompactMealy<String, String> lasso = find(hypothesis, inputs, getAutomaton(property), reuse);
+
+        return lasso == null ? null : new MealyLassoImpl<>(lasso, inputs, computeUnfolds(hypothesis.size()));
+    }
+
+    private <S, T> CompactMealy<String, String> find(MealyMachine<S, String, T, String> hypothesis,
+                                                     Collection<? extends String> inputs,
+                                                     BuchiAutomaton automaton,
+                                                     ProductReuse reuse) {
+        final S init = hypothesis.getInitialState();
+        if (init == null) return null;
+
+        final Product<S> product = new Product<>(automaton);
+        product.explore(init, (state, edges) -> {
+            // an SCC containing a product state explored for a previous hypothesis, from which nothing changed, only
+            // contains such states, and is not accepting
+            reuse.explored(state.state, state.buchi);
+            if (reuse.isExplored(state.state, state.buchi)) return;
+
+            for (String input : inputs) {
+                final T transition = hypothesis.getTransition(state.state, input);
+                if (transition == null) continue;
+                final String output = hypothesis.getTransitionOutput(transition);
+                if (skipOutputs.contains(output)) continue;
+                final S successor = hypothesis.getSuccessor(transition);
+
+                if (alternate) {
+                    for (int b : product.successors(state.buchi, input, null)) {
+                        for (int c : product.successors(b, output, null)) {
+                            final long acceptance = automaton.getAcceptance()[b] | automaton.getAcceptance()[c];
+                            edges.add(new Edge(product.index(successor, c), input, output, acceptance));
+                        }
+                    }
+                } else {
+                    for (int b : product.successors(state.buchi, input, output)) {
+                        edges.add(new Edge(product.index(successor, b), input, output, automaton.getAcceptance()[b]));
+                    }
+                }
+            }
+        });
+
+        return product.findLasso(inputs);
+    }
+
+    /**
+     * A transition of the product.
+     */
+    private static final class Edge {
+
+        final int target;
+
+        final String input;
+
+        final String output;
+
+        final long acceptance;
+
+        Edge(int target, String input, String output, long acceptance) {
+            this.target = target;
+            this.input = input;
+            this.output = output;
+            this.acceptance = acceptance;
+        }
+    }
+
+    private static final class State<S> {
+
+        final S state;
+
+        /**
+         * The state of the automaton, or its size for the state before the first letter.
+         */
+        final int buchi;
+
+        State(S state, int buchi) {
+            this.state = state;
+            this.buchi = buchi;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof State)) return false;
+            final State<?> that = (State<?>) o;
+            return buchi == that.buchi && Objects.equals(state, that.state);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(state) * 31 + buchi;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Expander<S> {
+
+        void expand(State<S> state, List<Edge> edges);
+    }
+
+    /**
+     * The explicitly explored product of a hypothesis, and an automaton.
+     */
+    private static final class Product<S> {
+
+        final BuchiAutomaton automaton;
+
+        final BitSet live;
+
+        final Map<State<S>, Integer> indices = new HashMap<>();
+
+        final List<State<S>> states = new ArrayList<>();
+
+        final List<List<Edge>> edges = new ArrayList<>();
+
+        /**
+         * For every product state the edge through which it was first reached ({@code null} for the initial state).
+         */
+        final List<Edge> parentEdges = new ArrayList<>();
+
+        /**
+         * For every product state the state from which it was first reached (-1 for the initial state).
+         */
+        final List<Integer> parents = new ArrayList<>();
+
+        final String[] letter = new String[2];
+
+        Product(BuchiAutomaton automaton) {
+            this.automaton = automaton;
+            this.live = automaton.getLiveStates();
+        }
+
+        int index(S state, int buchi) {
+            final State<S> s = new State<>(state, buchi);
+            final Integer index = indices.get(s);
+            if (index != null) return index;
+
+            final int result = states.size();
+            indices.put(s, result);
+            states.add(s);
+            edges.add(null);
+            parentEdges.add(null);
+            parents.add(-1);
+            return result;
+        }
+
+        /**
+         * Returns the live states of the automaton that can be entered from the given state, by reading the letter
+         * with the given slots.
+         */
+        List<Integer> successors(int buchi, String slot0, String slot1) {
+            final int[] candidates =
+                    buchi == automaton.getSize() ? automaton.getInitialStates() : automaton.getSuccessors()[buchi];
+            letter[0] = slot0;
+            letter[1] = slot1;
+            final List<Integer> result = new ArrayList<>();
+            for (int c : candidates) if (live.get(c) && automaton.matches(c, letter)) result.add(c);
+
+            return result;
+        }
+
+        void explore(S init, Expander<S> expander) {
+            final Queue<Integer> queue = new ArrayDeque<>();
+            final BitSet discovered = new BitSet();
+            queue.add(index(init, automaton.getSize()));
+            discovered.set(0);
+            while (!queue.isEmpty()) {
+                final int source = queue.poll();
+                final List<Edge> out = new ArrayList<>();
+                expander.expand(states.get(source), out);
+                edges.set(source, out);
+                for (Edge edge : out) {
+                    if (!discovered.get(edge.target)) {
+                        discovered.set(edge.target);
+                        parents.set(edge.target, source);
+                        parentEdges.set(edge.target, edge);
+                        queue.add(edge.target);
+                    }
+                }
+            }
+        }
+
+        CompactMealy<String, String> findLasso(Collection<? extends String> inputs) {
+            final int size = states.size();
+            final int[][] successors = new int[size][];
+            for (int s = 0; s < size; s++) {
+                final List<Edge> out = edges.get(s);
+                successors[s] = new int[out.size()];
+                for (int e = 0; e < out.size(); e++) successors[s][e] = out.get(e).target;
+            }
+
+            final SCCs sccs = new SCCs(size, s -> successors[s]);
+            final int[] components = sccs.getComponents();
+
+            final long[] acceptance = new long[sccs.getCount()];
+            for (int s = 0; s < size; s++) {
+                for (Edge edge : edges.get(s)) {
+                    if (components[edge.target] == components[s]) acceptance[components[s]] |= edge.acceptance;
+                }
+            }
+
+            // states are numbered in breadth-first order, so the first state found has the shortest prefix
+            final long all = automaton.getAllAcceptanceSets();
+            for (int s = 0; s < size; s++) {
+                final int component = components[s];
+                if (sccs.getNontrivial()[component] && (acceptance[component] & all) == all) {
+                    return toMealy(s, component, components, inputs);
+                }
+            }
+
+            return null;
+        }
+
+        private CompactMealy<String, String> toMealy(int entry,
+                                                     int component,
+                                                     int[] components,
+                                                     Collection<? extends String> inputs) {
+            final List<Edge> prefix = new ArrayList<>();
+            for (int s = entry; parents.get(s) != -1; s = parents.get(s)) prefix.add(parentEdges.get(s));
+            Collections.reverse(prefix);
+
+            // visit every acceptance set, and return to the entry state
+            final List<Edge> loop = new ArrayList<>();
+            long needed = automaton.getAllAcceptanceSets();
+            int current = entry;
+            while (needed != 0) {
+                final long n = needed;
+                final List<Edge> path = path(current, component, components, e -> (e.acceptance & n) != 0);
+                for (Edge edge : path) needed &= ~edge.acceptance;
+                loop.addAll(path);
+                current = path.get(path.size() - 1).target;
+            }
+            if (current != entry || loop.isEmpty()) {
+                loop.addAll(path(current, component, components, e -> e.target == entry));
+            }
+
+            final Alphabet<String> alphabet = Alphabets.fromCollection(new ArrayList<>(inputs));
+            final CompactMealy<String, String> result = new CompactMealy<>(alphabet);
+            int state = result.addInitialState();
+            for (Edge edge : prefix) {
+                final int successor = result.addState();
+                result.addTransition(state, edge.input, successor, edge.output);
+                state = successor;
+            }
+            final int loopStart = state;
+            for (int i = 0; i < loop.size(); i++) {
+                final Edge edge = loop.get(i);
+                final int successor = i == loop.size() - 1 ? loopStart : result.addState();
+                result.addTransition(state, edge.input, successor, edge.output);
+                state = successor;
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns a shortest non-empty path within the given component, whose last edge satisfies the predicate.
+         */
+        private List<Edge> path(int from, int component, int[] components, Predicate<Edge> predicate) {
+            final Map<Integer, Edge> via = new HashMap<>();
+            final Map<Integer, Integer> previous = new HashMap<>();
+            final Queue<Integer> queue = new ArrayDeque<>();
+            queue.add(from);
+            final Set<Integer> visited = new HashSet<>();
+            visited.add(from);
+
+            while (!queue.isEmpty()) {
+                final int s = queue.poll();
+                for (Edge edge : edges.get(s)) {
+                    if (components[edge.target] != component) continue;
+                    if (predicate.test(edge)) {
+                        final List<Edge> result = new ArrayList<>();
+                        result.add(edge);
+                        for (int t = s; t != from; t = previous.get(t)) result.add(via.get(t));
+                        Collections.reverse(result);
+                        return result;
+                    }
+                    if (visited.add(edge.target)) {
+                        via.put(edge.target, edge);
+                        previous.put(edge.target, s);
+                        queue.add(edge.target);
+                    }
+                }
+            }
+
+            throw new IllegalStateException("component is not strongly connected");
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package nl.utwente.fmt.rers;
 
-import java.io.FileNotFoundException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
 
@@ -21,98 +23,51 @@ public class Main {
 
     public static final LearnLogger LOGGER = LearnLogger.getLogger(Main.class);
 
-    public static void main(String[] args) throws ParseException, FileNotFoundException {
+    /**
+     * The number of seconds to wait for pending trace minimizations of the {@link ErrorIndex} at the end of a run.
+     */
+    public static final long ERROR_MINIMIZATION_TIMEOUT = 30;
+
+    public static void main(String[] args) throws ParseException, IOException {
         final CommandLineParser parser = new DefaultParser();
         final CommandLine line = parser.parse(getOptions(), args);
 
         final String[] lineArgs = line.getArgs();
 
         final int exit;
-        if (lineArgs.length == 2) {
-            if (line.hasOption('h')) {
-                printUsage();
-                exit = 0;
+        if (line.hasOption('h')) {
+            printUsage();
+            exit = 0;
+        } else if (line.hasOption('b')) {
+            if (line.hasOption('s')) LTSminUtil.setCheckVersion(false);
+
+            try (ResultSink resultSink = ResultSink.open(line.hasOption('o') ? new File(line.getOptionValue('o')) : null,
+                                                         line.getOptionValue("output-format", ResultSink.CSV),
+                                                         true)) {
+                final BatchRunner batchRunner =
+                        new BatchRunner(BatchRunner.parseMatrix(Paths.get(line.getOptionValue('b'))),
+                                        args,
+                                        Integer.parseInt(line.getOptionValue("batch-parallelism", "1")),
+                                        line.hasOption("batch-share-cache"),
+                                        resultSink);
+                exit = batchRunner.run() ? 0 : 1;
             }
-            else {
-
-                final int problem = Integer.parseInt(lineArgs[0]);
-                final double multiplier = Double.parseDouble(line.getOptionValue('m', "1.0"));
-                LOGGER.info("multiplier is: " + multiplier);
-
-                final int minimumUnfolds = Integer.parseInt(line.getOptionValue('u', "3"));
-                LOGGER.info("minimum unfolds is : " + minimumUnfolds);
-
-                final boolean disproveFirst = line.hasOption('D');
-
-                final boolean cexFirst = line.hasOption('C');
-
-                final boolean randomWords = !line.hasOption('r');
-
-                final boolean alternate = !line.hasOption('a');
-
-                final boolean monitor = line.hasOption('M');
-
-                final boolean cache = line.hasOption('c');
-
-                final boolean buchi = line.hasOption('B');
-
-                if (cexFirst && disproveFirst) {
-                    exit = 1;
-                    System.out.printf("--cex-first and --disprove-first are mutually exclusive%n");
-                    printUsage();
-                } else if (!monitor && !buchi) {
-                    exit = 1;
-                    System.out.printf("You have to supply at least one of --buchi and --monitor%n");
-                    printUsage();
-                } else {
-                    if (line.hasOption('s')) LTSminUtil.setCheckVersion(false);
-
-                    int timeout = Integer.parseInt(line.getOptionValue('t', "-1"));
-
-                    final RERSExperiment experiment = RERSExperiment.newExperiment(problem,
-                                                                                   multiplier,
-                                                                                   minimumUnfolds,
-                                                                                   disproveFirst,
-                                                                                   cexFirst,
-                                                                                   LEARNER.valueOf(lineArgs[1]),
-                                                                                   randomWords,
-                                                                                   alternate,
-                                                                                   monitor,
-                                                                                   cache,
-                                                                                   buchi,
-                                                                                   timeout);
-                    System.out.println(
-                            "problem," +
-                            "learner," +
-                            "aut," +
-                            "bbo," +
-                            "property," +
-                            "size," +
-                            "realsymbols," +
-                            "learnsymbols," +
-                            "eqsymbols," +
-                            "emsymbols," +
-                            "emosymbols," +
-                            "insymbols," +
-                            "realqueries," +
-                            "learnqueries," +
-                            "eqqueries," +
-                            "emqueries," +
-                            "emoqueries," +
-                            "inqueries," +
-                            "length");
-
-                    experiment.run();
-                    LOGGER.info("final states: " + experiment.getFinalHypothesis().getStates().size());
-
-                    experiment.getPropertyOracles().stream().filter(p -> !p.isDisproved())
-                              .forEach(p -> p.disprove(experiment.getFinalHypothesis(), experiment.getInputs()));
-
-                    LOGGER.info("Final learning queries: " + RERSExperiment.getLearnQueryCounterSUL().getStatisticalData().getCount());
-
-                    LOGGER.info("Properties disproved: " + experiment.getPropertyOracles().stream().filter(p -> p.isDisproved()).count());
-                    exit = 0;
+        } else if (lineArgs.length == 2) {
+            final ExperimentOptions options = parseOptions(line);
+
+            final String error = validate(options);
+            if (error != null) {
+                exit = 1;
+                System.out.println(error);
+                printUsage();
+            } else {
+                if (line.hasOption('s')) LTSminUtil.setCheckVersion(false);
+
+                try (ResultSink resultSink = ResultSink.open(options.getOutput(), options.getOutputFormat(), false)) {
+                    options.setResultSink(resultSink);
+                    runExperiment(options);
                 }
+                exit = 0;
             }
         } else {
             printUsage();
@@ -122,6 +77,186 @@ public class Main {
         if (exit != 0) System.exit(exit);
     }
 
+    /**
+     * Checks whether the given options are consistent.
+     *
+     * @param options the options.
+     *
+     * @return a description of the problem, or {@code null} if the options are consistent.
+     */
+    static String validate(ExperimentOptions options) {
+        if (options.isCexFirst() && options.isDisproveFirst()) {
+            return "--cex-first and --disprove-first are mutually exclusive";
+        } else if (!options.isMonitor() && !options.isBuchi()) {
+            return "You have to supply at least one of --buchi and --monitor";
+        } else if (options.isSnapshot() && options.isCompiled()) {
+            return "--snapshot and --compiled are mutually exclusive";
+        } else if (options.isForkedLasso() && (options.getPropertyThreads() < 2 || options.isMonitor())) {
+            return "--forked-lasso requires more than one property thread (-P), and no --monitor";
+        }
+
+        return null;
+    }
+
+    /**
+     * Runs a single experiment, and checks the properties that are not disproved on the final hypothesis.
+     *
+     * @param options the (valid) options of the experiment.
+     *
+     * @return the experiment, which is closed.
+     *
+     * @throws IOException when the experiment can not be constructed, or the errors can not be written.
+     */
+    static RERSExperiment runExperiment(ExperimentOptions options) throws IOException {
+        final RERSExperiment experiment = RERSExperiment.newExperiment(options);
+        MetricsSampler metricsSampler = null;
+        try {
+            if (options.getMetrics() != null) {
+                metricsSampler = new MetricsSampler(experiment.getMetrics(),
+                                                    options.getMetrics().toPath(),
+                                                    options.getTag() != null ? options.getTag() :
+                                                            "problem-" + options.getProblem() + "-" + options.getLearner(),
+                                                    options.getMetricsInterval());
+            }
+
+            experiment.run();
+            LOGGER.info("final states: " + experiment.getFinalHypothesis().getStates().size());
+
+            // the results until the timeout are written, even if checking the final hypothesis does not complete.
+            options.getResultSink().flush();
+
+            // the properties are still checked on the final hypothesis, when learning timed out.
+            experiment.getDeadline().disarm();
+
+            if (experiment.getPropertyScheduler() != null) {
+                experiment.getPropertyScheduler().check(experiment.getFinalHypothesis(), experiment.getInputs());
+            }
+
+            experiment.getPropertyOracles().stream().filter(p -> !p.isDisproved())
+                      .forEach(p -> p.disprove(experiment.getFinalHypothesis(), experiment.getInputs()));
+
+            final ExperimentMetrics metrics = experiment.getMetrics();
+            LOGGER.info("Final learning queries: " + metrics.get(ExperimentMetrics.Category.LEARN).getUsefulQueries());
+
+            LOGGER.info("Final real queries: " + metrics.get(ExperimentMetrics.Category.REAL).getUsefulQueries());
+            LOGGER.info("Final real symbols: " + metrics.get(ExperimentMetrics.Category.REAL).getUsefulSymbols());
+            LOGGER.info("Discarded real queries: " + metrics.get(ExperimentMetrics.Category.REAL).getDiscardedQueries());
+            LOGGER.info("Discarded real symbols: " + metrics.get(ExperimentMetrics.Category.REAL).getDiscardedSymbols());
+            for (QueryCacheSUL queryCacheSUL : experiment.getQueryCacheSULs()) {
+                LOGGER.info(String.format("Query cache hit ratio (%s): %.4f (%d hits, of which %d replayed, %d misses)",
+                                          queryCacheSUL.getName(),
+                                          queryCacheSUL.getHitRatio(),
+                                          queryCacheSUL.getHits(),
+                                          queryCacheSUL.getReplayed(),
+                                          queryCacheSUL.getMisses()));
+            }
+            if (experiment.getSnapshotProblemSUL() != null) {
+                LOGGER.info("Real symbols executed: " + experiment.getSnapshotProblemSUL().getExecutedSymbols());
+                LOGGER.info("Real symbols saved by snapshots: " + experiment.getSnapshotProblemSUL().getSavedSymbols());
+            }
+            if (experiment.getCompiledProblemSUL() != null) {
+                final CompiledProblemSUL compiledProblemSUL = experiment.getCompiledProblemSUL();
+                LOGGER.info("Compiled problem states: " + compiledProblemSUL.getTable().size());
+                LOGGER.info("Real symbols executed: " + compiledProblemSUL.getMisses());
+                LOGGER.info("Real symbols answered by the compiled problem: " + compiledProblemSUL.getHits());
+            }
+            if (experiment.getSinkTrie() != null) {
+                LOGGER.info("Sink states: " + experiment.getSinkTrie().getSinkStates());
+                LOGGER.info("Real symbols saved by sink detection: " + experiment.getSinkTrie().getSavedSymbols());
+                LOGGER.info("Symbols executed to detect sinks: " + experiment.getSinkTrie().getProbedSymbols());
+            }
+
+            LOGGER.info("Properties disproved: " + experiment.getPropertyOracles().stream().filter(p -> p.isDisproved()).count());
+
+            options.getResultSink().flush();
+
+            if (experiment.getErrorIndex() != null) {
+                experiment.getErrorIndex().close(ERROR_MINIMIZATION_TIMEOUT);
+                LOGGER.info("Errors reached: " + experiment.getErrorIndex().getEntries().size());
+                experiment.getErrorIndex().writeCSV(Paths.get(options.getErrors() + ".csv"));
+                experiment.getErrorIndex().writeJSON(Paths.get(options.getErrors() + ".json"));
+            }
+        } finally {
+            // the sampler also takes a final sample of a failed experiment.
+            try {
+                if (metricsSampler != null) metricsSampler.close();
+            } finally {
+                experiment.close();
+            }
+        }
+
+        return experiment;
+    }
+
+    /**
+     * Parses the options of an experiment from the command line.
+     *
+     * @param line the command line, with the problem number and learner as arguments.
+     *
+     * @return the ExperimentOptions.
+     */
+    static ExperimentOptions parseOptions(CommandLine line) {
+        final String[] lineArgs = line.getArgs();
+        final ExperimentOptions options = new ExperimentOptions();
+
+        options.setProblem(Integer.parseInt(lineArgs[0]));
+        options.setLearner(LEARNER.valueOf(lineArgs[1]));
+
+        options.setMultiplier(Double.parseDouble(line.getOptionValue('m', "1.0")));
+        LOGGER.info("multiplier is: " + options.getMultiplier());
+
+        options.setMinimumUnfolds(Integer.parseInt(line.getOptionValue('u', "3")));
+        LOGGER.info("minimum unfolds is : " + options.getMinimumUnfolds());
+
+        options.setDisproveFirst(line.hasOption('D'));
+        options.setCexFirst(line.hasOption('C'));
+        options.setRandomWords(!line.hasOption('r'));
+        options.setAdaptiveEQ(line.hasOption('A'));
+        options.setAlternate(!line.hasOption('a'));
+        options.setMonitor(line.hasOption('M'));
+        options.setJavaMonitor(line.hasOption('J'));
+        options.setCache(line.hasOption('c'));
+        options.setIncremental(line.hasOption('I'));
+        options.setQueryCache(line.hasOption('Q'));
+        options.setSnapshot(line.hasOption('S'));
+        options.setCompiled(line.hasOption('X') || line.hasOption("verify-compiled"));
+        options.setVerifyCompiled(line.hasOption("verify-compiled"));
+        options.setSinkDetection(line.hasOption('d'));
+        options.setBatchQueries(line.hasOption("batch-queries"));
+        options.setBuchi(line.hasOption('B'));
+        options.setJavaBuchi(line.hasOption('L'));
+        options.setForkedLasso(line.hasOption("forked-lasso"));
+        options.setStateFingerprints(line.hasOption("state-fingerprints"));
+        options.setTimeout(Integer.parseInt(line.getOptionValue('t', "-1")));
+
+        options.setThreads(Integer.parseInt(line.getOptionValue('T', "1")));
+        LOGGER.info("membership query threads: " + options.getThreads());
+        options.setEqBatches(line.hasOption("eq-batches"));
+
+        options.setPropertyThreads(Integer.parseInt(line.getOptionValue('P', "1")));
+        LOGGER.info("model checker threads: " + options.getPropertyThreads());
+
+        if (line.hasOption('F')) options.setResultStore(new File(line.getOptionValue('F')));
+
+        options.setErrors(line.getOptionValue('E'));
+
+        if (line.hasOption('o')) options.setOutput(new File(line.getOptionValue('o')));
+        options.setOutputFormat(line.getOptionValue("output-format", ResultSink.CSV));
+
+        if (line.hasOption("metrics")) options.setMetrics(new File(line.getOptionValue("metrics")));
+        options.setMetricsInterval(Integer.parseInt(line.getOptionValue("metrics-interval", "10")));
+
+        if (line.hasOption('K')) options.setCheckpoint(new File(line.getOptionValue('K')));
+
+        // a resumed run restores the query cache of the checkpoint
+        if (line.hasOption('R')) {
+            options.setResume(new File(line.getOptionValue('R')));
+            options.setQueryCache(true);
+        }
+
+        return options;
+    }
+
     static void printUsage() {
         final HelpFormatter formatter = new HelpFormatter();
         formatter.printHelp("java " + Main.class.getCanonicalName() + " [problem number] [learner]",
@@ -141,11 +276,37 @@ public class Main {
         options.addOption("D", "disprove-first", false, "use disprove first black-box oracle");
         options.addOption("C", "cex-first", false, "use counter example first black-box oracle");
         options.addOption("r", "no-random-words", false, "do not use an additional random words equivalence oracle");
+        options.addOption("A", "adaptive-eq", false, "try property-guided search, Wp (depths 1-3) and random words in the order of their yield, doubling the budget of Wp and random words per round");
         options.addOption("a", "no-alternate", false, "do not use alternating edge semantics");
         options.addOption("M", "monitor", false, "create a Monitor");
+        options.addOption("J", "java-monitor", false, "check monitors in-process instead of with LTSmin");
         options.addOption("B", "buchi", false, "create a Büchi automaton");
+        options.addOption("L", "java-buchi", false, "check Büchi automata in-process instead of with LTSmin");
+        options.addOption(null, "forked-lasso", false, "unroll lassos on forked problems, comparing states by value, until a state repeats or an output differs; lassos are unrolled in parallel, on the property threads (-P)");
+        options.addOption(null, "state-fingerprints", false, "detect loops in lassos by comparing state fingerprints, instead of full states");
         options.addOption("h", "help", false, "prints help");
         options.addOption("c", "cache", false, "use a model checker cache");
+        options.addOption("I", "incremental", false, "reuse model checker work of previous hypotheses");
+        options.addOption("Q", "query-cache", false, "use a query cache shared by all membership oracles");
+        options.addOption("S", "snapshot", false, "restore snapshots of the problem state instead of replaying queries");
+        options.addOption("X", "compiled", false, "answer queries from a transition table of the problem, executing only unknown steps");
+        options.addOption(null, "verify-compiled", false, "like --compiled, but also execute every step, and check it against the table");
+        options.addOption("d", "sink-detection", false, "stop executing queries that reached an absorbing deadlock");
+        options.addOption(null, "batch-queries", false, "answer batches of queries in prefix order, extending the previous query without a reset");
+        options.addOption("T", "threads", true, "number of threads answering membership queries");
+        options.addOption(null, "eq-batches", false, "let equivalence oracles ask batches of queries (per thread), which may run past the first counter example");
+        options.addOption("P", "property-threads", true, "maximum number of concurrent model checker calls");
+        options.addOption("F", "persistent-cache", true, "file on a local disk to share model checker results with other runs on the same node");
+        options.addOption("E", "errors", true, "write the errors reached to <arg>.csv and <arg>.json");
+        options.addOption("o", "output", true, "write the results to <arg> instead of stdout");
+        options.addOption(null, "output-format", true, "the format of the results: csv (default) or binary");
+        options.addOption(null, "metrics", true, "sample metrics to the time-series file <arg>, and expose them over JMX");
+        options.addOption(null, "metrics-interval", true, "seconds between two metric samples");
+        options.addOption("K", "checkpoint", true, "periodically write a checkpoint of the experiment to <arg>");
+        options.addOption("R", "resume", true, "resume the experiment from the checkpoint <arg>");
+        options.addOption("b", "batch", true, "run all experiments of the matrix in file <arg> in this JVM");
+        options.addOption(null, "batch-parallelism", true, "number of experiments of a batch to run concurrently");
+        options.addOption(null, "batch-share-cache", false, "share the query cache between experiments of a batch on the same problem");
         options.addOption("s", "ltsmin-skip-version-check", false, "skip the LTSmin version check");
 
         return options;
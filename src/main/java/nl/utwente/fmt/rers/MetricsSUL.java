@@ -0,0 +1,82 @@
+package nl.utwente.fmt.rers;
+
+import de.learnlib.api.ObservableSUL;
+
+/**
+ * A SUL that counts queries (resets) and symbols in the {@link ExperimentMetrics.Counters} of an oracle category.
+ *
+ * A query is counted in {@link #post()}, together with its symbols, such that a snapshot of the metrics never sees a
+ * query without its symbols.
+ *
+ * Forks count in the same counters, which are thread-safe; hence queries of forks answered on other threads need not
+ * be merged afterwards. The state can only be observed if the delegate is an {@link ObservableSUL}.
+ *
+ * @param <S> the state type.
+ *
+ * @author Jeroen Meijer
+ */
+public class MetricsSUL<S> implements ObservableSUL<S, String, String>, IndexedSUL {
+
+    private final ExperimentMetrics.Counters counters;
+
+    private final IndexedSUL delegate;
+
+    /**
+     * The number of symbols of the current query.
+     */
+    private long length;
+
+    public MetricsSUL(ExperimentMetrics.Counters counters, IndexedSUL delegate) {
+        this.counters = counters;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void pre() {
+        length = 0;
+        delegate.pre();
+    }
+
+    @Override
+    public void post() {
+        try {
+            delegate.post();
+        } finally {
+            counters.add(1, length);
+        }
+    }
+
+    @Override
+    public SymbolTable getSymbols() {
+        return delegate.getSymbols();
+    }
+
+    @Override
+    public int step(int input) {
+        length++;
+        return delegate.step(input);
+    }
+
+    @Override
+    public boolean canFork() {
+        return delegate.canFork();
+    }
+
+    @Override
+    public MetricsSUL<S> fork() {
+        return new MetricsSUL<>(counters, delegate.fork());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public S getState() {
+        if (!(delegate instanceof ObservableSUL)) throw new UnsupportedOperationException("state is not observable");
+
+        return ((ObservableSUL<S, String, String>) delegate).getState();
+    }
+
+    @Override
+    public boolean deepCopies() {
+        return delegate instanceof ObservableSUL && ((ObservableSUL<?, ?, ?>) delegate).deepCopies();
+    }
+}
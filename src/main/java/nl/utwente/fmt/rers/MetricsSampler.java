@@ -0,0 +1,243 @@
+package nl.utwente.fmt.rers;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.learnlib.api.logging.LearnLogger;
+
+/**
+ * Samples the {@link ExperimentMetrics} of an experiment at a fixed interval, such that stalls in long runs can be
+ * spotted without parsing logs.
+ *
+ * Every sample is appended to a time-series CSV file in long format, with the columns {@code seconds,metric,key,value};
+ * the key is the oracle category or the formula. The last sample is also exposed over JMX (e.g. with jconsole), under
+ * the name {@code nl.utwente.fmt.rers:type=MetricsSampler,name=<name>}.
+ *
+ * @author Jeroen Meijer
+ */
+public class MetricsSampler implements MetricsSamplerMXBean, Closeable {
+
+    public static final LearnLogger LOGGER = LearnLogger.getLogger(MetricsSampler.class);
+
+    /**
+     * The number of seconds to wait for a sample that is being taken, when closing.
+     */
+    private static final int CLOSE_TIMEOUT = 10;
+
+    private final ExperimentMetrics metrics;
+
+    private final BufferedWriter writer;
+
+    private final ScheduledExecutorService executor;
+
+    private final ObjectName objectName;
+
+    private final long start = System.nanoTime();
+
+    /**
+     * The time and counts of the previous sample, for the rates.
+     */
+    private long previousNanos = start;
+
+    private final Map<ExperimentMetrics.Category, long[]> previous = new EnumMap<>(ExperimentMetrics.Category.class);
+
+    private volatile Map<String, Double> queriesPerSecond = new LinkedHashMap<>();
+
+    private volatile Map<String, Double> symbolsPerSecond = new LinkedHashMap<>();
+
+    /**
+     * Constructs a new MetricsSampler and starts sampling.
+     *
+     * @param metrics the metrics to sample.
+     * @param path the time-series file.
+     * @param name the name of the experiment, for JMX.
+     * @param seconds the sample interval.
+     *
+     * @throws IOException when the time-series file can not be created.
+     */
+    public MetricsSampler(ExperimentMetrics metrics, Path path, String name, int seconds) throws IOException {
+        this.metrics = metrics;
+        this.writer = Files.newBufferedWriter(path);
+        writer.write("seconds,metric,key,value");
+        writer.newLine();
+
+        for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+            previous.put(category, new long[2]);
+        }
+
+        ObjectName objectName = null;
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = ObjectName.getInstance("nl.utwente.fmt.rers:type=MetricsSampler,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+        } catch (JMException jme) {
+            LOGGER.warn("can not register metrics with JMX: " + jme.getMessage());
+            objectName = null;
+        }
+        this.objectName = objectName;
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::sample, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Takes a sample, and appends it to the time-series file.
+     */
+    private synchronized void sample() {
+        final long now = System.nanoTime();
+        final double seconds = (now - start) / 1e9;
+        final double interval = Math.max(now - previousNanos, 1) / 1e9;
+        previousNanos = now;
+
+        final Map<String, Double> queriesPerSecond = new LinkedHashMap<>();
+        final Map<String, Double> symbolsPerSecond = new LinkedHashMap<>();
+
+        try {
+            write(seconds, "hypothesis_size", "", metrics.getHypothesisSize());
+
+            for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+                final ExperimentMetrics.Counters counters = metrics.get(category);
+                final long queries = counters.getQueries();
+                final long symbols = counters.getSymbols();
+                final long[] last = previous.get(category);
+                queriesPerSecond.put(category.getName(), (queries - last[0]) / interval);
+                symbolsPerSecond.put(category.getName(), (symbols - last[1]) / interval);
+                last[0] = queries;
+                last[1] = symbols;
+
+                write(seconds, "queries", category.getName(), queries);
+                write(seconds, "symbols", category.getName(), symbols);
+                write(seconds, "discarded_queries", category.getName(), counters.getDiscardedQueries());
+                write(seconds, "discarded_symbols", category.getName(), counters.getDiscardedSymbols());
+                write(seconds, "queries_per_second", category.getName(), queriesPerSecond.get(category.getName()));
+                write(seconds, "symbols_per_second", category.getName(), symbolsPerSecond.get(category.getName()));
+            }
+
+            for (Map.Entry<String, ExperimentMetrics.ModelCheckerCounters> e : metrics.getModelCheckerCounters().entrySet()) {
+                write(seconds, "mc_calls", e.getKey(), e.getValue().getCalls());
+                write(seconds, "mc_millis", e.getKey(), e.getValue().getNanos() / 1e6);
+            }
+
+            writer.flush();
+        } catch (IOException ioe) {
+            LOGGER.warn("can not write metrics: " + ioe.getMessage());
+        }
+
+        this.queriesPerSecond = queriesPerSecond;
+        this.symbolsPerSecond = symbolsPerSecond;
+    }
+
+    private void write(double seconds, String metric, String key, Number value) throws IOException {
+        writer.write(String.format(Locale.ROOT, "%.3f,%s,\"%s\",%s", seconds, metric, key.replace("\"", "\"\""), value));
+        writer.newLine();
+    }
+
+    /**
+     * Stops sampling, takes a final sample, and unregisters from JMX. A sample that is being taken is finished first,
+     * rather than interrupted halfway a line of the time-series file.
+     *
+     * @throws IOException when the time-series file can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                LOGGER.warn("metrics sampler did not stop within " + CLOSE_TIMEOUT + " seconds");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        sample();
+
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException jme) {
+                LOGGER.warn("can not unregister metrics from JMX: " + jme.getMessage());
+            }
+        }
+
+        synchronized (this) {
+            writer.close();
+        }
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    @Override
+    public int getHypothesisSize() {
+        return metrics.getHypothesisSize();
+    }
+
+    @Override
+    public Map<String, Long> getQueries() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+            result.put(category.getName(), metrics.get(category).getQueries());
+        }
+
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getSymbols() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+            result.put(category.getName(), metrics.get(category).getSymbols());
+        }
+
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getQueriesPerSecond() {
+        return queriesPerSecond;
+    }
+
+    @Override
+    public Map<String, Double> getSymbolsPerSecond() {
+        return symbolsPerSecond;
+    }
+
+    @Override
+    public Map<String, Long> getModelCheckerCalls() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        metrics.getModelCheckerCounters().forEach((formula, counters) -> result.put(formula, counters.getCalls()));
+
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getModelCheckerLatency() {
+        final Map<String, Double> result = new LinkedHashMap<>();
+        metrics.getModelCheckerCounters().forEach((formula, counters) -> {
+            final long calls = counters.getCalls();
+            result.put(formula, calls == 0 ? 0.0 : counters.getNanos() / 1e6 / calls);
+        });
+
+        return result;
+    }
+}
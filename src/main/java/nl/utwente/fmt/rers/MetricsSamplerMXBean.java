@@ -0,0 +1,36 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Map;
+
+/**
+ * The JMX view of a {@link MetricsSampler}; the maps are keyed by oracle category, or by formula.
+ *
+ * @author Jeroen Meijer
+ */
+public interface MetricsSamplerMXBean {
+
+    double getElapsedSeconds();
+
+    int getHypothesisSize();
+
+    Map<String, Long> getQueries();
+
+    Map<String, Long> getSymbols();
+
+    /**
+     * Returns the number of queries per second per category, over the last sample interval.
+     */
+    Map<String, Double> getQueriesPerSecond();
+
+    /**
+     * Returns the number of symbols per second per category, over the last sample interval.
+     */
+    Map<String, Double> getSymbolsPerSecond();
+
+    Map<String, Long> getModelCheckerCalls();
+
+    /**
+     * Returns the mean duration of a model checker call per formula, in milliseconds.
+     */
+    Map<String, Double> getModelCheckerLatency();
+}
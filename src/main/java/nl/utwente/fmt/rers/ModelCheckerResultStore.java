@@ -0,0 +1,343 @@
+package nl.utwente.fmt.rers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import de.learnlib.api.logging.LearnLogger;
+import net.automatalib.automata.transout.MealyMachine;
+
+/**
+ * An on-disk set of model checker calls that did not produce a counter example, shared by all JVMs that use the same
+ * file.
+ *
+ * A call is identified by a 128-bit digest of the model checker configuration, the formula and a canonical encoding of
+ * the hypothesis (states numbered in breadth-first order, inputs in alphabet order), such that hypotheses with the same
+ * structure get the same digest, regardless of how the learner numbered its states.
+ *
+ * The file consists of an 8 byte header, followed by 16 byte records. Records are only appended under an exclusive
+ * {@link FileLock}, and read under a shared lock, so concurrent jobs on one node can safely share the file. Records
+ * written by other JVMs are read whenever a digest is not found in memory.
+ *
+ * File locks are held by the JVM, not by a thread, so a JVM must not open the file twice; the experiments of a batch
+ * share a single store per file through {@link #open(File)}, which counts its users.
+ *
+ * File locks are not reliable on network file systems (e.g. NFS), hence the file must be on a local disk; a file on a
+ * known network file system is refused. Jobs on different nodes should each use a file on their own local disk.
+ *
+ * @author Jeroen Meijer
+ */
+public class ModelCheckerResultStore implements Closeable {
+
+    public static final LearnLogger LOGGER = LearnLogger.getLogger(ModelCheckerResultStore.class);
+
+    private static final byte[] HEADER = "RERSMC01".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int RECORD_SIZE = 16;
+
+    /**
+     * The types of file stores (as reported on Linux) on which file locks can not be trusted.
+     */
+    private static final Set<String> NETWORK_FILE_SYSTEMS = new HashSet<>(Arrays.asList("nfs",
+                                                                                          "nfs4",
+                                                                                          "cifs",
+                                                                                          "smbfs",
+                                                                                          "smb2",
+                                                                                          "lustre",
+                                                                                          "gpfs",
+                                                                                          "beegfs",
+                                                                                          "ceph",
+                                                                                          "afs",
+                                                                                          "fuse.sshfs"));
+
+    /**
+     * A 128-bit digest of a model checker call.
+     */
+    static final class Key {
+
+        final long high;
+
+        final long low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return high == key.high && low == key.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high) * 31 + Long.hashCode(low);
+        }
+    }
+
+    /**
+     * The stores opened in this JVM, by canonical file.
+     */
+    private static final Map<File, ModelCheckerResultStore> OPEN = new HashMap<>();
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    /**
+     * The number of users of this store, guarded by {@link #OPEN}.
+     */
+    private int users;
+
+    private final Set<Key> keys = new HashSet<>();
+
+    /**
+     * The position in the file up to which records have been read.
+     */
+    private long position;
+
+    private long hits;
+
+    /**
+     * Returns the ModelCheckerResultStore of the given file, opening (or creating) it if it is not open in this JVM yet.
+     * Every call must be followed by a call of {@link #close()}.
+     *
+     * @param file the file.
+     *
+     * @return the store.
+     *
+     * @throws IOException when the file can not be opened, is on a network file system, or is not a result store.
+     */
+    public static ModelCheckerResultStore open(File file) throws IOException {
+        final File canonical = file.getCanonicalFile();
+        synchronized (OPEN) {
+            ModelCheckerResultStore store = OPEN.get(canonical);
+            if (store == null) {
+                store = new ModelCheckerResultStore(canonical);
+                OPEN.put(canonical, store);
+            }
+            store.users++;
+
+            return store;
+        }
+    }
+
+    private ModelCheckerResultStore(File file) throws IOException {
+        this.file = file;
+        checkLocal(file);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try (FileLock lock = channel.lock()) {
+            if (channel.size() == 0) channel.write(ByteBuffer.wrap(HEADER), 0);
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER.length);
+            channel.read(header, 0);
+            if (!ByteBuffer.wrap(HEADER).equals(header.flip())) {
+                throw new IOException(file + " is not a model checker result store");
+            }
+            position = HEADER.length;
+            readRecords();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        LOGGER.info(String.format("Loaded %d model checker results from %s", keys.size(), file));
+    }
+
+    /**
+     * Checks whether the given file is on a local disk, as far as can be determined.
+     *
+     * @throws IOException when the file is on a network file system.
+     */
+    private static void checkLocal(File file) throws IOException {
+        Path existing = file.toPath().toAbsolutePath();
+        while (existing != null && !Files.exists(existing)) existing = existing.getParent();
+        if (existing == null) return;
+
+        final String type = Files.getFileStore(existing).type().toLowerCase(Locale.ROOT);
+        if (NETWORK_FILE_SYSTEMS.contains(type)) {
+            throw new IOException(file + " is on a network file system (" + type + "), on which file locks are not " +
+                                  "reliable; use a file on a local disk");
+        }
+    }
+
+    /**
+     * Returns whether the call with the given key is known to not produce a counter example.
+     *
+     * @param key the key.
+     *
+     * @return whether the call holds.
+     */
+    public synchronized boolean contains(Key key) {
+        if (!keys.contains(key)) {
+            try (FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
+                readRecords();
+            } catch (IOException | OverlappingFileLockException e) {
+                LOGGER.info("could not read " + file + ": " + e);
+            }
+        }
+
+        final boolean result = keys.contains(key);
+        if (result) hits++;
+
+        return result;
+    }
+
+    /**
+     * Records that the call with the given key does not produce a counter example.
+     *
+     * @param key the key.
+     */
+    public synchronized void add(Key key) {
+        if (!keys.add(key)) return;
+
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putLong(key.high).putLong(key.low).flip();
+        try (FileLock lock = channel.lock()) {
+            readRecords();
+            channel.write(record, channel.size());
+        } catch (IOException | OverlappingFileLockException e) {
+            LOGGER.info("could not write " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Returns the number of calls answered from this store, for all its users in this JVM.
+     *
+     * @return the number of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Releases this store; the last user closes the file.
+     *
+     * @throws IOException when the file can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (OPEN) {
+            if (--users > 0) return;
+            OPEN.remove(file);
+        }
+
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads all complete records after {@link #position}; the caller must hold a lock on the file.
+     */
+    private void readRecords() throws IOException {
+        final long size = channel.size();
+        final long records = (size - position) / RECORD_SIZE;
+        if (records <= 0) return;
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) (records * RECORD_SIZE));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) break;
+        }
+        buffer.flip();
+
+        while (buffer.remaining() >= RECORD_SIZE) keys.add(new Key(buffer.getLong(), buffer.getLong()));
+
+        position += records * RECORD_SIZE;
+    }
+
+    /**
+     * Computes the key of a model checker call.
+     *
+     * @param configuration the model checker configuration (e.g. type, semantics and unfold parameters).
+     * @param formula the formula.
+     * @param hypothesis the hypothesis.
+     * @param inputs the alphabet.
+     *
+     * @return the key.
+     */
+    public static Key key(String configuration,
+                          String formula,
+                          MealyMachine<?, String, ?, String> hypothesis,
+                          Collection<? extends String> inputs) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        }
+
+        update(digest, configuration);
+        update(digest, formula);
+        for (String input : inputs) update(digest, input);
+        canonicalize(digest, hypothesis, inputs);
+
+        final ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+
+        return new Key(hash.getLong(), hash.getLong());
+    }
+
+    private static <S> void canonicalize(MessageDigest digest,
+                                         MealyMachine<S, String, ?, String> hypothesis,
+                                         Collection<? extends String> inputs) {
+        final Map<S, Integer> ids = new HashMap<>();
+        final Queue<S> queue = new ArrayDeque<>();
+
+        final S init = hypothesis.getInitialState();
+        if (init == null) return;
+        ids.put(init, 0);
+        queue.add(init);
+
+        final ByteBuffer id = ByteBuffer.allocate(Integer.BYTES);
+        while (!queue.isEmpty()) {
+            final S state = queue.poll();
+            for (String input : inputs) {
+                final S successor = hypothesis.getSuccessor(state, input);
+                final int successorId;
+                if (successor == null) successorId = -1;
+                else {
+                    Integer known = ids.get(successor);
+                    if (known == null) {
+                        known = ids.size();
+                        ids.put(successor, known);
+                        queue.add(successor);
+                    }
+                    successorId = known;
+                }
+
+                id.clear();
+                digest.update(id.putInt(successorId).array());
+                update(digest, successor == null ? "" : hypothesis.getOutput(state, input));
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String string) {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+}
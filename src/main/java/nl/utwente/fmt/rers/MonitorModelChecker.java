@@ -0,0 +1,260 @@
+package nl.utwente.fmt.rers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.automata.transout.impl.compact.CompactMealy;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.ModelChecker;
+import net.automatalib.words.Alphabet;
+import net.automatalib.words.impl.Alphabets;
+import nl.utwente.fmt.rers.ltl.BuchiAutomaton;
+import nl.utwente.fmt.rers.ltl.BuchiTranslator;
+import nl.utwente.fmt.rers.ltl.Constraints;
+import nl.utwente.fmt.rers.ltl.Proposition;
+
+/**
+ * A MealyModelChecker that checks safety violations of LTL formulae in-process, instead of through LTSmin.
+ *
+ * Every formula is translated once to a Büchi automaton, from which all states that can not reach an accepting cycle
+ * are removed. The hypothesis is explored breadth-first, in product with the subset construction of that automaton;
+ * when the subset becomes empty, the trace read so far is a bad prefix of the formula, and it is returned as a linear
+ * MealyMachine (like the monitor of LTSmin does).
+ *
+ * Formulae are in LTSmin syntax, and are looked up with {@link Constraints#compile(String)}. In alternating
+ * mode every transition of the hypothesis produces two letters (the input, then the output) for the variable
+ * {@code letter}; otherwise every transition produces a single letter with variables {@code input} and {@code output}.
+ *
+ * @author Jeroen Meijer
+ */
+public class MonitorModelChecker
+        implements ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>>,
+                   IncrementalSearch<MealyMachine<?, String, ?, String>> {
+
+    /**
+     * The compiled monitors, shared by all MonitorModelCheckers (they only depend on the formula).
+     */
+    private static final Map<String, Monitor> MONITORS = new ConcurrentHashMap<>();
+
+    private final boolean alternate;
+
+    private final Set<String> skipOutputs;
+
+    /**
+     * Constructs a new MonitorModelChecker.
+     *
+     * @param alternate whether to use alternating edge semantics.
+     * @param skipOutputs the outputs of transitions that are not explored (e.g. {@link ProblemSUL#DEADLOCK}).
+     */
+    public MonitorModelChecker(boolean alternate, Collection<String> skipOutputs) {
+        this.alternate = alternate;
+        this.skipOutputs = new HashSet<>(skipOutputs);
+    }
+
+    /**
+     * Returns the monitor of the given formula, compiling it if necessary.
+     *
+     * @param property the formula.
+     *
+     * @return the monitor.
+     *
+     * @throws ModelCheckingException when the formula can not be parsed.
+     */
+    static Monitor getMonitor(String property) throws ModelCheckingException {
+        try {
+            return MONITORS.computeIfAbsent(property, p -> new Monitor(BuchiTranslator.translate(Constraints.compile(p))));
+        } catch (IllegalArgumentException iae) {
+            throw new ModelCheckingException(iae);
+        }
+    }
+
+    @Nullable
+    @Override
+    public MealyMachine<?, String, ?, String> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                                 Collection<? extends String> inputs,
+                                                                 String property) throws ModelCheckingException {
+        return findCounterExample(hypothesis, inputs, property, ProductReuse.NONE);
+    }
+
+    @Nullable
+    @Override
+    public MealyMachine<?, String, ?, String> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                                 Collection<? extends String> inputs,
+                                                                 String property,
+                                                                 ProductReuse reuse) throws ModelCheckingException {
+        return find(hypothesis, inputs, getMonitor(property), reuse);
+    }
+
+    private <S, T> CompactMealy<String, String> find(MealyMachine<S, String, T, String> hypothesis,
+                                                     Collection<? extends String> inputs,
+                                                     Monitor monitor,
+                                                     ProductReuse reuse) {
+        final S init = hypothesis.getInitialState();
+        if (init == null) return null;
+
+        // the breadth-first search tree; the root has no parent
+        final Set<Node<S>> seen = new HashSet<>();
+        final Queue<Node<S>> queue = new ArrayDeque<>();
+
+        final Node<S> root = new Node<>(init, monitor.getInitial(), null, null, null);
+        seen.add(root);
+        reuse.explored(init, root.subset);
+        if (!reuse.isExplored(init, root.subset)) queue.add(root);
+
+        final String[] first = new String[2];
+        final String[] second = new String[2];
+
+        while (!queue.isEmpty()) {
+            final Node<S> node = queue.poll();
+            for (String input : inputs) {
+                final T transition = hypothesis.getTransition(node.state, input);
+                if (transition == null) continue;
+                final String output = hypothesis.getTransitionOutput(transition);
+                if (skipOutputs.contains(output)) continue;
+
+                BitSet subset;
+                if (alternate) {
+                    first[0] = input;
+                    second[0] = output;
+                    subset = monitor.step(node.subset, first);
+                    if (!subset.isEmpty()) subset = monitor.step(subset, second);
+                } else {
+                    first[0] = input;
+                    first[1] = output;
+                    subset = monitor.step(node.subset, first);
+                }
+
+                final Node<S> successor =
+                        new Node<>(hypothesis.getSuccessor(transition), subset, node, input, output);
+                if (subset.isEmpty()) return toMealy(successor, inputs);
+
+                if (seen.add(successor)) {
+                    // a product state explored for a previous hypothesis, from which nothing changed, has no bad prefix
+                    reuse.explored(successor.state, subset);
+                    if (!reuse.isExplored(successor.state, subset)) queue.add(successor);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns a linear MealyMachine accepting the trace that leads to the given node.
+     */
+    private static <S> CompactMealy<String, String> toMealy(Node<S> node, Collection<? extends String> inputs) {
+        final List<Node<S>> path = new ArrayList<>();
+        for (Node<S> n = node; n.parent != null; n = n.parent) path.add(n);
+
+        final Alphabet<String> alphabet = Alphabets.fromCollection(new ArrayList<>(inputs));
+        final CompactMealy<String, String> result = new CompactMealy<>(alphabet);
+        int state = result.addInitialState();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            final Node<S> n = path.get(i);
+            final int successor = result.addState();
+            result.addTransition(state, n.input, successor, n.output);
+            state = successor;
+        }
+
+        return result;
+    }
+
+    /**
+     * A state of the product of the hypothesis and the subset construction of a monitor.
+     */
+    private static final class Node<S> {
+
+        final S state;
+
+        final BitSet subset;
+
+        final Node<S> parent;
+
+        final String input;
+
+        final String output;
+
+        Node(S state, BitSet subset, Node<S> parent, String input, String output) {
+            this.state = state;
+            this.subset = subset;
+            this.parent = parent;
+            this.input = input;
+            this.output = output;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Node)) return false;
+            final Node<?> that = (Node<?>) o;
+            return Objects.equals(state, that.state) && subset.equals(that.subset);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(state) * 31 + subset.hashCode();
+        }
+    }
+
+    /**
+     * A Büchi automaton restricted to its live states, that is read by means of the subset construction.
+     *
+     * A subset is a set of states that have been entered; bit {@code size} denotes the (virtual) state before the first
+     * letter, whose successors are the initial states.
+     */
+    static final class Monitor {
+
+        private final BuchiAutomaton automaton;
+
+        private final BitSet live;
+
+        private final BitSet initial;
+
+        Monitor(BuchiAutomaton automaton) {
+            this.automaton = automaton;
+            this.live = automaton.getLiveStates();
+            this.initial = new BitSet(automaton.getSize() + 1);
+            initial.set(automaton.getSize());
+        }
+
+        BitSet getInitial() {
+            return initial;
+        }
+
+        BuchiAutomaton getAutomaton() {
+            return automaton;
+        }
+
+        /**
+         * Returns the live states entered by reading the given letter from the given subset.
+         *
+         * @param subset the current subset.
+         * @param letter the letter, see {@link Proposition#holds(String[])}.
+         *
+         * @return the successor subset, empty if the word read so far is a bad prefix.
+         */
+        BitSet step(BitSet subset, String[] letter) {
+            final BitSet result = new BitSet(automaton.getSize());
+            for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+                final int[] successors =
+                        s == automaton.getSize() ? automaton.getInitialStates() : automaton.getSuccessors()[s];
+                for (int t : successors) {
+                    if (!result.get(t) && live.get(t) && automaton.matches(t, letter)) result.set(t);
+                }
+            }
+
+            return result;
+        }
+    }
+}
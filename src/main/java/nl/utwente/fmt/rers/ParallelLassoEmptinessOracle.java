@@ -0,0 +1,180 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.annotation.Nullable;
+
+import de.learnlib.api.oracle.LassoEmptinessOracle;
+import de.learnlib.api.query.DefaultQuery;
+import de.learnlib.api.query.OmegaQuery;
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.modelchecking.Lasso.MealyLasso;
+import net.automatalib.words.Word;
+import net.automatalib.words.WordBuilder;
+
+/**
+ * A lasso emptiness oracle that checks lassos on a pool of forked {@link ProblemSUL}s, such that lassos of properties
+ * that are checked concurrently (see {@link PropertyScheduler}) are unrolled in parallel.
+ *
+ * This oracle does not start threads itself: every lasso is unrolled on the calling thread, on a fork that no other
+ * thread uses at the same time. A {@link PrefetchingModelCheckerLasso} calls {@link #prefetch(MealyLasso)} for every
+ * lasso it finds, on the threads of the PropertyScheduler, so the lassos of all properties that are not disproved are
+ * unrolled in parallel, right after their model checker call; the property oracles then find the result when they ask
+ * for it. Lassos that were not prefetched (e.g. when the Büchi model checker is not prefetched) are unrolled on the
+ * thread of the property oracle.
+ *
+ * A lasso is unrolled at most {@link MealyLasso#getUnfolds()} times. After the prefix and after every unroll, the
+ * {@link ProblemState} is observed, and the unrolling stops as soon as a state repeats (the loop is confirmed).
+ * Additionally, the unrolling stops as soon as an output differs from the output of the lasso (the loop is refuted),
+ * because the lasso can then not be a counter example for the property.
+ *
+ * Queries and symbols are counted in the counters of the omega emptiness oracle.
+ *
+ * @author Jeroen Meijer
+ */
+public class ParallelLassoEmptinessOracle implements LassoEmptinessOracle.MealyLassoEmptinessOracle<String, String> {
+
+    /**
+     * The name of the oracle, for the {@link ErrorIndex}.
+     */
+    public static final String NAME = "omega emptiness";
+
+    private final ProblemSUL problemSUL;
+
+    private final ExperimentMetrics.Counters counters;
+
+    private final Deadline deadline;
+
+    /**
+     * The forks of {@link #problemSUL} that are not unrolling a lasso.
+     */
+    private final Queue<ProblemSUL> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The results of prefetched lassos; a lasso is forgotten when the model checker caches no longer refer to it.
+     */
+    private final Map<MealyLasso<String, String>, Optional<DefaultQuery<String, Word<String>>>> prefetched =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Constructs a new ParallelLassoEmptinessOracle.
+     *
+     * @param problemSUL the ProblemSUL to fork, which must be synchronized with its Problem (i.e. a plain ProblemSUL).
+     * @param counters the counters of the omega emptiness oracle.
+     * @param deadline the deadline to check before every lasso.
+     */
+    public ParallelLassoEmptinessOracle(ProblemSUL problemSUL, ExperimentMetrics.Counters counters, Deadline deadline) {
+        this.problemSUL = problemSUL;
+        this.counters = counters;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Unrolls the given lasso, and stores the result for {@link #findCounterExample(MealyLasso, Collection)}.
+     *
+     * @param lasso the lasso found by the model checker.
+     */
+    public void prefetch(MealyLasso<String, String> lasso) {
+        if (!prefetched.containsKey(lasso)) prefetched.put(lasso, Optional.ofNullable(check(lasso)));
+    }
+
+    @Nullable
+    @Override
+    public DefaultQuery<String, Word<String>> findCounterExample(MealyLasso<String, String> lasso,
+                                                                 Collection<? extends String> inputs) {
+        final Optional<DefaultQuery<String, Word<String>>> result = prefetched.get(lasso);
+
+        return result != null ? result.orElse(null) : check(lasso);
+    }
+
+    @Nullable
+    private DefaultQuery<String, Word<String>> check(MealyLasso<String, String> lasso) {
+        final OmegaQuery<String, Word<String>> query = unroll(lasso.getPrefix(), lasso.getLoop(), lasso.getUnfolds(), lasso);
+        if (!query.isUltimatelyPeriodic()) return null;
+
+        final DefaultQuery<String, Word<String>> result = query.asDefaultQuery();
+        return isCounterExample(lasso, result.getInput(), result.getOutput()) ? result : null;
+    }
+
+    @Override
+    public OmegaQuery<String, Word<String>> processInput(Word<String> prefix, Word<String> loop, int repeat) {
+        return unroll(prefix, loop, repeat, null);
+    }
+
+    /**
+     * Unrolls the loop after the prefix, until a state repeats, an output differs from the lasso, or the loop is unrolled
+     * {@code repeat} times.
+     *
+     * @param lasso the lasso whose outputs are expected, or {@code null} to unroll until a state repeats.
+     *
+     * @return the answered query, which is ultimately periodic if a state repeated.
+     */
+    private OmegaQuery<String, Word<String>> unroll(Word<String> prefix,
+                                                     Word<String> loop,
+                                                     int repeat,
+                                                     @Nullable MealyMachine lasso) {
+        deadline.check();
+
+        final OmegaQuery<String, Word<String>> query = new OmegaQuery<>(prefix, loop, repeat);
+        final WordBuilder<String> output = new WordBuilder<>(prefix.length() + loop.length() * repeat);
+
+        ProblemSUL sul = idle.poll();
+        if (sul == null) sul = (ProblemSUL) problemSUL.fork();
+
+        ErrorIndex.setOracle(NAME);
+        sul.pre();
+        try {
+            Object state = lasso == null ? null : lasso.getInitialState();
+            boolean refuted = false;
+            for (int i = 0; i < prefix.length() && !refuted; i++) {
+                final String input = prefix.getSymbol(i);
+                final String symbol = sul.step(input);
+                output.append(symbol);
+                if (lasso != null) {
+                    refuted = !symbol.equals(lasso.getOutput(state, input));
+                    state = lasso.getSuccessor(state, input);
+                }
+            }
+
+            // the number of unrolls after which each state was reached
+            final Map<ProblemState, Integer> states = new HashMap<>();
+            states.put(sul.getState(), 0);
+
+            int periodicity = 0;
+            for (int unroll = 1; unroll <= repeat && !refuted && periodicity == 0; unroll++) {
+                for (int i = 0; i < loop.length() && !refuted; i++) {
+                    final String input = loop.getSymbol(i);
+                    final String symbol = sul.step(input);
+                    output.append(symbol);
+                    if (lasso != null) {
+                        refuted = !symbol.equals(lasso.getOutput(state, input));
+                        state = lasso.getSuccessor(state, input);
+                    }
+                }
+
+                if (!refuted && states.putIfAbsent(sul.getState(), unroll) != null) {
+                    periodicity = unroll;
+                }
+            }
+
+            query.answer(output.toWord(), periodicity);
+        } finally {
+            try {
+                sul.post();
+            } finally {
+                counters.add(1, output.size());
+                ErrorIndex.setOracle(null);
+                idle.add(sul);
+            }
+        }
+
+        return query;
+    }
+}
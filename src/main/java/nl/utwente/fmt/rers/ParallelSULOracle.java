@@ -0,0 +1,207 @@
+package nl.utwente.fmt.rers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.learnlib.api.oracle.SymbolQueryOracle;
+import de.learnlib.api.query.Query;
+import net.automatalib.words.Word;
+
+/**
+ * A membership oracle that spreads batches of queries over a pool of workers, that each run on a fork of the real SUL
+ * (i.e. a forked {@link ProblemSUL}).
+ *
+ * Every worker counts its queries and symbols with a {@link MetricsSUL} in the (thread-safe) counters of the
+ * experiment. Single symbol queries, and batches of a single query are answered sequentially by
+ * {@link #sequentialOracle}.
+ *
+ * When a worker fails, the other workers stop at their next query, and the failure is only rethrown when all workers
+ * stopped; such that no worker still uses its SUL when the next batch starts.
+ *
+ * @author Jeroen Meijer
+ */
+public class ParallelSULOracle implements SymbolQueryOracle<String, String> {
+
+    private final SymbolQueryOracle<String, String> sequentialOracle;
+
+    private final ExecutorService executor;
+
+    private final List<IndexedSULOracle> workers = new ArrayList<>();
+
+    /**
+     * The name of the oracle, for the {@link ErrorIndex}.
+     */
+    private final String name;
+
+    /**
+     * Whether the workers should stop, because a worker of the current batch failed.
+     */
+    private volatile boolean aborted;
+
+    /**
+     * Constructs a new ParallelSULOracle.
+     *
+     * @param sequentialOracle the oracle to answer symbol queries, and batches of a single query.
+     * @param counters the counters of this oracle.
+     * @param queryCacheSUL the cache to consult before executing queries, may be {@code null}.
+     * @param realSUL the SUL executing real queries, which is forked for each worker.
+     * @param deadline the deadline to check before every query, may be {@code null}.
+     * @param executor the executor to run the workers on.
+     * @param threads the number of workers.
+     */
+    public ParallelSULOracle(SymbolQueryOracle<String, String> sequentialOracle,
+                             ExperimentMetrics.Counters counters,
+                             QueryCacheSUL queryCacheSUL,
+                             IndexedSUL realSUL,
+                             Deadline deadline,
+                             ExecutorService executor,
+                             int threads) {
+        this.sequentialOracle = sequentialOracle;
+        this.executor = executor;
+        this.name = counters.getName();
+
+        for (int i = 0; i < threads; i++) {
+            final IndexedSUL real = realSUL.fork();
+            final IndexedSUL cached = queryCacheSUL == null ? real : queryCacheSUL.fork(real);
+            final IndexedSUL counted = new MetricsSUL<>(counters, cached);
+            final IndexedSUL checked = deadline != null ? new DeadlineSUL<>(deadline, counted) : counted;
+            workers.add(new IndexedSULOracle(new WorkerSUL(checked)));
+        }
+    }
+
+    /**
+     * Returns a new fixed thread pool, with daemon threads, such that the JVM can exit without shutting it down.
+     *
+     * @param threads the number of threads.
+     *
+     * @return the ExecutorService.
+     */
+    public static ExecutorService newExecutor(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r, "membership-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String query(String i) {
+        return sequentialOracle.query(i);
+    }
+
+    @Override
+    public void reset() {
+        sequentialOracle.reset();
+    }
+
+    @Override
+    public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+        if (queries.size() < 2 || workers.size() < 2) {
+            sequentialOracle.processQueries(queries);
+            return;
+        }
+
+        final List<? extends Query<String, Word<String>>> list = new ArrayList<>(queries);
+        final int chunks = Math.min(workers.size(), list.size());
+        final int chunkSize = (list.size() + chunks - 1) / chunks;
+
+        aborted = false;
+        final List<Future<?>> futures = new ArrayList<>(chunks);
+        RuntimeException failure = null;
+        try {
+            for (int i = 0; i < chunks; i++) {
+                final List<? extends Query<String, Word<String>>> chunk =
+                        list.subList(i * chunkSize, Math.min(list.size(), (i + 1) * chunkSize));
+                final IndexedSULOracle worker = workers.get(i);
+                futures.add(executor.submit(() -> {
+                    ErrorIndex.setOracle(name);
+                    try {
+                        worker.processQueries(chunk);
+                    } finally {
+                        ErrorIndex.setOracle(null);
+                    }
+                }));
+            }
+        } catch (RejectedExecutionException ree) {
+            aborted = true;
+            failure = ree;
+        }
+
+        // wait for every worker, also when one failed or this thread is interrupted.
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException ie) {
+                    aborted = true;
+                    interrupted = true;
+                    if (failure == null) failure = new IllegalStateException(ie);
+                } catch (ExecutionException ee) {
+                    aborted = true;
+                    if (failure == null && !(ee.getCause() instanceof AbortedException)) {
+                        failure = ee.getCause() instanceof RuntimeException ? (RuntimeException) ee.getCause() :
+                                new IllegalStateException(ee.getCause());
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (interrupted) Thread.currentThread().interrupt();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Thrown by a worker that stops because another worker failed.
+     */
+    private static final class AbortedException extends RuntimeException {
+
+        AbortedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * The SUL of a single worker thread, that throws an {@link AbortedException} before a query when the batch is
+     * aborted.
+     */
+    private final class WorkerSUL implements IndexedSUL {
+
+        private final IndexedSUL sul;
+
+        WorkerSUL(IndexedSUL sul) {
+            this.sul = sul;
+        }
+
+        @Override
+        public void pre() {
+            if (aborted) throw new AbortedException();
+            sul.pre();
+        }
+
+        @Override
+        public void post() {
+            sul.post();
+        }
+
+        @Override
+        public SymbolTable getSymbols() {
+            return sul.getSymbols();
+        }
+
+        @Override
+        public int step(int input) {
+            return sul.step(input);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.ModelChecker;
+
+/**
+ * A MealyModelChecker that skips calls that are known to hold from a {@link ModelCheckerResultStore}.
+ *
+ * Only calls without a counter example are stored; counter examples are rare compared to calls that hold (they are
+ * found at most once per property), and must be materialized by the wrapped model checker anyway.
+ *
+ * @param <R> the type of counter example.
+ *
+ * @author Jeroen Meijer
+ */
+public class PersistentModelChecker<R> implements ModelChecker.MealyModelChecker<String, String, String, R> {
+
+    private final ModelChecker.MealyModelChecker<String, String, String, R> modelChecker;
+
+    private final ModelCheckerResultStore store;
+
+    private final String configuration;
+
+    /**
+     * Constructs a new PersistentModelChecker.
+     *
+     * @param modelChecker the model checker to wrap.
+     * @param store the store.
+     * @param configuration a description of the model checker, that distinguishes it from other model checkers using
+     *                      the same store.
+     */
+    public PersistentModelChecker(ModelChecker.MealyModelChecker<String, String, String, R> modelChecker,
+                                  ModelCheckerResultStore store,
+                                  String configuration) {
+        this.modelChecker = modelChecker;
+        this.store = store;
+        this.configuration = configuration;
+    }
+
+    @Nullable
+    @Override
+    public R findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                Collection<? extends String> inputs,
+                                String property) throws ModelCheckingException {
+        final ModelCheckerResultStore.Key key = ModelCheckerResultStore.key(configuration, property, hypothesis, inputs);
+        if (store.contains(key)) return null;
+
+        final R result = modelChecker.findCounterExample(hypothesis, inputs, property);
+        if (result == null) store.add(key);
+
+        return result;
+    }
+}
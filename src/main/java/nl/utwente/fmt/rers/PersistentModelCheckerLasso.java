@@ -0,0 +1,82 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.Lasso.MealyLasso;
+import net.automatalib.modelchecking.ModelCheckerLasso;
+
+/**
+ * A MealyModelCheckerLasso that skips calls that are known to hold from a {@link ModelCheckerResultStore}.
+ *
+ * The unfold parameters are part of the key, since they determine the lasso that is returned.
+ *
+ * @see PersistentModelChecker
+ *
+ * @author Jeroen Meijer
+ */
+public class PersistentModelCheckerLasso implements ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> {
+
+    private final ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> modelChecker;
+
+    private final ModelCheckerResultStore store;
+
+    private final String configuration;
+
+    /**
+     * Constructs a new PersistentModelCheckerLasso.
+     *
+     * @param modelChecker the model checker to wrap.
+     * @param store the store.
+     * @param configuration a description of the model checker, that distinguishes it from other model checkers using
+     *                      the same store.
+     */
+    public PersistentModelCheckerLasso(ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> modelChecker,
+                                       ModelCheckerResultStore store,
+                                       String configuration) {
+        this.modelChecker = modelChecker;
+        this.store = store;
+        this.configuration = configuration;
+    }
+
+    @Nullable
+    @Override
+    public MealyLasso<String, String> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                         Collection<? extends String> inputs,
+                                                         String property) throws ModelCheckingException {
+        final String configuration = String.format("%s;unfolds=%d;multiplier=%s",
+                                                   this.configuration,
+                                                   getMinimumUnfolds(),
+                                                   getMultiplier());
+        final ModelCheckerResultStore.Key key = ModelCheckerResultStore.key(configuration, property, hypothesis, inputs);
+        if (store.contains(key)) return null;
+
+        final MealyLasso<String, String> result = modelChecker.findCounterExample(hypothesis, inputs, property);
+        if (result == null) store.add(key);
+
+        return result;
+    }
+
+    @Override
+    public double getMultiplier() {
+        return modelChecker.getMultiplier();
+    }
+
+    @Override
+    public void setMultiplier(double multiplier) throws IllegalArgumentException {
+        modelChecker.setMultiplier(multiplier);
+    }
+
+    @Override
+    public int getMinimumUnfolds() {
+        return modelChecker.getMinimumUnfolds();
+    }
+
+    @Override
+    public void setMinimumUnfolds(int minimumUnfolds) throws IllegalArgumentException {
+        modelChecker.setMinimumUnfolds(minimumUnfolds);
+    }
+}
@@ -0,0 +1,93 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+
+/**
+ * The model checker results for a single hypothesis, filled concurrently by a {@link PropertyScheduler}.
+ *
+ * Learners refine their hypothesis in place, so results are only valid for the hypothesis instance (and size) they
+ * were computed for; every time a new hypothesis is prefetched the results are cleared.
+ *
+ * @param <R> the type of counter example.
+ *
+ * @author Jeroen Meijer
+ */
+class PrefetchCache<R> {
+
+    /**
+     * Computes the result of a model checker call.
+     *
+     * @param <R> the type of counter example.
+     */
+    @FunctionalInterface
+    interface Check<R> {
+        R check(MealyMachine<?, String, ?, String> hypothesis, Collection<? extends String> inputs, String property)
+                throws ModelCheckingException;
+    }
+
+    private final Check<R> check;
+
+    private final Map<String, Optional<R>> results = new ConcurrentHashMap<>();
+
+    private MealyMachine<?, String, ?, String> hypothesis;
+
+    private int size;
+
+    PrefetchCache(Check<R> check) {
+        this.check = check;
+    }
+
+    /**
+     * Prepares this cache for the given hypothesis, results are kept if the hypothesis did not change.
+     *
+     * @param hypothesis the hypothesis.
+     */
+    synchronized void setHypothesis(MealyMachine<?, String, ?, String> hypothesis) {
+        if (!isCurrent(hypothesis)) {
+            results.clear();
+            this.hypothesis = hypothesis;
+            this.size = hypothesis.size();
+        }
+    }
+
+    private boolean isCurrent(MealyMachine<?, String, ?, String> hypothesis) {
+        return this.hypothesis == hypothesis && size == hypothesis.size();
+    }
+
+    /**
+     * Computes and stores the result for the given property, if it is not already stored.
+     *
+     * @param hypothesis the hypothesis, which must be set with {@link #setHypothesis(MealyMachine)}.
+     * @param inputs the alphabet.
+     * @param property the property.
+     */
+    void prefetch(MealyMachine<?, String, ?, String> hypothesis, Collection<? extends String> inputs, String property) {
+        if (!results.containsKey(property)) {
+            results.put(property, Optional.ofNullable(check.check(hypothesis, inputs, property)));
+        }
+    }
+
+    /**
+     * Returns the stored result, or computes it when it is not stored.
+     *
+     * @param hypothesis the hypothesis.
+     * @param inputs the alphabet.
+     * @param property the property.
+     *
+     * @return the counter example, or {@code null}.
+     */
+    R get(MealyMachine<?, String, ?, String> hypothesis, Collection<? extends String> inputs, String property) {
+        final Optional<R> result;
+        synchronized (this) {
+            result = isCurrent(hypothesis) ? results.get(property) : null;
+        }
+
+        return result != null ? result.orElse(null) : check.check(hypothesis, inputs, property);
+    }
+}
@@ -0,0 +1,35 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.ModelChecker;
+
+/**
+ * A MealyModelChecker that answers from results a {@link PropertyScheduler} computed concurrently beforehand.
+ *
+ * @param <R> the type of counter example.
+ *
+ * @author Jeroen Meijer
+ */
+public class PrefetchingModelChecker<R> implements ModelChecker.MealyModelChecker<String, String, String, R> {
+
+    @Getter
+    private final PrefetchCache<R> prefetchCache;
+
+    public PrefetchingModelChecker(ModelChecker.MealyModelChecker<String, String, String, R> modelChecker) {
+        prefetchCache = new PrefetchCache<>(modelChecker::findCounterExample);
+    }
+
+    @Nullable
+    @Override
+    public R findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                Collection<? extends String> inputs,
+                                String property) throws ModelCheckingException {
+        return prefetchCache.get(hypothesis, inputs, property);
+    }
+}
@@ -0,0 +1,75 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.Lasso.MealyLasso;
+import net.automatalib.modelchecking.ModelCheckerLasso;
+
+/**
+ * A MealyModelCheckerLasso that answers from results a {@link PropertyScheduler} computed concurrently beforehand.
+ *
+ * If a {@link ParallelLassoEmptinessOracle} is given, every lasso that is prefetched is also unrolled beforehand, on
+ * the same thread. The unfold parameters are those of the wrapped model checker.
+ *
+ * @author Jeroen Meijer
+ */
+public class PrefetchingModelCheckerLasso implements ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> {
+
+    private final ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> modelChecker;
+
+    @Getter
+    private final PrefetchCache<MealyLasso<String, String>> prefetchCache;
+
+    public PrefetchingModelCheckerLasso(ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> modelChecker) {
+        this(modelChecker, null);
+    }
+
+    /**
+     * Constructs a new PrefetchingModelCheckerLasso.
+     *
+     * @param modelChecker the model checker.
+     * @param emptinessOracle the oracle to unroll prefetched lassos on, or {@code null}.
+     */
+    public PrefetchingModelCheckerLasso(ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> modelChecker,
+                                        @Nullable ParallelLassoEmptinessOracle emptinessOracle) {
+        this.modelChecker = modelChecker;
+        prefetchCache = new PrefetchCache<>((hypothesis, inputs, property) -> {
+            final MealyLasso<String, String> lasso = modelChecker.findCounterExample(hypothesis, inputs, property);
+            if (lasso != null && emptinessOracle != null) emptinessOracle.prefetch(lasso);
+            return lasso;
+        });
+    }
+
+    @Nullable
+    @Override
+    public MealyLasso<String, String> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                         Collection<? extends String> inputs,
+                                                         String property) throws ModelCheckingException {
+        return prefetchCache.get(hypothesis, inputs, property);
+    }
+
+    @Override
+    public double getMultiplier() {
+        return modelChecker.getMultiplier();
+    }
+
+    @Override
+    public void setMultiplier(double multiplier) throws IllegalArgumentException {
+        modelChecker.setMultiplier(multiplier);
+    }
+
+    @Override
+    public int getMinimumUnfolds() {
+        return modelChecker.getMinimumUnfolds();
+    }
+
+    @Override
+    public void setMinimumUnfolds(int minimumUnfolds) throws IllegalArgumentException {
+        modelChecker.setMinimumUnfolds(minimumUnfolds);
+    }
+}
@@ -4,6 +4,7 @@ import de.learnlib.api.ObservableSUL;
 
 import java.io.FileNotFoundException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.List;
@@ -11,6 +12,7 @@ import java.util.ArrayList;
 
 import de.learnlib.api.logging.LearnLogger;
 import lombok.Getter;
+import lombok.Setter;
 import nl.utwente.fmt.rers.problems.seq.Problem;
 
 /**
@@ -18,7 +20,7 @@ import nl.utwente.fmt.rers.problems.seq.Problem;
  *
  * @author Jeroen Meijer
  */
-public class ProblemSUL implements ObservableSUL<Problem, String, String> {
+public class ProblemSUL implements ObservableSUL<ProblemState, String, String>, IndexedSUL {
 
     public static final String DEADLOCK = "-";
 
@@ -33,6 +35,18 @@ public class ProblemSUL implements ObservableSUL<Problem, String, String> {
     @Getter
     final int number;
 
+    /**
+     * The symbols of the problem, shared with forks and other ProblemSULs of the same problem.
+     */
+    @Getter
+    private final SymbolTable symbols;
+
+    /**
+     * The index of {@link #DEADLOCK} in {@link #symbols}.
+     */
+    @Getter
+    private final int deadlock;
+
     /**
      * Constructs a new ProblemSUL.
      *
@@ -43,6 +57,8 @@ public class ProblemSUL implements ObservableSUL<Problem, String, String> {
     public ProblemSUL(int number) throws FileNotFoundException {
         problem = newProblem(number);
         this.number = number;
+        this.symbols = SymbolTable.forProblem(number, problem.getInputs());
+        this.deadlock = symbols.index(DEADLOCK);
     }
 
     /**
@@ -65,9 +81,53 @@ public class ProblemSUL implements ObservableSUL<Problem, String, String> {
     }
 
     /**
-     * A list of inputs applied. That is cleared after {@link #post()} is called.
+     * The status of a step that produced an output.
+     */
+    public static final int OK = 0;
+
+    /**
+     * The status of a step with an input that is invalid in the current state.
+     */
+    public static final int INVALID = 1;
+
+    /**
+     * The status of a step that triggered an error (assertion).
      */
-    private List<String> inputs = new ArrayList();
+    public static final int ERROR = 2;
+
+    /**
+     * The input indices applied since the last {@link #post()}; a reused buffer, of which the first {@link #length}
+     * entries are the current query.
+     */
+    private int[] inputs = new int[64];
+
+    private int length;
+
+    /**
+     * The status of the last step, one of {@link #OK}, {@link #INVALID} and {@link #ERROR}.
+     */
+    @Getter
+    private int lastStatus = OK;
+
+    /**
+     * The error triggered by the last step, if its status is {@link #ERROR}.
+     */
+    @Getter
+    String lastError;
+
+    /**
+     * The index to record triggered errors in, shared with forks; {@code null} if errors are only logged.
+     */
+    @Getter
+    @Setter
+    private ErrorIndex errorIndex;
+
+    /**
+     * Whether the states returned by {@link #getState()} include a full {@link ProblemSnapshot}, or only a fingerprint.
+     */
+    @Getter
+    @Setter
+    private boolean fullStates = true;
 
     @Override
     public void pre() {
@@ -79,7 +139,36 @@ public class ProblemSUL implements ObservableSUL<Problem, String, String> {
     @Override
     public void post() {
         problem.reset();
-        inputs.clear();
+        clearInputs();
+    }
+
+    /**
+     * Clears the inputs of the current query.
+     */
+    void clearInputs() {
+        length = 0;
+    }
+
+    /**
+     * Appends an input to the current query.
+     *
+     * @param input the index of the input.
+     */
+    void addInput(int input) {
+        if (length == inputs.length) inputs = Arrays.copyOf(inputs, length * 2);
+        inputs[length++] = input;
+    }
+
+    /**
+     * Returns a copy of the inputs of the current query.
+     *
+     * @return the trace.
+     */
+    public List<String> getTrace() {
+        final List<String> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) result.add(symbols.symbol(inputs[i]));
+
+        return result;
     }
 
     /**
@@ -90,29 +179,61 @@ public class ProblemSUL implements ObservableSUL<Problem, String, String> {
     /**
      * Steps through a Problem, be calling {@link Problem#calculateOutput(String)}.
      *
-     * Additionally, when an error is triggered the error is appended to {@link #errors}
+     * Additionally, when an error is triggered the error is appended to {@link #errors}, and the first time an error is
+     * triggered the trace is logged. The status of the step is available through {@link #getLastStatus()}.
      *
-     * @param input the input to apply.
+     * @param input the index of the input to apply.
      *
-     * @return the output
+     * @return the index of the output, {@link #deadlock} if the Problem produced no output.
      */
     @Override
-    public String step(String input) {
-        inputs.add(input);
+    public int step(int input) {
+        addInput(input);
+        lastStatus = calculateOutput(input);
+        if (lastStatus == ERROR) {
+            if (errors.add(lastError)) {
+                LOGGER.info("assertion triggered: " + lastError);
+                LOGGER.info("trace: " + getTrace());
+            }
+            if (errorIndex != null && errorIndex.isCandidate(lastError, length)) errorIndex.record(lastError, getTrace());
+        }
+
+        return currentOutput();
+    }
+
+    /**
+     * Calculates the output of the Problem, and translates the exceptions of the generated code to a status.
+     *
+     * The generated Problem classes signal invalid inputs and errors with exceptions, which can not be changed here;
+     * so a step with an invalid input, or that triggers an error, still allocates (and fills in) an exception.
+     *
+     * Subclasses may answer the step without executing the Problem, they must then set {@link #lastError} on an
+     * {@link #ERROR}, and override {@link #currentOutput()}.
+     *
+     * @param input the index of the input.
+     *
+     * @return the status.
+     */
+    int calculateOutput(int input) {
         try {
-            problem.calculateOutput(input);
+            problem.calculateOutput(symbols.symbol(input));
+            return OK;
         } catch (IllegalArgumentException iae) {
+            return INVALID;
         } catch (IllegalStateException ise) {
-            final String error = ise.getMessage();
-            if (errors.add(error)) {
-                LOGGER.info("assertion triggered: " + error);
-                LOGGER.info("trace: " + inputs);
-            }
+            lastError = ise.getMessage();
+            return ERROR;
         }
+    }
 
+    /**
+     * Returns the output of the last step.
+     *
+     * @return the index of the output, or {@link #deadlock} if the Problem deadlocked.
+     */
+    int currentOutput() {
         final String output = problem.getOutput();
-        if (output == null) return DEADLOCK;
-        else return output;
+        return output == null ? deadlock : symbols.index(output);
     }
 
     public String[] getInputs() {
@@ -125,35 +246,44 @@ public class ProblemSUL implements ObservableSUL<Problem, String, String> {
     }
 
     /**
-     * Forks the the current ProblemSUL, by instantiating a new ProblemSUL with the same {@link #number}.
+     * Forks the the current ProblemSUL, by instantiating a new ProblemSUL with the same {@link #number}, that records
+     * errors in the same {@link #errorIndex}, and observes states in the same way.
      *
      * @return the forked ProblemSUL.
      *
      * @throws UnsupportedOperationException when the appropriate Java class can not be found.
      */
     @Override
-    public ObservableSUL<Problem, String, String> fork() throws UnsupportedOperationException {
+    public ProblemSUL fork() throws UnsupportedOperationException {
         try {
             final ProblemSUL problemSUL = new ProblemSUL(number);
+            problemSUL.setErrorIndex(errorIndex);
+            problemSUL.setFullStates(fullStates);
             return problemSUL;
         } catch (FileNotFoundException ex) {
             throw new UnsupportedOperationException(ex);
         }
     }
 
+    /**
+     * Returns {@code true}, since every state returned by {@link #getState()} is an immutable copy.
+     *
+     * @return {@code true}.
+     */
     @Override
     public boolean deepCopies() {
-        return false;
+        return true;
     }
 
     /**
-     * Returns the current Problem instance.
+     * Returns the current state of the Problem instance, such that the omega membership oracle can detect a repeated
+     * state by comparing states, instead of by replaying queries.
      *
-     * @return the current Problem instance.
+     * @return the current state, with a full snapshot if {@link #fullStates}.
      */
     @Override
-    public Problem getState() {
-        return problem;
+    public ProblemState getState() {
+        return ProblemState.of(problem, fullStates);
     }
 
     @Override
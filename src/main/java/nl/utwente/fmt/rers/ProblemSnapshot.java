@@ -0,0 +1,168 @@
+package nl.utwente.fmt.rers;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import nl.utwente.fmt.rers.problems.seq.Problem;
+
+/**
+ * A copy of the field values of a (generated) {@link Problem} instance.
+ *
+ * Restoring a snapshot puts the Problem back in the state it was in when the snapshot was captured, in time linear in
+ * the number of fields; as opposed to {@link Problem#reset()} followed by replaying all inputs.
+ *
+ * Two snapshots are equal when they hold equal values (arrays compared element-wise), hence a snapshot also identifies
+ * the state of the Problem, see {@link ProblemStateTable}.
+ *
+ * @author Jeroen Meijer
+ */
+public final class ProblemSnapshot {
+
+    /**
+     * The instance fields of every Problem class seen so far.
+     */
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+    private final Field[] fields;
+
+    private final Object[] values;
+
+    /**
+     * The hash code of {@link #values}, 0 if not computed yet.
+     */
+    private int hash;
+
+    private ProblemSnapshot(Field[] fields, Object[] values) {
+        this.fields = fields;
+        this.values = values;
+    }
+
+    /**
+     * Captures the state of the given Problem.
+     *
+     * @param problem the Problem.
+     *
+     * @return the snapshot.
+     */
+    public static ProblemSnapshot capture(Problem problem) {
+        final Field[] fields = getFields(problem.getClass());
+        final Object[] values = new Object[fields.length];
+
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                final Object value = fields[i].get(problem);
+                values[i] = copy(value);
+            }
+        } catch (IllegalAccessException iae) {
+            throw new IllegalStateException(iae);
+        }
+
+        return new ProblemSnapshot(fields, values);
+    }
+
+    /**
+     * Restores the given Problem to the state of this snapshot.
+     *
+     * @param problem the Problem, which must be of the same class as the Problem the snapshot was captured from.
+     */
+    public void restore(Problem problem) {
+        assert getFields(problem.getClass()) == fields;
+
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                final Field field = fields[i];
+                final Object value = values[i];
+                if (value != null && value.getClass().isArray()) {
+                    if (restoreArray(field.get(problem), value)) continue;
+                    if (Modifier.isFinal(field.getModifiers())) {
+                        throw new IllegalStateException("can not restore final array field " + field.getName());
+                    }
+                    field.set(problem, copy(value));
+                } else if (!Modifier.isFinal(field.getModifiers())) {
+                    field.set(problem, value);
+                }
+            }
+        } catch (IllegalAccessException iae) {
+            throw new IllegalStateException(iae);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProblemSnapshot)) return false;
+
+        final ProblemSnapshot that = (ProblemSnapshot) o;
+        return fields == that.fields && hashCode() == that.hashCode() && Arrays.deepEquals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) hash = Arrays.deepHashCode(values);
+        return hash;
+    }
+
+    /**
+     * Returns a (deep) copy of arrays (since they are mutable), and the value itself otherwise.
+     */
+    private static Object copy(Object value) {
+        if (value == null || !value.getClass().isArray()) return value;
+
+        final int length = Array.getLength(value);
+        final Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+        if (value.getClass().getComponentType().isArray()) {
+            for (int i = 0; i < length; i++) Array.set(copy, i, copy(Array.get(value, i)));
+        } else {
+            System.arraycopy(value, 0, copy, 0, length);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Copies the contents of the array {@code value} into the existing array {@code target}.
+     *
+     * @return whether the contents could be copied in place (i.e. the arrays have the same shape).
+     */
+    private static boolean restoreArray(Object target, Object value) {
+        if (target == null || target.getClass() != value.getClass()) return false;
+
+        final int length = Array.getLength(value);
+        if (Array.getLength(target) != length) return false;
+
+        if (value.getClass().getComponentType().isArray()) {
+            for (int i = 0; i < length; i++) {
+                final Object element = Array.get(value, i);
+                if (element == null || !restoreArray(Array.get(target, i), element)) Array.set(target, i, copy(element));
+            }
+        } else {
+            System.arraycopy(value, 0, target, 0, length);
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns all non-static fields of the given class and its super classes, made accessible.
+     */
+    static Field[] getFields(Class<?> clazz) {
+        return FIELDS.computeIfAbsent(clazz, c -> {
+            final List<Field> result = new ArrayList<>();
+            for (Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+                for (Field field : k.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        result.add(field);
+                    }
+                }
+            }
+            return result.toArray(new Field[result.size()]);
+        });
+    }
+}
@@ -0,0 +1,119 @@
+package nl.utwente.fmt.rers;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import nl.utwente.fmt.rers.problems.seq.Problem;
+
+/**
+ * An immutable state of a (generated) {@link Problem}, as observed by {@link ProblemSUL#getState()}.
+ *
+ * A state consists of a 64-bit fingerprint of the field values of the Problem, and optionally a full
+ * {@link ProblemSnapshot} of them. With a snapshot, two states are equal if and only if the Problem was in the same
+ * state. Without a snapshot, states are equal when their fingerprints are; which is cheaper to compute and store, but
+ * two different states are considered equal in case of a (very unlikely) hash collision.
+ *
+ * @author Jeroen Meijer
+ */
+public final class ProblemState {
+
+    @Getter
+    private final long fingerprint;
+
+    /**
+     * The full values of the state, {@code null} if only the fingerprint is compared.
+     */
+    @Getter
+    @Nullable
+    private final ProblemSnapshot snapshot;
+
+    private ProblemState(long fingerprint, @Nullable ProblemSnapshot snapshot) {
+        this.fingerprint = fingerprint;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Returns the current state of the given Problem.
+     *
+     * @param problem the Problem.
+     * @param full whether to include a full snapshot.
+     *
+     * @return the state.
+     */
+    public static ProblemState of(Problem problem, boolean full) {
+        final Field[] fields = ProblemSnapshot.getFields(problem.getClass());
+
+        long fingerprint = 0;
+        try {
+            for (Field field : fields) fingerprint = mix(fingerprint, hash(field.get(problem)));
+        } catch (IllegalAccessException iae) {
+            throw new IllegalStateException(iae);
+        }
+
+        return new ProblemState(finish(fingerprint), full ? ProblemSnapshot.capture(problem) : null);
+    }
+
+    /**
+     * Returns the hash of a field value, arrays are hashed by their contents.
+     */
+    private static long hash(Object value) {
+        if (value == null) return 0;
+        if (value instanceof int[]) {
+            long h = 1;
+            for (int v : (int[]) value) h = mix(h, v);
+            return h;
+        }
+        if (value instanceof boolean[]) {
+            long h = 1;
+            for (boolean v : (boolean[]) value) h = mix(h, v ? 1231 : 1237);
+            return h;
+        }
+        if (value.getClass().isArray()) {
+            long h = 1;
+            for (int i = 0; i < Array.getLength(value); i++) h = mix(h, hash(Array.get(value, i)));
+            return h;
+        }
+
+        return value.hashCode();
+    }
+
+    private static long mix(long h, long v) {
+        return (h ^ v) * 0x100000001b3L + 0x9e3779b97f4a7c15L;
+    }
+
+    /**
+     * Spreads the bits of the fingerprint (the finalizer of MurmurHash3).
+     */
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProblemState)) return false;
+
+        final ProblemState that = (ProblemState) o;
+        if (fingerprint != that.fingerprint) return false;
+
+        return snapshot == null || that.snapshot == null || snapshot.equals(that.snapshot);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprint);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x", fingerprint);
+    }
+}
@@ -0,0 +1,166 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import lombok.Getter;
+import nl.utwente.fmt.rers.problems.seq.Problem;
+
+/**
+ * The transition table of a (generated) {@link Problem} class, explored while queries are executed.
+ *
+ * A state is the vector of field values of the Problem, interned as a {@link ProblemSnapshot}; its transitions are
+ * stored in an array indexed by the input index of the {@link SymbolTable}. Once a transition is known, a step is a
+ * single array lookup, and copying the state of a query is copying a reference. See {@link CompiledProblemSUL}.
+ *
+ * A single table is shared by all {@link CompiledProblemSUL}s of the same problem (also across experiments), and it is
+ * thread-safe. The number of states is bounded by {@link #maxStates}.
+ *
+ * @author Jeroen Meijer
+ */
+public final class ProblemStateTable {
+
+    /**
+     * The default maximum number of states.
+     */
+    public static final int DEFAULT_MAX_STATES = 100_000;
+
+    private static final Map<Integer, ProblemStateTable> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * A state of the Problem.
+     */
+    static final class State {
+
+        @Getter
+        private final int id;
+
+        @Getter
+        private final ProblemSnapshot snapshot;
+
+        private final AtomicReferenceArray<Transition> transitions;
+
+        State(int id, ProblemSnapshot snapshot, int inputSize) {
+            this.id = id;
+            this.snapshot = snapshot;
+            this.transitions = new AtomicReferenceArray<>(inputSize);
+        }
+
+        /**
+         * Returns the transition for the given input.
+         *
+         * @param input the index of the input.
+         *
+         * @return the transition, or {@code null} if it is not known yet.
+         */
+        Transition getTransition(int input) {
+            return transitions.get(input);
+        }
+
+        /**
+         * Adds a transition for the given input.
+         *
+         * @param input the index of the input.
+         * @param transition the transition.
+         *
+         * @return the transition stored, which is an existing one if another thread added it first.
+         */
+        Transition addTransition(int input, Transition transition) {
+            if (transitions.compareAndSet(input, null, transition)) return transition;
+            return transitions.get(input);
+        }
+    }
+
+    /**
+     * The effect of a step: the successor state, the index of the output, the status (see
+     * {@link ProblemSUL#getLastStatus()}), and the error triggered if the status is {@link ProblemSUL#ERROR}.
+     */
+    static final class Transition {
+
+        final State successor;
+
+        final int output;
+
+        final int status;
+
+        final String error;
+
+        Transition(State successor, int output, int status, String error) {
+            this.successor = successor;
+            this.output = output;
+            this.status = status;
+            this.error = error;
+        }
+    }
+
+    @Getter
+    private final SymbolTable symbols;
+
+    @Getter
+    private final State initial;
+
+    @Getter
+    private final int maxStates;
+
+    private final Map<ProblemSnapshot, State> states = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private ProblemStateTable(SymbolTable symbols, ProblemSnapshot initial, int maxStates) {
+        this.symbols = symbols;
+        this.maxStates = maxStates;
+        this.initial = intern(initial);
+    }
+
+    /**
+     * Returns the table of the given problem, which is created from the given (fresh) Problem instance on first use.
+     *
+     * @param number the problem number.
+     * @param symbols the symbols of the problem.
+     * @param problem a Problem instance of the problem, which is reset to capture the initial state.
+     *
+     * @return the ProblemStateTable.
+     */
+    public static ProblemStateTable forProblem(int number, SymbolTable symbols, Problem problem) {
+        return TABLES.computeIfAbsent(number, n -> create(symbols, problem, DEFAULT_MAX_STATES));
+    }
+
+    /**
+     * Returns a new table that is not shared with other CompiledProblemSULs, e.g. with a small bound in tests.
+     *
+     * @param symbols the symbols of the problem.
+     * @param problem a Problem instance of the problem, which is reset to capture the initial state.
+     * @param maxStates the maximum number of states.
+     *
+     * @return the ProblemStateTable.
+     */
+    static ProblemStateTable create(SymbolTable symbols, Problem problem, int maxStates) {
+        problem.reset();
+        return new ProblemStateTable(symbols, ProblemSnapshot.capture(problem), maxStates);
+    }
+
+    /**
+     * Returns the state of the given snapshot.
+     *
+     * @param snapshot the snapshot.
+     *
+     * @return the (possibly already existing) state, or {@code null} if the snapshot is new, and the table is full.
+     */
+    State intern(ProblemSnapshot snapshot) {
+        final State state = states.get(snapshot);
+        if (state != null || size.get() >= maxStates) return state;
+
+        return states.computeIfAbsent(snapshot, s -> new State(size.getAndIncrement(), s, symbols.getInputSize()));
+    }
+
+    /**
+     * Returns the number of states in this table.
+     *
+     * @return the number of states.
+     */
+    public int size() {
+        return size.get();
+    }
+}
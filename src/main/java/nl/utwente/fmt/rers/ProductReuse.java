@@ -0,0 +1,45 @@
+package nl.utwente.fmt.rers;
+
+/**
+ * Tells an in-process model checker which states of the product with the hypothesis need not be explored again,
+ * because they were explored while checking a previous hypothesis, and nothing reachable from them has changed since.
+ *
+ * A product state is a state of the hypothesis, together with a key that identifies the state of the property
+ * automaton; keys must implement {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ *
+ * @author Jeroen Meijer
+ */
+interface ProductReuse {
+
+    /**
+     * Reuses nothing.
+     */
+    ProductReuse NONE = new ProductReuse() {
+        @Override
+        public boolean isExplored(Object state, Object key) {
+            return false;
+        }
+
+        @Override
+        public void explored(Object state, Object key) {
+        }
+    };
+
+    /**
+     * Returns whether the given product state was explored before, such that its successors can be skipped.
+     *
+     * @param state the state of the hypothesis.
+     * @param key the state of the property automaton.
+     *
+     * @return whether the product state can be skipped.
+     */
+    boolean isExplored(Object state, Object key);
+
+    /**
+     * Records that the given product state is part of the product of the current check.
+     *
+     * @param state the state of the hypothesis.
+     * @param key the state of the property automaton.
+     */
+    void explored(Object state, Object key);
+}
@@ -0,0 +1,140 @@
+package nl.utwente.fmt.rers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import de.learnlib.api.logging.LearnLogger;
+import de.learnlib.api.oracle.EquivalenceOracle;
+import de.learnlib.api.oracle.PropertyOracle;
+import de.learnlib.api.query.DefaultQuery;
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.words.Word;
+
+/**
+ * Runs the model checker calls for all properties that are not yet disproved concurrently, with a bounded number of
+ * calls (i.e. LTSmin processes) in flight.
+ *
+ * The results are stored in the {@link PrefetchCache}s of the {@link PrefetchingModelChecker}s, such that the property
+ * oracles can afterwards be consulted one by one, in a deterministic order, without waiting for the model checker.
+ * Lassos found by a prefetched Büchi model checker may also be unrolled on these threads, see
+ * {@link ParallelLassoEmptinessOracle}.
+ *
+ * @author Jeroen Meijer
+ */
+public class PropertyScheduler {
+
+    public static final LearnLogger LOGGER = LearnLogger.getLogger(PropertyScheduler.class);
+
+    private final List<PropertyOracle.MealyPropertyOracle> propertyOracles;
+
+    private final List<String> formulae;
+
+    private final List<PrefetchCache<?>> prefetchCaches;
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new PropertyScheduler.
+     *
+     * @param propertyOracles the property oracles, the i-th oracle checks the i-th formula.
+     * @param formulae the formulae.
+     * @param prefetchCaches the caches of the model checkers to prefetch results for.
+     * @param threads the maximum number of concurrent model checker calls.
+     */
+    public PropertyScheduler(List<PropertyOracle.MealyPropertyOracle> propertyOracles,
+                             List<String> formulae,
+                             List<PrefetchCache<?>> prefetchCaches,
+                             int threads) {
+        assert propertyOracles.size() == formulae.size();
+
+        this.propertyOracles = propertyOracles;
+        this.formulae = formulae;
+        this.prefetchCaches = prefetchCaches;
+
+        final AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r, "model-checker-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Model checks all properties that are not disproved on the given hypothesis, and waits for the results.
+     *
+     * A model checker call that fails is not retried here; it will be performed (and fail) again when the property
+     * oracle asks for it.
+     *
+     * @param hypothesis the hypothesis.
+     * @param inputs the alphabet.
+     */
+    public void check(MealyMachine<?, String, ?, String> hypothesis, Collection<? extends String> inputs) {
+        for (PrefetchCache<?> prefetchCache : prefetchCaches) prefetchCache.setHypothesis(hypothesis);
+
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < formulae.size(); i++) {
+            if (propertyOracles.get(i).isDisproved()) continue;
+
+            final String formula = formulae.get(i);
+            for (PrefetchCache<?> prefetchCache : prefetchCaches) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        prefetchCache.prefetch(hypothesis, inputs, formula);
+                    } catch (ModelCheckingException mce) {
+                        LOGGER.info("model checking failed for " + formula + ": " + mce.getMessage());
+                    }
+                }));
+            }
+        }
+
+        try {
+            for (Future<?> future : futures) future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException) throw (RuntimeException) ee.getCause();
+            throw new IllegalStateException(ee.getCause());
+        } finally {
+            for (Future<?> future : futures) future.cancel(true);
+        }
+    }
+
+    /**
+     * Returns an equivalence oracle that first checks all properties concurrently, and then consults the given
+     * (black-box) oracle.
+     *
+     * @param eqOracle the oracle that consults the property oracles.
+     *
+     * @return the wrapped oracle.
+     */
+    public EquivalenceOracle.MealyEquivalenceOracle<String, String> wrap(
+            EquivalenceOracle.MealyEquivalenceOracle<String, String> eqOracle) {
+        return new EquivalenceOracle.MealyEquivalenceOracle<String, String>() {
+
+            @Nullable
+            @Override
+            public DefaultQuery<String, Word<String>> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                                         Collection<? extends String> inputs) {
+                check(hypothesis, inputs);
+                return eqOracle.findCounterExample(hypothesis, inputs);
+            }
+        };
+    }
+
+    /**
+     * Stops the threads of this scheduler, interrupting model checker calls that are still running.
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,110 @@
+package nl.utwente.fmt.rers;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * A prefix-closed cache of answered queries, stored as a trie over input symbols.
+ *
+ * A single QueryCache is shared by all {@link QueryCacheSUL}s of an experiment, so that a prefix answered for the
+ * learner, can be reused by equivalence, emptiness and inclusion queries (and vice versa).
+ *
+ * Successors are stored in arrays indexed by the input index of the {@link SymbolTable}, and outputs are stored as
+ * output indices of the SymbolTable; hence a {@link QueryCacheSUL} that is stepped with input indices (see
+ * {@link IndexedSUL}) follows a cached path without hashing.
+ *
+ * @author Jeroen Meijer
+ */
+public class QueryCache {
+
+    /**
+     * A node in the trie; the output is the index of the output of the last input on the path from the root.
+     */
+    static final class Node {
+
+        final int output;
+
+        final AtomicReferenceArray<Node> successors;
+
+        Node(int output, int inputSize) {
+            this.output = output;
+            this.successors = new AtomicReferenceArray<>(inputSize);
+        }
+    }
+
+    @Getter
+    private final SymbolTable symbols;
+
+    @Getter
+    private final Node root;
+
+    /**
+     * The number of nodes (excluding the root) in the trie.
+     */
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Constructs a new empty QueryCache.
+     *
+     * @param symbols the symbols of the problem.
+     */
+    public QueryCache(SymbolTable symbols) {
+        this.symbols = symbols;
+        this.root = new Node(-1, symbols.getInputSize());
+    }
+
+    /**
+     * Returns the successor of the given node for the given input.
+     *
+     * @param node the node.
+     * @param input the index of the input.
+     *
+     * @return the successor, or {@code null} if the query is not cached.
+     */
+    Node getSuccessor(Node node, int input) {
+        return node.successors.get(input);
+    }
+
+    /**
+     * Adds an answered symbol to the trie.
+     *
+     * @param node the node to extend.
+     * @param input the index of the input.
+     * @param output the index of the output the SUL produced.
+     *
+     * @return the (possibly already existing) successor.
+     *
+     * @throws IllegalStateException when the SUL produced a different output before (i.e. it is not deterministic).
+     */
+    Node addSuccessor(Node node, int input, int output) {
+        Node successor = node.successors.get(input);
+        if (successor == null) {
+            final Node newNode = new Node(output, symbols.getInputSize());
+            if (node.successors.compareAndSet(input, null, newNode)) {
+                size.increment();
+                return newNode;
+            }
+            successor = node.successors.get(input);
+        }
+
+        if (successor.output != output) {
+            throw new IllegalStateException(String.format("non-deterministic output for input %s: %s and %s",
+                                                          symbols.symbol(input),
+                                                          symbols.symbol(successor.output),
+                                                          symbols.symbol(output)));
+        }
+
+        return successor;
+    }
+
+    /**
+     * Returns the number of symbols stored in this cache.
+     *
+     * @return the number of symbols.
+     */
+    public long size() {
+        return size.sum();
+    }
+}
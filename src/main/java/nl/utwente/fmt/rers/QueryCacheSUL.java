@@ -0,0 +1,188 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * A SUL that answers symbols from a shared {@link QueryCache}, and only consults its delegate on a cache miss.
+ *
+ * The delegate is started lazily: as long as a query follows a cached path, the delegate is not touched. On the first
+ * miss the cached prefix is replayed on the delegate, after which the query resumes on the delegate.
+ *
+ * Every QueryCacheSUL counts its own hits and misses, such that the hit ratio can be reported per oracle. Hits that
+ * are replayed on the delegate after a miss are counted as replayed as well, since they did not save an execution.
+ *
+ * @author Jeroen Meijer
+ */
+public class QueryCacheSUL implements IndexedSUL {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final QueryCache cache;
+
+    private final IndexedSUL delegate;
+
+    /**
+     * The number of symbols answered from the cache (shared with forks).
+     */
+    private final LongAdder hits;
+
+    /**
+     * The number of symbols answered by the delegate, excluding replayed prefixes (shared with forks).
+     */
+    private final LongAdder misses;
+
+    /**
+     * The number of hits that had to be replayed on the delegate after a miss (shared with forks).
+     */
+    private final LongAdder replayed;
+
+    /**
+     * The input indices of the current query.
+     */
+    private int[] inputs = new int[16];
+
+    private int length;
+
+    private QueryCache.Node current;
+
+    /**
+     * Whether {@link #delegate} is currently executing the query.
+     */
+    private boolean delegateActive;
+
+    public QueryCacheSUL(String name, QueryCache cache, IndexedSUL delegate) {
+        this(name, cache, delegate, new LongAdder(), new LongAdder(), new LongAdder());
+    }
+
+    private QueryCacheSUL(String name,
+                          QueryCache cache,
+                          IndexedSUL delegate,
+                          LongAdder hits,
+                          LongAdder misses,
+                          LongAdder replayed) {
+        this.name = name;
+        this.cache = cache;
+        this.delegate = delegate;
+        this.hits = hits;
+        this.misses = misses;
+        this.replayed = replayed;
+    }
+
+    @Override
+    public void pre() {
+        length = 0;
+        current = cache.getRoot();
+        delegateActive = false;
+    }
+
+    @Override
+    public void post() {
+        if (delegateActive) delegate.post();
+        delegateActive = false;
+    }
+
+    @Override
+    public SymbolTable getSymbols() {
+        return cache.getSymbols();
+    }
+
+    @Override
+    public int step(int input) {
+        if (!delegateActive) {
+            final QueryCache.Node successor = cache.getSuccessor(current, input);
+            if (successor != null) {
+                hits.increment();
+                append(input);
+                current = successor;
+                return successor.output;
+            }
+
+            // resume the cached prefix on the delegate
+            delegate.pre();
+            for (int i = 0; i < length; i++) delegate.step(inputs[i]);
+            replayed.add(length);
+            delegateActive = true;
+        }
+
+        misses.increment();
+        final int output = delegate.step(input);
+        append(input);
+        current = cache.addSuccessor(current, input, output);
+
+        return output;
+    }
+
+    private void append(int index) {
+        if (length == inputs.length) inputs = Arrays.copyOf(inputs, length * 2);
+        inputs[length++] = index;
+    }
+
+    /**
+     * Returns the number of symbols answered from the cache.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of symbols that had to be answered by the delegate.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of hits that were replayed on the delegate, because the query missed later on.
+     *
+     * @return the number of replayed hits.
+     */
+    public long getReplayed() {
+        return replayed.sum();
+    }
+
+    /**
+     * Returns the fraction of symbols that were not executed by the delegate, i.e. hits that were not replayed.
+     *
+     * @return the hit ratio, or 0 when no symbols were answered yet.
+     */
+    public double getHitRatio() {
+        final long hits = getHits();
+        final long total = hits + getMisses();
+        return total == 0 ? 0.0 : (double) (hits - getReplayed()) / total;
+    }
+
+    @Override
+    public boolean canFork() {
+        return delegate.canFork();
+    }
+
+    /**
+     * Forks this QueryCacheSUL, the fork shares the {@link QueryCache}, and the hit/miss/replay counters.
+     *
+     * @return the forked QueryCacheSUL.
+     */
+    @Override
+    public QueryCacheSUL fork() {
+        return fork(delegate.fork());
+    }
+
+    /**
+     * Forks this QueryCacheSUL, with the given delegate.
+     *
+     * @param delegate the delegate of the fork.
+     *
+     * @return the forked QueryCacheSUL.
+     */
+    QueryCacheSUL fork(IndexedSUL delegate) {
+        return new QueryCacheSUL(name, cache, delegate, hits, misses, replayed);
+    }
+}
@@ -8,7 +8,6 @@ import de.learnlib.algorithms.lstar.mealy.ExtensibleLStarMealyBuilder;
 import de.learnlib.algorithms.malerpnueli.MalerPnueliMealyBuilder;
 import de.learnlib.algorithms.rivestschapire.RivestSchapireMealyBuilder;
 import de.learnlib.algorithms.ttt.mealy.TTTLearnerMealyBuilder;
-import de.learnlib.api.SUL;
 import de.learnlib.api.algorithm.LearningAlgorithm.MealyLearner;
 import de.learnlib.api.logging.LearnLogger;
 import de.learnlib.api.logging.LoggingPropertyOracle;
@@ -23,13 +22,8 @@ import de.learnlib.api.oracle.MembershipOracle;
 import de.learnlib.api.oracle.SymbolQueryOracle;
 import de.learnlib.filter.cache.mealy.MealyCaches;
 import de.learnlib.filter.cache.mealy.SymbolQueryCache;
-import de.learnlib.filter.cache.sul.SULCaches;
 import de.learnlib.filter.statistic.oracle.CounterOracle;
 import de.learnlib.filter.statistic.oracle.CounterSymbolQueryOracle;
-import de.learnlib.filter.statistic.sul.ResetCounterObservableSUL;
-import de.learnlib.filter.statistic.sul.ResetCounterSUL;
-import de.learnlib.filter.statistic.sul.SymbolCounterObservableSUL;
-import de.learnlib.filter.statistic.sul.SymbolCounterSUL;
 import de.learnlib.oracle.emptiness.MealyBFEmptinessOracle;
 import de.learnlib.oracle.emptiness.MealyLassoEmptinessOracleImpl;
 import de.learnlib.oracle.equivalence.CExFirstOracle;
@@ -39,8 +33,6 @@ import de.learnlib.oracle.equivalence.MealyBFInclusionOracle;
 import de.learnlib.oracle.equivalence.RandomWordsEQOracle;
 import de.learnlib.oracle.equivalence.WpMethodEQOracle;
 import de.learnlib.oracle.membership.AbstractSULOmegaOracle;
-import de.learnlib.oracle.membership.SULOracle;
-import de.learnlib.oracle.membership.SULSymbolQueryOracle;
 import de.learnlib.oracle.property.MealyFinitePropertyOracle;
 import de.learnlib.oracle.property.MealyLassoPropertyOracle;
 import de.learnlib.oracle.property.PropertyOracleChain;
@@ -56,11 +48,17 @@ import net.automatalib.modelchecking.modelchecker.cache.SizeMealyModelCheckerCac
 import net.automatalib.modelchecking.modelchecker.cache.SizeMealyModelCheckerLassoCache;
 import net.automatalib.words.Alphabet;
 import net.automatalib.words.impl.Alphabets;
+import nl.utwente.fmt.rers.ltl.Constraints;
+import nl.utwente.fmt.rers.ltl.Formula;
 import nl.utwente.fmt.rers.problems.seq.Problem;
 
+import java.io.Closeable;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import static nl.utwente.fmt.rers.ProblemSUL.DEADLOCK;
@@ -69,7 +67,7 @@ import static nl.utwente.fmt.rers.ProblemSUL.DEADLOCK;
  * A specialization of MealyBBCExperiment. That parses LTL formulae, and instantiates the proper classes
  * (such as ModelChecker).
  */
-public class RERSExperiment extends Experiment.MealyExperiment<String, String> {
+public class RERSExperiment extends Experiment.MealyExperiment<String, String> implements Closeable {
 
     enum LEARNER {
         ADT,
@@ -86,98 +84,251 @@ public class RERSExperiment extends Experiment.MealyExperiment<String, String> {
 
     public static final LearnLogger LOGGER = LearnLogger.getLogger(RERSExperiment.class);
 
+    /**
+     * The number of queries per thread in a batch of an equivalence oracle, when equivalence batches are enabled.
+     */
+    public static final int BATCH_SIZE_PER_THREAD = 16;
+
+    /**
+     * The (immutable) alphabet of every problem, shared by all experiments of a batch.
+     */
+    private static final Map<Integer, Alphabet<String>> ALPHABETS = new ConcurrentHashMap<>();
+
     @Getter
     private final List<PropertyOracle.MealyPropertyOracle> propertyOracles;
 
+    /**
+     * The query and symbol counts of this experiment.
+     */
+    @Getter
+    private final ExperimentMetrics metrics;
+
+    /**
+     * The deadline of the search for counter examples, armed by the {@link TimeOutEQOracle}.
+     */
+    @Getter
+    private final Deadline deadline;
+
+    /**
+     * The SULs that answer queries from the shared {@link QueryCache}, empty if no query cache is used.
+     */
     @Getter
-    private static ResetCounterSUL realQueryCounterSUL, learnQueryCounterSUL, eqQueryCounterSUL, emQueryCounterSUL, inQueryCounterSUL;
+    private final List<QueryCacheSUL> queryCacheSULs;
 
+    /**
+     * The SUL that answers real queries by restoring snapshots, {@code null} if snapshots are not used.
+     */
     @Getter
-    private static SymbolCounterSUL realSymbolCounterSUL, learnSymbolCounterSUL, eqSymbolCounterSUL, emSymbolCounterSUL, inSymbolCounterSUL;
+    private final SnapshotProblemSUL snapshotProblemSUL;
 
+    /**
+     * The SUL that answers real queries from the {@link ProblemStateTable}, {@code null} if it is not used.
+     */
     @Getter
-    private static ResetCounterObservableSUL emOQueryCounterSUL;
+    private final CompiledProblemSUL compiledProblemSUL;
 
+    /**
+     * The prefixes that lead to a sink, {@code null} if sinks are not detected.
+     */
     @Getter
-    private static SymbolCounterObservableSUL emOSymbolCounterSUL;
+    private final SinkTrie sinkTrie;
 
-//    @Getter
-//    private static CounterOracle realCounter, learnCounter, eqCounter, emCounter, inCounter;
+    /**
+     * The scheduler that checks properties concurrently, {@code null} if properties are checked one at a time.
+     */
+    @Getter
+    private final PropertyScheduler propertyScheduler;
 
+    /**
+     * The errors triggered, {@code null} if errors are only logged.
+     */
     @Getter
-    private static ResetCounterObservableSUL emoCounter;
+    private final ErrorIndex errorIndex;
+
+    /**
+     * The threads of the parallel membership oracles, {@code null} if queries are answered on the calling thread.
+     */
+    private final ExecutorService membershipExecutor;
+
+    /**
+     * The writer of checkpoints, {@code null} if no checkpoints are written.
+     */
+    private final Checkpointer checkpointer;
+
+    /**
+     * The store of model checker results, {@code null} if results are not stored.
+     */
+    private final ModelCheckerResultStore resultStore;
 
     private RERSExperiment(MealyLearner learningAlgorithm,
                            MealyEquivalenceOracle equivalenceAlgorithm,
                            Alphabet inputs,
-                           List<PropertyOracle.MealyPropertyOracle> propertyOracles) {
+                           List<PropertyOracle.MealyPropertyOracle> propertyOracles,
+                           List<QueryCacheSUL> queryCacheSULs,
+                           SnapshotProblemSUL snapshotProblemSUL,
+                           CompiledProblemSUL compiledProblemSUL,
+                           SinkTrie sinkTrie,
+                           PropertyScheduler propertyScheduler,
+                           ErrorIndex errorIndex,
+                           ExecutorService membershipExecutor,
+                           Checkpointer checkpointer,
+                           ModelCheckerResultStore resultStore,
+                           ExperimentMetrics metrics,
+                           Deadline deadline) {
         super(learningAlgorithm, equivalenceAlgorithm, inputs);
         this.propertyOracles = propertyOracles;
+        this.queryCacheSULs = queryCacheSULs;
+        this.snapshotProblemSUL = snapshotProblemSUL;
+        this.compiledProblemSUL = compiledProblemSUL;
+        this.sinkTrie = sinkTrie;
+        this.propertyScheduler = propertyScheduler;
+        this.errorIndex = errorIndex;
+        this.membershipExecutor = membershipExecutor;
+        this.checkpointer = checkpointer;
+        this.resultStore = resultStore;
+        this.metrics = metrics;
+        this.deadline = deadline;
     }
 
     /**
      * Returns a new RERSExperiment.
      *
-     * @param number the {@link Problem} number to instantiate.
-     * @param multiplier the multiplier used when computing the number of unrolls for a lasso.
-     * @param minimumUnfolds the minimum number of times a lasso needs to be unrolled.
-     * @param disproveFirst whether to use a {@link DisproveFirstOracle}.
-     * @param cexFirst whether to use a {@link CExFirstOracle}.
-     * @param learner the learner to instantiate.
-     * @param randomWords whether to use an additional {@link RandomWordsEQOracle}.
-     * @param alternate whether to use alternating semantics
-     * @param monitor whether to build a monitor
-     * @param cache whether to use a model checker cache.
-     * @param buchi whether to build a Buchi automaton.
-     * @param timeout timeout in seconds.
+     * @param options the options, such as the {@link Problem} number and the learner to instantiate.
      *
      * @return the RERSExperiment
      *
      * @throws FileNotFoundException when the appropriate Java class can not be found.
+     * @throws IOException when the model checker result store can not be opened.
      */
-    public static RERSExperiment newExperiment(int number,
-                                               double multiplier,
-                                               int minimumUnfolds,
-                                               boolean disproveFirst,
-                                               boolean cexFirst,
-                                               LEARNER learner,
-                                               boolean randomWords,
-                                               boolean alternate,
-                                               boolean monitor,
-                                               boolean cache,
-                                               boolean buchi,
-                                               int timeout) throws FileNotFoundException {
-        assert buchi || monitor;
+    public static RERSExperiment newExperiment(ExperimentOptions options) throws IOException {
+        final int number = options.getProblem();
+        final LEARNER learner = options.getLearner();
+        final boolean monitor = options.isMonitor();
+        final boolean buchi = options.isBuchi();
+        final boolean alternate = options.isAlternate();
+        final int threads = options.getThreads();
 
-        assert !(disproveFirst && cexFirst);
+        assert buchi || monitor;
 
-        String mcType = monitor ? "monitor" : "";
-        mcType += buchi && monitor ? "-" : "";
-        mcType += buchi ? "buchi" : "";
+        assert !(options.isDisproveFirst() && options.isCexFirst());
 
-        final String bbcType;
-        if (cexFirst) bbcType = "cex-first";
-        else if (disproveFirst) bbcType = "disprove-first";
-        else bbcType = "none";
+        final String mcType = options.getMcType();
+        final String bbcType = options.getBbcType();
 
         final ProblemSUL problemSUL = new ProblemSUL(number);
-        final Alphabet alphabet = Alphabets.fromArray(problemSUL.getInputs());
+        problemSUL.setFullStates(!options.isStateFingerprints());
+        final Alphabet alphabet = ALPHABETS.computeIfAbsent(number, n -> Alphabets.fromArray(problemSUL.getInputs()));
 
         final SymbolQueryOracle learnOracle;
         final MembershipOracle.MealyMembershipOracle eqOracle, emOracle, inOracle;
         final OmegaMembershipOracle.MealyOmegaMembershipOracle emOOracle;
 
-        final SUL realSUL =
-                //SULCaches.createDAGCache(alphabet,
-                                                      realSymbolCounterSUL = new SymbolCounterSUL("real symbols", realQueryCounterSUL = new ResetCounterSUL("real queries", problemSUL))
-                //)
-                ;
-        learnOracle = new SULSymbolQueryOracle(learnSymbolCounterSUL = new SymbolCounterSUL("learner", learnQueryCounterSUL = new ResetCounterSUL("learner", realSUL)));
-        eqOracle = new SULOracle(eqSymbolCounterSUL = new SymbolCounterSUL("equivalence", eqQueryCounterSUL = new ResetCounterSUL("equivalence", realSUL)));
-        emOracle = new SULOracle(emSymbolCounterSUL = new SymbolCounterSUL("emptiness", emQueryCounterSUL = new ResetCounterSUL("emptiness", realSUL)));
-        inOracle = new SULOracle(inSymbolCounterSUL = new SymbolCounterSUL("inclusion", inQueryCounterSUL = new ResetCounterSUL("inclusion", realSUL)));
+        // the omega oracle observes the Problem, hence it keeps using the plain problemSUL.
+        final SnapshotProblemSUL snapshotProblemSUL = options.isSnapshot() ? new SnapshotProblemSUL(number) : null;
+        final CompiledProblemSUL compiledProblemSUL = options.isCompiled() && snapshotProblemSUL == null ?
+                new CompiledProblemSUL(number, options.isVerifyCompiled()) : null;
+        final ProblemSUL realProblemSUL;
+        if (snapshotProblemSUL != null) realProblemSUL = snapshotProblemSUL;
+        else if (compiledProblemSUL != null) realProblemSUL = compiledProblemSUL;
+        else realProblemSUL = problemSUL;
+
+        // triggered errors are recorded by the ProblemSULs, tagged with the oracle executing the query.
+        final ErrorIndex errorIndex = options.getErrors() != null ? new ErrorIndex(number) : null;
+        problemSUL.setErrorIndex(errorIndex);
+        if (realProblemSUL != problemSUL) realProblemSUL.setErrorIndex(errorIndex);
+        final BiFunction<String, IndexedSUL, IndexedSUL> tagged =
+                (name, sul) -> errorIndex != null ? new TaggingSUL(name, sul) : sul;
+
+        final ExperimentMetrics metrics = new ExperimentMetrics();
+        final ExperimentMetrics.Counters realCounters = metrics.get(ExperimentMetrics.Category.REAL);
+        final ExperimentMetrics.Counters learnCounters = metrics.get(ExperimentMetrics.Category.LEARN);
+        final ExperimentMetrics.Counters eqCounters = metrics.get(ExperimentMetrics.Category.EQ);
+        final ExperimentMetrics.Counters emCounters = metrics.get(ExperimentMetrics.Category.EM);
+        final ExperimentMetrics.Counters emOCounters = metrics.get(ExperimentMetrics.Category.EMO);
+        final ExperimentMetrics.Counters inCounters = metrics.get(ExperimentMetrics.Category.IN);
+
+        // the real counters are below the sink detection, so that symbols answered in a sink are not counted.
+        final SinkTrie sinkTrie = options.isSinkDetection() ? new SinkTrie(problemSUL.getSymbols()) : null;
+        final IndexedSUL countedSUL = new MetricsSUL(realCounters, realProblemSUL);
+        final IndexedSUL realSUL =
+                sinkTrie != null ? new SinkDetectingSUL(sinkTrie, new ProblemSUL(number), countedSUL) : countedSUL;
+
+        // the search for counter examples stops at the deadline, the learner itself is never interrupted.
+        final Deadline deadline = new Deadline();
+
+        // the real counters are below the cache, so that they only count cache misses.
+        // experiments of a batch on the same problem may share their query cache.
+        final QueryCache sharedCache;
+        if (options.getSharedQueryCaches() != null) {
+            sharedCache = options.getSharedQueryCaches().computeIfAbsent(number, n -> new QueryCache(problemSUL.getSymbols()));
+        } else {
+            sharedCache = options.isQueryCache() ? new QueryCache(problemSUL.getSymbols()) : null;
+        }
+        final List<QueryCacheSUL> queryCacheSULs = new ArrayList<>();
+        final Function<String, QueryCacheSUL> cached = name -> {
+            if (sharedCache == null) return null;
+            final QueryCacheSUL queryCacheSUL = new QueryCacheSUL(name, sharedCache, realSUL);
+            queryCacheSULs.add(queryCacheSUL);
+            return queryCacheSUL;
+        };
+
+        final QueryCacheSUL learnCache = cached.apply("learner");
+        final QueryCacheSUL eqCache = cached.apply("equivalence");
+        final QueryCacheSUL emCache = cached.apply("emptiness");
+        final QueryCacheSUL inCache = cached.apply("inclusion");
+
+        final IndexedSUL learnSUL = learnCache != null ? learnCache : realSUL;
+        final IndexedSUL eqSUL = eqCache != null ? eqCache : realSUL;
+        final IndexedSUL emSUL = emCache != null ? emCache : realSUL;
+        final IndexedSUL inSUL = inCache != null ? inCache : realSUL;
+
+        // the oracles translate the symbols of a query to indices once, the SULs below them pass indices.
+        SymbolQueryOracle learnSULOracle = new IndexedSULOracle(new MetricsSUL(learnCounters, tagged.apply("learner", learnSUL)));
+        SymbolQueryOracle eqSULOracle = new IndexedSULOracle(new DeadlineSUL(deadline, new MetricsSUL(eqCounters, tagged.apply("equivalence", eqSUL))));
+        SymbolQueryOracle emSULOracle = new IndexedSULOracle(new DeadlineSUL(deadline, new MetricsSUL(emCounters, tagged.apply("emptiness", emSUL))));
+        SymbolQueryOracle inSULOracle = new IndexedSULOracle(new DeadlineSUL(deadline, new MetricsSUL(inCounters, tagged.apply("inclusion", inSUL))));
+
+        // batches bypass the wrappers above the cache (or real SUL), and are counted in bulk.
+        if (options.isBatchQueries()) {
+            final boolean tagErrors = errorIndex != null;
+            learnSULOracle = new BatchSULOracle(learnSULOracle, learnCounters, tagErrors ? "learner" : null, null, learnSUL);
+            eqSULOracle = new BatchSULOracle(eqSULOracle, eqCounters, tagErrors ? "equivalence" : null, deadline, eqSUL);
+            emSULOracle = new BatchSULOracle(emSULOracle, emCounters, tagErrors ? "emptiness" : null, deadline, emSUL);
+            inSULOracle = new BatchSULOracle(inSULOracle, inCounters, tagErrors ? "inclusion" : null, deadline, inSUL);
+        }
+
+        // batches of queries are spread over forked ProblemSULs, symbol queries remain sequential.
+        final ExecutorService executor = threads > 1 ? ParallelSULOracle.newExecutor(threads) : null;
+        if (executor != null) {
+            learnOracle = new ParallelSULOracle(learnSULOracle, learnCounters, learnCache, realSUL, null, executor, threads);
+            eqOracle = new ParallelSULOracle(eqSULOracle, eqCounters, eqCache, realSUL, deadline, executor, threads);
+            emOracle = new ParallelSULOracle(emSULOracle, emCounters, emCache, realSUL, deadline, executor, threads);
+            inOracle = new ParallelSULOracle(inSULOracle, inCounters, inCache, realSUL, deadline, executor, threads);
+        } else {
+            learnOracle = learnSULOracle;
+            eqOracle = eqSULOracle;
+            emOracle = emSULOracle;
+            inOracle = inSULOracle;
+        }
 
-        emOOracle = AbstractSULOmegaOracle.newOracle(emOSymbolCounterSUL = new SymbolCounterObservableSUL("omega emptiness", emOQueryCounterSUL = new ResetCounterObservableSUL("omega emptiness", problemSUL)));
+        // batches of an equivalence oracle may run past its first counter example, hence they are only used on request.
+        final int batchSize = options.isEqBatches() ? threads * BATCH_SIZE_PER_THREAD : 1;
+
+        // the omega oracle observes the state of the Problem after every symbol, hence it can not be cached.
+        emOOracle = AbstractSULOmegaOracle.newOracle(new DeadlineSUL(deadline, new MetricsSUL(emOCounters, errorIndex != null ? new TaggingSUL("omega emptiness", problemSUL) : problemSUL)));
+
+        // the counts of the checkpoint are added to the metrics.
+        final Checkpoint checkpoint = options.getResume() != null ?
+                Checkpoint.read(options.getResume().toPath(), number, sharedCache, metrics) : null;
+        if (checkpoint != null) {
+            LOGGER.info(String.format("Resuming from %s (%d cached symbols, %d properties disproved)",
+                                      options.getResume(),
+                                      sharedCache.size(),
+                                      checkpoint.getCounterExamples().size()));
+            if (!checkpoint.getLearner().equals(learner.toString())) {
+                LOGGER.info(String.format("Checkpoint was written by %s, not %s", checkpoint.getLearner(), learner));
+            }
+        }
 
         //final SymbolQueryOracle realOracle = MealyCaches.createCache(alphabet, realCounter = new CounterSymbolQueryOracle(problemSUL, "real"));
         //learnCounter = new CounterOracle(realOracle, "learn");
@@ -222,11 +373,22 @@ public class RERSExperiment extends Experiment.MealyExperiment<String, String> {
         final Function<String, String> edgeParser = s -> s;
         final List<String> formulae = parseLTL(number, alternate);
 
+        // calls of the first model checker of a chain are prefetched concurrently below the model checker caches.
+        final boolean prefetch = options.getPropertyThreads() > 1;
+        final List<PrefetchCache<?>> prefetchCaches = new ArrayList<>();
+
+        // model checker calls that hold are shared with other runs through the result store; experiments in this JVM
+        // share one store per file.
+        final ModelCheckerResultStore resultStore =
+                options.getResultStore() != null ? ModelCheckerResultStore.open(options.getResultStore()) : null;
+
         final List<PropertyOracle.MealyPropertyOracle> monitorOracles = new ArrayList<>();
         if (monitor) {
             ModelChecker.MealyModelChecker modelChecker;
 
-            if (alternate) {
+            if (options.isJavaMonitor()) {
+                modelChecker = new MonitorModelChecker(alternate, Collections.singleton(DEADLOCK));
+            } else if (alternate) {
                 modelChecker =
                         new LTSminMonitorAlternatingBuilder().withString2Input(edgeParser).withString2Output(edgeParser)
                                                              .withSkipOutputs(Collections.singleton(DEADLOCK))
@@ -239,7 +401,27 @@ public class RERSExperiment extends Experiment.MealyExperiment<String, String> {
                                                            .create();
             }
 
-            if (cache) modelChecker = new SizeMealyModelCheckerCache(modelChecker);
+            // only calls that reach the model checker are timed, on whichever thread they run; calls answered by the
+            // result store, the prefetch cache, the incremental cache or the size cache are not.
+            modelChecker = new TimedModelChecker(modelChecker, metrics);
+
+            // the incremental wrapper must be directly on top of the (timed) model checker to reuse its product.
+            if (options.isIncremental()) modelChecker = new IncrementalModelChecker(modelChecker);
+
+            if (resultStore != null) {
+                modelChecker = new PersistentModelChecker(modelChecker,
+                                                          resultStore,
+                                                          (options.isJavaMonitor() ? "java-monitor" : "monitor") +
+                                                          ";alternate=" + alternate);
+            }
+
+            if (prefetch) {
+                final PrefetchingModelChecker prefetchingModelChecker = new PrefetchingModelChecker(modelChecker);
+                prefetchCaches.add(prefetchingModelChecker.getPrefetchCache());
+                modelChecker = prefetchingModelChecker;
+            }
+
+            if (options.isCache()) modelChecker = new SizeMealyModelCheckerCache(modelChecker);
 
             final EmptinessOracle.MealyEmptinessOracle emptinessOracle =
                     new MealyBFEmptinessOracle(emOracle, 1.0);
@@ -259,7 +441,11 @@ public class RERSExperiment extends Experiment.MealyExperiment<String, String> {
                                                                                               modelChecker)),
                                                                               i,
                                                                               mcType,
-                                                                              bbcType);
+                                                                              bbcType,
+                                                                              options.getTag(),
+                                                                              metrics,
+                                                                              deadline,
+                                                                              options.getResultSink());
                 monitorOracles.add(p);
             }
         }
@@ -268,24 +454,59 @@ public class RERSExperiment extends Experiment.MealyExperiment<String, String> {
         if (buchi) {
             ModelCheckerLasso.MealyModelCheckerLasso modelChecker;
 
-            if (alternate) {
+            if (options.isJavaBuchi()) {
+                modelChecker = new LassoModelChecker(alternate,
+                                                     Collections.singleton(DEADLOCK),
+                                                     options.getMinimumUnfolds(),
+                                                     options.getMultiplier());
+            } else if (alternate) {
                 modelChecker =
                         new LTSminLTLAlternatingBuilder().withString2Input(edgeParser).withString2Output(edgeParser).withSkipOutputs(Collections.singleton(DEADLOCK))
-                                                         .withMinimumUnfolds(minimumUnfolds).withMultiplier(multiplier)
+                                                         .withMinimumUnfolds(options.getMinimumUnfolds()).withMultiplier(options.getMultiplier())
                                                          //.withKeepFiles(true)
                                                          .create();
             } else {
                 modelChecker = new LTSminLTLIOBuilder().withString2Input(edgeParser).withString2Output(edgeParser)
                                                        .withSkipOutputs(Collections.singleton(DEADLOCK))
-                                                       .withMinimumUnfolds(minimumUnfolds).withMultiplier(multiplier)
+                                                       .withMinimumUnfolds(options.getMinimumUnfolds()).withMultiplier(options.getMultiplier())
                                                        //.withKeepFiles(true)
                                                        .create();
             }
 
-            if (cache) modelChecker = new SizeMealyModelCheckerLassoCache(modelChecker);
+            // only calls that reach the model checker are timed, see the monitor above.
+            modelChecker = new TimedModelCheckerLasso(modelChecker, metrics);
+
+            if (options.isIncremental()) modelChecker = new IncrementalModelCheckerLasso(modelChecker);
+
+            if (resultStore != null) {
+                modelChecker = new PersistentModelCheckerLasso(modelChecker,
+                                                              resultStore,
+                                                              (options.isJavaBuchi() ? "java-buchi" : "buchi") +
+                                                              ";alternate=" + alternate);
+            }
+
+            // lassos are unrolled on forks of the plain problemSUL, since their states are compared.
+            final ParallelLassoEmptinessOracle forkedLassoOracle =
+                    options.isForkedLasso() ? new ParallelLassoEmptinessOracle(problemSUL, emOCounters, deadline) : null;
+
+            // with monitors the Büchi model checker is second in the chain, and is only called for properties that the
+            // monitor did not disprove; prefetching would run LTSmin for all of them. Prefetched lassos are unrolled
+            // right away on the forked lasso oracle, in parallel.
+            if (prefetch && !monitor) {
+                final PrefetchingModelCheckerLasso prefetchingModelChecker =
+                        new PrefetchingModelCheckerLasso(modelChecker, forkedLassoOracle);
+                prefetchCaches.add(prefetchingModelChecker.getPrefetchCache());
+                modelChecker = prefetchingModelChecker;
+            }
+
+            if (options.isCache()) modelChecker = new SizeMealyModelCheckerLassoCache(modelChecker);
 
-            final LassoEmptinessOracle.MealyLassoEmptinessOracle lassoEmptinessOracle =
-                    new MealyLassoEmptinessOracleImpl(emOOracle);
+            final LassoEmptinessOracle.MealyLassoEmptinessOracle lassoEmptinessOracle;
+            if (forkedLassoOracle != null) {
+                lassoEmptinessOracle = forkedLassoOracle;
+            } else {
+                lassoEmptinessOracle = new MealyLassoEmptinessOracleImpl(emOOracle);
+            }
 
             final InclusionOracle.MealyInclusionOracle inclusionOracle =
                     new MealyBFInclusionOracle(inOracle, 1.0);
@@ -302,11 +523,23 @@ public class RERSExperiment extends Experiment.MealyExperiment<String, String> {
                                                                                               modelChecker)),
                                                                               i,
                                                                               mcType,
-                                                                              bbcType);
+                                                                              bbcType,
+                                                                              options.getTag(),
+                                                                              metrics,
+                                                                              deadline,
+                                                                              options.getResultSink());
                 buchiOracles.add(p);
             }
         }
 
+        // properties disproved before resuming are not checked again.
+        if (checkpoint != null) {
+            checkpoint.getCounterExamples().forEach((i, ce) -> {
+                if (monitor) ((RERSProperty) monitorOracles.get(i)).resume(ce);
+                if (buchi) ((RERSProperty) buchiOracles.get(i)).resume(ce);
+            });
+        }
+
         final List<PropertyOracle.MealyPropertyOracle> propertyOracles;
         if (monitor && buchi) {
             assert monitorOracles.size() == buchiOracles.size();
@@ -323,33 +556,100 @@ public class RERSExperiment extends Experiment.MealyExperiment<String, String> {
 
         assert propertyOracles != null;
 
+        final PropertyScheduler propertyScheduler =
+                prefetch ? new PropertyScheduler(propertyOracles, formulae, prefetchCaches, options.getPropertyThreads()) : null;
+
         EQOracleChain.MealyEQOracleChain equivalenceOracle = new EQOracleChain.MealyEQOracleChain();
 
         final BlackBoxOracle.MealyBlackBoxOracle blackBoxOracle;
-        if (disproveFirst) blackBoxOracle = new DisproveFirstOracle.MealyDisproveFirstOracle(propertyOracles);
-        else if (cexFirst) blackBoxOracle = new CExFirstOracle.MealyCExFirstOracle(propertyOracles);
+        if (options.isDisproveFirst()) blackBoxOracle = new DisproveFirstOracle.MealyDisproveFirstOracle(propertyOracles);
+        else if (options.isCexFirst()) blackBoxOracle = new CExFirstOracle.MealyCExFirstOracle(propertyOracles);
         else blackBoxOracle = null;
 
-        if (blackBoxOracle != null) equivalenceOracle.addOracle(blackBoxOracle);
-
-        equivalenceOracle.addOracle(new WpMethodEQOracle.MealyWpMethodEQOracle(eqOracle, 3));
-        if (randomWords) {
-            equivalenceOracle.addOracle(new EQOracleChain.MealyEQOracleChain(
-                    equivalenceOracle,
-                    new RandomWordsEQOracle.MealyRandomWordsEQOracle(
-                            eqOracle,
-                            number * 5,
-                            number * 50, 1000 * 1000 * 100,
-                            new Random(123456l))));
+        final MealyEquivalenceOracle propertyGuidedOracle;
+        if (blackBoxOracle != null) {
+            propertyGuidedOracle = propertyScheduler != null ? propertyScheduler.wrap(blackBoxOracle) : blackBoxOracle;
+        } else {
+            propertyGuidedOracle = null;
+        }
+
+        // the learner can not be seeded, hence it is steered towards the hypothesis of the checkpoint, before any other
+        // oracle sees the hypotheses of the re-learning.
+        if (checkpoint != null && checkpoint.getHypothesis() != null) {
+            final IndexedSUL resumeSUL = sharedCache != null ? new QueryCacheSUL("resume", sharedCache, realSUL) : realSUL;
+            final IndexedSUL countedResumeSUL =
+                    new DeadlineSUL(deadline, new MetricsSUL(eqCounters, tagged.apply("equivalence", resumeSUL)));
+            equivalenceOracle.addOracle(new WarmStartEQOracle(new IndexedSULOracle(countedResumeSUL),
+                                                              checkpoint.getHypothesis(),
+                                                              metrics));
+        }
+
+        // the adaptive oracle schedules property-guided search itself.
+        if (propertyGuidedOracle != null && !options.isAdaptiveEQ()) equivalenceOracle.addOracle(propertyGuidedOracle);
+
+        if (options.isAdaptiveEQ()) {
+            equivalenceOracle.addOracle(new AdaptiveEQOracle(propertyGuidedOracle,
+                                                             eqOracle,
+                                                             options.isRandomWords(),
+                                                             number * 5,
+                                                             number * 50,
+                                                             batchSize,
+                                                             metrics));
+        } else {
+            equivalenceOracle.addOracle(new WpMethodEQOracle.MealyWpMethodEQOracle(eqOracle, 3, batchSize));
+            if (options.isRandomWords()) {
+                equivalenceOracle.addOracle(new EQOracleChain.MealyEQOracleChain(
+                        equivalenceOracle,
+                        new RandomWordsEQOracle.MealyRandomWordsEQOracle(
+                                eqOracle,
+                                number * 5,
+                                number * 50, 1000 * 1000 * 100,
+                                new Random(123456l),
+                                batchSize)));
+            }
+        }
+
+        final Checkpointer checkpointer;
+        if (options.getCheckpoint() != null) {
+            checkpointer = new Checkpointer(equivalenceOracle,
+                                            options.getCheckpoint().toPath(),
+                                            number,
+                                            learner.toString(),
+                                            problemSUL.getSymbols(),
+                                            sharedCache,
+                                            (List) propertyOracles,
+                                            metrics);
+        } else {
+            checkpointer = null;
         }
+        final MealyEquivalenceOracle<String, String> checkpointedOracle =
+                checkpointer != null ? checkpointer : equivalenceOracle;
 
-        return new RERSExperiment(mealyLearner, new TimeOutEQOracle(equivalenceOracle, timeout), alphabet, propertyOracles);
+        return new RERSExperiment(mealyLearner, new TimeOutEQOracle(checkpointedOracle, options.getTimeout(), metrics, deadline), alphabet, propertyOracles, queryCacheSULs, snapshotProblemSUL, compiledProblemSUL, sinkTrie, propertyScheduler, errorIndex, executor, checkpointer, resultStore, metrics, deadline);
+    }
+
+    /**
+     * Releases the resources of this experiment: stops its threads, unregisters the checkpoint shutdown hook, and
+     * closes the model checker result store.
+     *
+     * @throws IOException when the result store can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (membershipExecutor != null) membershipExecutor.shutdownNow();
+        if (propertyScheduler != null) propertyScheduler.close();
+        if (checkpointer != null) checkpointer.close();
+        if (resultStore != null) resultStore.close();
     }
 
     /**
      * Constructs a List of LTL formulae in LTSmin format, for a given {@link Problem} number.
      *
+     * The formulae are rendered from the ASTs cached by {@link Constraints}, such that the in-process model checkers
+     * can look them up again without parsing.
+     *
      * @param number the Problem number.
+     * @param alternate whether to use alternating edge semantics.
      *
      * @return the List of LTL formulae.
      *
@@ -357,83 +657,14 @@ public class RERSExperiment extends Experiment.MealyExperiment<String, String> {
      */
     static List<String> parseLTL(int number, boolean alternate) throws FileNotFoundException {
 
-        final List<String> result = new ArrayList();
-        final InputStream is = RERSExperiment.class.getClass().getResourceAsStream(
-                String.format("/constraints-Problem%d.txt", number));
-
-        final Scanner fileScanner = new Scanner(is);
-
-        while(fileScanner.hasNextLine()) {
-
-            String line = fileScanner.nextLine();
-            line = line.replace("(", "( ");
-            line = line.replace(")", " )");
-
-            if (!line.isEmpty()) {
-
-                if (line.charAt(0) != '#') {
-                    final Scanner lineScanner = new Scanner(line);
-                    lineScanner.useDelimiter(" ");
-
-                    final StringBuilder sb = new StringBuilder();
-                    while (lineScanner.hasNext()) {
-                        final String token = lineScanner.next();
-
-                        // for spot
-//                        if (token.equals("true")) sb.append("true");
-//                        else if (token.equals("false")) sb.append("false");
-//                        else if (token.equals("(")) sb.append("(");
-//                        else if (token.equals(")")) sb.append(")");
-//                        else if (token.equals("!")) sb.append("!");
-//                        else if (token.equals("R")) sb.append(" R ");
-//                        else if (token.equals("U")) sb.append(" U ");
-//                        else if (token.equals("X")) sb.append("X ");
-//                        else if (token.equals("WU")) sb.append(" W ");
-//                        else if (token.equals("&")) sb.append(" && ");
-//                        else if (token.equals("|")) sb.append(" || ");
-//                        else if (token.matches("i[A-Z]")) {
-//                                sb.append("(\"input=='"); sb.append(token.charAt(1)); sb.append("'\")"); }
-//                        else if (token.matches("o[A-Z]")) {
-//                            sb.append("(\"input=='"); sb.append(token.charAt(1)); sb.append("'\")"); }
-//                        else throw new RuntimeException("I do not know what to do with token: " + token);
-
-                        final String input, output;
-                        if (alternate) {
-                            input = "letter";
-                            output = "letter";
-                        } else {
-                            input = "input";
-                            output = "output";
-                        }
-
-                        // for LTSmin
-                        if (token.equals("true")) sb.append("true");
-                        else if (token.equals("false")) sb.append("false");
-                        else if (token.equals("(")) sb.append("(");
-                        else if (token.equals(")")) sb.append(")");
-                        else if (token.equals("!")) sb.append("!");
-                        else if (token.equals("R")) sb.append(" R ");
-                        else if (token.equals("U")) sb.append(" U ");
-                        else if (token.equals("X")) sb.append("X ");
-                        else if (token.equals("WU")) sb.append(" W ");
-                        else if (token.equals("&")) sb.append(" && ");
-                        else if (token.equals("|")) sb.append(" || ");
-                        else if (token.matches("i[A-Z]")) { sb.append("("); sb.append(input); sb.append(" == \""); sb
-                                .append(token.charAt(1)); sb.append("\")"); }
-                        else if (token.matches("o[A-Z]")) { sb.append("("); sb.append(output); sb.append(" == \""); sb
-                                .append(token.charAt(1)); sb.append("\")"); }
-                        else throw new RuntimeException("I do not know what to do with token: " + token);
-                    }
-
-                    final String formula = sb.toString();
-                    result.add(formula);
-
-                    LOGGER.info(String.format("Parsed formula #%d: %s", result.size() - 1, formula));
-                }
-            }
-        }
+        final List<String> result = new ArrayList<>();
 
-        fileScanner.close();
+        for (Formula formula : Constraints.load(number, alternate)) {
+            final String text = formula.toString();
+            result.add(text);
+
+            LOGGER.info(String.format("Parsed formula #%d: %s", result.size() - 1, text));
+        }
 
         return result;
     }
@@ -14,7 +14,7 @@ import java.util.Collection;
 /**
  * Wrapper around a MealyBlackBoxProperty for several features:
  *
- *  - write a CSV line when a property is falsified,
+ *  - write a result when a property is falsified,
  *  - also try to falsify a property with a fixed number of loop unrolls,
  *  - also try to falsify a property without a LassoEmptinessOracle.
  */
@@ -39,23 +39,56 @@ public class RERSProperty implements PropertyOracle.MealyPropertyOracle<String,
 
     private final String bbo;
 
+    /**
+     * The tag of the experiment, {@code null} if the results are not tagged.
+     */
+    private final String tag;
+
+    private final ExperimentMetrics metrics;
+
+    private final Deadline deadline;
+
+    private final ResultSink resultSink;
+
+    /**
+     * The counter example of a {@link Checkpoint}, {@code null} if this property was not disproved before resuming.
+     */
+    private DefaultQuery<String, Word<String>> resumed;
+
     public RERSProperty(int problem,
                         String learner,
                         MealyPropertyOracle p,
                         int propertyNumber,
                         String mcType,
-                        String bbo) {
+                        String bbo,
+                        String tag,
+                        ExperimentMetrics metrics,
+                        Deadline deadline,
+                        ResultSink resultSink) {
         this.problem = problem;
         this.learner = learner;
         this.propertyOracle = p;
         this.propertyNumber = propertyNumber;
         this.mcType = mcType;
         this.bbo = bbo;
+        this.tag = tag;
+        this.metrics = metrics;
+        this.deadline = deadline;
+        this.resultSink = resultSink;
+    }
+
+    /**
+     * Marks this property as disproved by a previous run, such that it is not checked again.
+     *
+     * @param counterExample the counter example of the previous run.
+     */
+    public void resume(DefaultQuery<String, Word<String>> counterExample) {
+        resumed = counterExample;
     }
 
     @Override
     public boolean isDisproved() {
-        return propertyOracle.isDisproved();
+        return resumed != null || propertyOracle.isDisproved();
     }
 
     @Override
@@ -71,7 +104,7 @@ public class RERSProperty implements PropertyOracle.MealyPropertyOracle<String,
     @Nullable
     @Override
     public DefaultQuery getCounterExample() {
-        return propertyOracle.getCounterExample();
+        return resumed != null ? resumed : propertyOracle.getCounterExample();
     }
 
     /**
@@ -88,6 +121,12 @@ public class RERSProperty implements PropertyOracle.MealyPropertyOracle<String,
     @Override
     public DefaultQuery disprove(MealyMachine hypothesis, Collection inputs) throws ModelCheckingException {
 
+        // the result was written by the previous run.
+        if (resumed != null) return resumed;
+
+        // a model checker call can not be interrupted, hence it is not started after the deadline.
+        deadline.check();
+
         final DefaultQuery<String, Word<String>> result = propertyOracle.disprove(hypothesis, inputs);
 
         //{
@@ -124,29 +163,17 @@ public class RERSProperty implements PropertyOracle.MealyPropertyOracle<String,
         //    }
         //}
 
-        // write the CSV line.
+        // record the result, with the counts at this time.
         if (result != null) {
-            System.out.printf(
-                    "%d,%s,%s,%s,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d%n",
-                    problem,
-                    learner,
-                    mcType,
-                    bbo,
-                    propertyNumber,
-                    hypothesis.getStates().size(),
-                    RERSExperiment.getRealSymbolCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getLearnSymbolCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getEqSymbolCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getEmSymbolCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getEmOSymbolCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getInSymbolCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getRealQueryCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getLearnQueryCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getEqQueryCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getEmQueryCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getEmOQueryCounterSUL().getStatisticalData().getCount(),
-                    RERSExperiment.getInQueryCounterSUL().getStatisticalData().getCount(),
-                    result.getInput().length());
+            resultSink.write(new ResultSink.Result(tag,
+                                                   problem,
+                                                   learner,
+                                                   mcType,
+                                                   bbo,
+                                                   propertyNumber,
+                                                   hypothesis.getStates().size(),
+                                                   metrics.snapshot(),
+                                                   result.getInput().length()));
         }
 
         return result;
@@ -158,6 +185,7 @@ public class RERSProperty implements PropertyOracle.MealyPropertyOracle<String,
     public DefaultQuery findCounterExample(MealyMachine hypothesis, Collection inputs)
             throws ModelCheckingException {
 
+        deadline.check();
         return propertyOracle.findCounterExample(hypothesis, inputs);
     }
 }
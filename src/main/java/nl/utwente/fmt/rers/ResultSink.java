@@ -0,0 +1,142 @@
+package nl.utwente.fmt.rers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import lombok.Getter;
+
+/**
+ * Receives a {@link Result} for every disproved property, and writes them buffered.
+ *
+ * Sinks are thread-safe, and may be shared by the experiments of a {@link BatchRunner}. Results are only guaranteed to
+ * be written after {@link #flush()}; a sink flushes itself when the JVM shuts down.
+ *
+ * @author Jeroen Meijer
+ */
+public interface ResultSink extends Flushable, Closeable {
+
+    /**
+     * The formats of {@link #open(File, String, boolean)}.
+     */
+    String CSV = "csv", BINARY = "binary";
+
+    /**
+     * Records a disproved property.
+     *
+     * @param result the result.
+     */
+    void write(Result result);
+
+    /**
+     * Opens a sink.
+     *
+     * @param file the file to write to, {@code null} for stdout (which is not closed).
+     * @param format the format, {@link #CSV} or {@link #BINARY}.
+     * @param tagged whether results are tagged with the name of the experiment.
+     *
+     * @return the sink.
+     *
+     * @throws IOException when the file can not be created.
+     */
+    static ResultSink open(File file, String format, boolean tagged) throws IOException {
+        final OutputStream out;
+        if (file != null) {
+            out = new FileOutputStream(file);
+        } else {
+            out = new FilterOutputStream(new FileOutputStream(FileDescriptor.out)) {
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    this.out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+
+        final ResultSink sink;
+        switch (format) {
+            case CSV:
+                sink = new CsvResultSink(out, tagged);
+                break;
+            case BINARY:
+                sink = new BinaryResultSink(out);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown result format: " + format);
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                sink.flush();
+            } catch (IOException ignored) {
+                // the JVM is exiting, there is no one left to tell
+            }
+        }, "result-sink"));
+
+        return sink;
+    }
+
+    /**
+     * A disproved property, with the counts of the experiment at the time it was disproved.
+     */
+    @Getter
+    final class Result {
+
+        /**
+         * The name of the experiment, {@code null} if it is not tagged.
+         */
+        private final String tag;
+
+        private final int problem;
+
+        private final String learner;
+
+        private final String aut;
+
+        private final String bbo;
+
+        private final int property;
+
+        /**
+         * The number of states of the hypothesis that disproved the property.
+         */
+        private final int size;
+
+        private final ExperimentMetrics.Snapshot counts;
+
+        /**
+         * The length of the counter example.
+         */
+        private final int length;
+
+        public Result(String tag,
+                      int problem,
+                      String learner,
+                      String aut,
+                      String bbo,
+                      int property,
+                      int size,
+                      ExperimentMetrics.Snapshot counts,
+                      int length) {
+            this.tag = tag;
+            this.problem = problem;
+            this.learner = learner;
+            this.aut = aut;
+            this.bbo = bbo;
+            this.property = property;
+            this.size = size;
+            this.counts = counts;
+            this.length = length;
+        }
+    }
+}
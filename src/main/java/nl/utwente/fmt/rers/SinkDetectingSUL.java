@@ -0,0 +1,152 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Arrays;
+
+import nl.utwente.fmt.rers.problems.seq.Problem;
+
+/**
+ * A SUL that stops executing a query once the Problem is in an absorbing deadlock state (a sink), and answers the
+ * remaining symbols with {@link ProblemSUL#DEADLOCK}.
+ *
+ * When the delegate deadlocks after a prefix that is not in the {@link SinkTrie}, the prefix is replayed on a separate
+ * {@link #probe} Problem, and the state reached is a sink if every input keeps it in the same state (compared by
+ * {@link ProblemSnapshot}), without an output and without triggering an error. The verdict is added to the trie, so
+ * later queries with the same prefix are cut off without checking again.
+ *
+ * The delegate should count the real symbols, such that the symbols answered by this SUL are not counted as real; they
+ * are counted by {@link SinkTrie#getSavedSymbols()}.
+ *
+ * @author Jeroen Meijer
+ */
+public class SinkDetectingSUL implements IndexedSUL {
+
+    private final SinkTrie trie;
+
+    /**
+     * The ProblemSUL to check deadlock states with, it does not record errors.
+     */
+    private final ProblemSUL probe;
+
+    private final IndexedSUL delegate;
+
+    /**
+     * The index of {@link ProblemSUL#DEADLOCK}.
+     */
+    private final int deadlock;
+
+    /**
+     * The input indices of the current query.
+     */
+    private int[] inputs = new int[16];
+
+    private int length;
+
+    /**
+     * The node of the current query, {@code null} if the query left the trie.
+     */
+    private SinkTrie.Node current;
+
+    /**
+     * Whether the current query is in a sink.
+     */
+    private boolean sink;
+
+    /**
+     * Constructs a new SinkDetectingSUL.
+     *
+     * @param trie the sink prefixes, shared with forks.
+     * @param probe the ProblemSUL to check deadlock states with, which is not used otherwise.
+     * @param delegate the SUL to execute queries with.
+     */
+    public SinkDetectingSUL(SinkTrie trie, ProblemSUL probe, IndexedSUL delegate) {
+        this.trie = trie;
+        this.probe = probe;
+        this.delegate = delegate;
+        this.deadlock = probe.getDeadlock();
+    }
+
+    @Override
+    public void pre() {
+        length = 0;
+        current = trie.getRoot();
+        sink = false;
+        delegate.pre();
+    }
+
+    @Override
+    public void post() {
+        delegate.post();
+    }
+
+    @Override
+    public SymbolTable getSymbols() {
+        return trie.getSymbols();
+    }
+
+    @Override
+    public int step(int input) {
+        if (sink) {
+            trie.addSavedSymbols(1);
+            return deadlock;
+        }
+
+        if (length == inputs.length) inputs = Arrays.copyOf(inputs, length * 2);
+        inputs[length++] = input;
+
+        final int output = delegate.step(input);
+        if (current != null) current = trie.getSuccessor(current, input);
+
+        if (current != null && current.status == SinkTrie.SINK) {
+            sink = true;
+        } else if (output == deadlock &&
+                   (current == null ? !trie.isFull() : current.status == SinkTrie.UNKNOWN)) {
+            sink = isSink();
+            trie.add(inputs, length, sink ? SinkTrie.SINK : SinkTrie.LIVE);
+        }
+
+        return output;
+    }
+
+    /**
+     * Checks whether the current query leads to a sink, by replaying it on the {@link #probe}.
+     */
+    private boolean isSink() {
+        final Problem problem = probe.getProblem();
+        final SymbolTable symbols = trie.getSymbols();
+
+        problem.reset();
+        for (int i = 0; i < length; i++) probe.calculateOutput(inputs[i]);
+        trie.addProbedSymbols(length);
+
+        final ProblemSnapshot state = ProblemSnapshot.capture(problem);
+        final Boolean known = trie.isSink(state);
+        if (known != null) return known;
+
+        boolean absorbing = true;
+        for (int i = 0; absorbing && i < symbols.getInputSize(); i++) {
+            state.restore(problem);
+            final int status = probe.calculateOutput(i);
+            trie.addProbedSymbols(1);
+            absorbing = status != ProblemSUL.ERROR && probe.currentOutput() == deadlock &&
+                        state.equals(ProblemSnapshot.capture(problem));
+        }
+        trie.setSink(state, absorbing);
+
+        return absorbing;
+    }
+
+    @Override
+    public boolean canFork() {
+        return delegate.canFork();
+    }
+
+    /**
+     * Forks this SinkDetectingSUL, the fork shares the {@link SinkTrie}, and has its own probe.
+     *
+     * @return the forked SinkDetectingSUL.
+     */
+    @Override
+    public SinkDetectingSUL fork() {
+        return new SinkDetectingSUL(trie, probe.fork(), delegate.fork());
+    }
+}
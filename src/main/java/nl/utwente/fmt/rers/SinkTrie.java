@@ -0,0 +1,219 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * The prefixes that lead a Problem into a deadlock, stored as a trie over input symbols; see {@link SinkDetectingSUL}.
+ *
+ * Every prefix in the trie that was checked is marked as either {@link #SINK} (the Problem is in an absorbing deadlock
+ * state after it, so every extension outputs {@link ProblemSUL#DEADLOCK}), or {@link #LIVE} (the Problem deadlocked,
+ * but may still produce outputs or trigger errors). Additionally, the verdicts are stored per {@link ProblemSnapshot},
+ * such that a deadlock state that is reached by many prefixes is checked only once.
+ *
+ * A single SinkTrie is shared by all SinkDetectingSULs (and their forks) of an experiment, and it is thread-safe. The
+ * number of nodes, and the number of states, are bounded by {@link #maxNodes}.
+ *
+ * @author Jeroen Meijer
+ */
+public class SinkTrie {
+
+    /**
+     * The default maximum number of nodes.
+     */
+    public static final int DEFAULT_MAX_NODES = 100_000;
+
+    /**
+     * The status of a prefix that was not checked (yet).
+     */
+    static final int UNKNOWN = 0;
+
+    /**
+     * The status of a prefix that leads to an absorbing deadlock.
+     */
+    static final int SINK = 1;
+
+    /**
+     * The status of a prefix that leads to a deadlock that is not absorbing.
+     */
+    static final int LIVE = 2;
+
+    /**
+     * A node in the trie.
+     */
+    static final class Node {
+
+        final AtomicReferenceArray<Node> successors;
+
+        volatile int status = UNKNOWN;
+
+        Node(int inputSize) {
+            this.successors = new AtomicReferenceArray<>(inputSize);
+        }
+    }
+
+    @Getter
+    private final SymbolTable symbols;
+
+    @Getter
+    private final Node root;
+
+    @Getter
+    private final int maxNodes;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Whether each deadlock state checked so far is absorbing.
+     */
+    private final Map<ProblemSnapshot, Boolean> states = new ConcurrentHashMap<>();
+
+    /**
+     * The number of symbols answered without executing the Problem.
+     */
+    private final LongAdder savedSymbols = new LongAdder();
+
+    /**
+     * The number of symbols executed to check whether deadlocks are absorbing.
+     */
+    private final LongAdder probedSymbols = new LongAdder();
+
+    /**
+     * Constructs a new SinkTrie, that stores at most {@link #DEFAULT_MAX_NODES} nodes.
+     *
+     * @param symbols the symbols of the problem.
+     */
+    public SinkTrie(SymbolTable symbols) {
+        this(symbols, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Constructs a new SinkTrie.
+     *
+     * @param symbols the symbols of the problem.
+     * @param maxNodes the maximum number of nodes.
+     */
+    public SinkTrie(SymbolTable symbols, int maxNodes) {
+        this.symbols = symbols;
+        this.maxNodes = maxNodes;
+        this.root = new Node(symbols.getInputSize());
+    }
+
+    /**
+     * Returns the successor of the given node for the given input.
+     *
+     * @param node the node.
+     * @param input the index of the input.
+     *
+     * @return the successor, or {@code null} if the prefix is not in the trie.
+     */
+    Node getSuccessor(Node node, int input) {
+        return node.successors.get(input);
+    }
+
+    /**
+     * Adds a checked prefix to the trie.
+     *
+     * @param inputs the input indices of the prefix.
+     * @param length the length of the prefix.
+     * @param status the status of the prefix, {@link #SINK} or {@link #LIVE}.
+     */
+    void add(int[] inputs, int length, int status) {
+        Node node = root;
+        for (int i = 0; i < length; i++) {
+            Node successor = node.successors.get(inputs[i]);
+            if (successor == null) {
+                if (isFull()) return;
+                final Node newNode = new Node(symbols.getInputSize());
+                if (node.successors.compareAndSet(inputs[i], null, newNode)) {
+                    size.incrementAndGet();
+                    successor = newNode;
+                } else {
+                    successor = node.successors.get(inputs[i]);
+                }
+            }
+            node = successor;
+        }
+
+        node.status = status;
+    }
+
+    /**
+     * Returns whether the given deadlock state was found to be absorbing.
+     *
+     * @param state the state.
+     *
+     * @return the verdict, or {@code null} if the state was not checked yet.
+     */
+    Boolean isSink(ProblemSnapshot state) {
+        return states.get(state);
+    }
+
+    /**
+     * Stores whether the given deadlock state is absorbing.
+     *
+     * @param state the state.
+     * @param sink whether it is absorbing.
+     */
+    void setSink(ProblemSnapshot state, boolean sink) {
+        if (states.size() < maxNodes) states.putIfAbsent(state, sink);
+    }
+
+    void addSavedSymbols(long symbols) {
+        savedSymbols.add(symbols);
+    }
+
+    void addProbedSymbols(long symbols) {
+        probedSymbols.add(symbols);
+    }
+
+    /**
+     * Returns the number of nodes in this trie.
+     *
+     * @return the number of nodes.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns whether no more nodes can be added.
+     *
+     * @return whether this trie is full.
+     */
+    public boolean isFull() {
+        return size.get() >= maxNodes;
+    }
+
+    /**
+     * Returns the number of deadlock states that were found to be absorbing.
+     *
+     * @return the number of sink states.
+     */
+    public long getSinkStates() {
+        return states.values().stream().filter(sink -> sink).count();
+    }
+
+    /**
+     * Returns the number of symbols that did not have to be executed, because the query was in a sink.
+     *
+     * @return the number of saved symbols.
+     */
+    public long getSavedSymbols() {
+        return savedSymbols.sum();
+    }
+
+    /**
+     * Returns the number of symbols that were executed to check whether a deadlock is absorbing.
+     *
+     * @return the number of probed symbols.
+     */
+    public long getProbedSymbols() {
+        return probedSymbols.sum();
+    }
+}
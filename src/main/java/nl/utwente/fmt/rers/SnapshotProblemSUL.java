@@ -0,0 +1,176 @@
+package nl.utwente.fmt.rers;
+
+import java.io.FileNotFoundException;
+
+import nl.utwente.fmt.rers.problems.seq.Problem;
+
+/**
+ * A ProblemSUL that captures the state of the {@link Problem} after every symbol in a tree of {@link ProblemSnapshot}s.
+ *
+ * A query that follows a path in the tree is answered without executing the Problem. Only when the query leaves the
+ * tree, the Problem is restored to the snapshot of the last node on the path, and the remaining suffix is executed.
+ * Hence, replaying a prefix (e.g. by a cache, or by the Wp-method and emptiness oracles that extend the same prefixes
+ * with many suffixes) only costs the suffix.
+ *
+ * The number of snapshots is bounded by {@link #maxNodes}, after that queries outside the tree are just executed.
+ * Note that the Problem is only synchronized with the current query once the query left the tree, so this SUL must not
+ * be used to observe states; use a plain {@link ProblemSUL} for that.
+ *
+ * @author Jeroen Meijer
+ */
+public class SnapshotProblemSUL extends ProblemSUL {
+
+    /**
+     * The default maximum number of snapshots.
+     */
+    public static final int DEFAULT_MAX_NODES = 100_000;
+
+    private static final class Node {
+
+        /**
+         * The index of the output of the last input on the path from the root.
+         */
+        final int output;
+
+        final ProblemSnapshot snapshot;
+
+        /**
+         * The successors, indexed by the input index of the {@link SymbolTable}.
+         */
+        final Node[] successors;
+
+        Node(int output, ProblemSnapshot snapshot, int inputSize) {
+            this.output = output;
+            this.snapshot = snapshot;
+            this.successors = new Node[inputSize];
+        }
+    }
+
+    private final int maxNodes;
+
+    private final Node root;
+
+    private int nodes;
+
+    /**
+     * The node of the current query, or {@code null} if the query left the tree and no more snapshots can be added.
+     */
+    private Node current;
+
+    /**
+     * Whether the Problem is executing the current query (as opposed to lazily following the tree).
+     */
+    private boolean executing;
+
+    private long savedSymbols;
+
+    private long executedSymbols;
+
+    /**
+     * Constructs a new SnapshotProblemSUL, that stores at most {@link #DEFAULT_MAX_NODES} snapshots.
+     *
+     * @param number the problem number to instantiate
+     *
+     * @throws FileNotFoundException when the appropriate Java class can not be found.
+     */
+    public SnapshotProblemSUL(int number) throws FileNotFoundException {
+        this(number, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Constructs a new SnapshotProblemSUL.
+     *
+     * @param number the problem number to instantiate
+     * @param maxNodes the maximum number of snapshots to store.
+     *
+     * @throws FileNotFoundException when the appropriate Java class can not be found.
+     */
+    public SnapshotProblemSUL(int number, int maxNodes) throws FileNotFoundException {
+        super(number);
+        this.maxNodes = maxNodes;
+        getProblem().reset();
+        root = new Node(getDeadlock(), ProblemSnapshot.capture(getProblem()), getSymbols().getInputSize());
+    }
+
+    @Override
+    public void pre() {
+        current = root;
+        executing = false;
+    }
+
+    /**
+     * Clears the current query, the Problem itself is not reset, because it will be restored from a snapshot.
+     */
+    @Override
+    public void post() {
+        clearInputs();
+    }
+
+    @Override
+    public int step(int input) {
+        if (!executing) {
+            final Node successor = current.successors[input];
+            if (successor != null) {
+                savedSymbols++;
+                addInput(input);
+                current = successor;
+                return successor.output;
+            }
+
+            current.snapshot.restore(getProblem());
+            executing = true;
+        }
+
+        executedSymbols++;
+        final int output = super.step(input);
+
+        if (current != null) {
+            if (nodes < maxNodes) {
+                final Node successor =
+                        new Node(output, ProblemSnapshot.capture(getProblem()), getSymbols().getInputSize());
+                current.successors[input] = successor;
+                nodes++;
+                current = successor;
+            } else current = null;
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the number of symbols that did not have to be executed, compared to resetting and replaying every query.
+     *
+     * @return the number of saved symbols.
+     */
+    public long getSavedSymbols() {
+        return savedSymbols;
+    }
+
+    /**
+     * Returns the number of symbols that were executed on the Problem.
+     *
+     * @return the number of executed symbols.
+     */
+    public long getExecutedSymbols() {
+        return executedSymbols;
+    }
+
+    /**
+     * Forks this SnapshotProblemSUL, the fork has its own tree of snapshots, and records errors in the same
+     * {@link ErrorIndex}.
+     *
+     * @return the forked SnapshotProblemSUL.
+     *
+     * @throws UnsupportedOperationException when the appropriate Java class can not be found.
+     */
+    @Override
+    public SnapshotProblemSUL fork() throws UnsupportedOperationException {
+        try {
+            final SnapshotProblemSUL problemSUL = new SnapshotProblemSUL(number, maxNodes);
+            problemSUL.setErrorIndex(getErrorIndex());
+            return problemSUL;
+        } catch (FileNotFoundException ex) {
+            throw new UnsupportedOperationException(ex);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import nl.utwente.fmt.rers.problems.seq.Problem;
+
+/**
+ * A bidirectional mapping between the symbols of a {@link Problem} and dense integer indices.
+ *
+ * The inputs of the Problem have the indices {@code 0} to {@code getInputSize() - 1}, in the order of
+ * {@link Problem#getInputs()}; outputs are added as they are observed. Every symbol has a single canonical String
+ * instance, such that caches storing symbols share them.
+ *
+ * There is one SymbolTable per problem, shared by all ProblemSULs (and their forks) of that problem.
+ *
+ * @author Jeroen Meijer
+ */
+public final class SymbolTable {
+
+    private static final Map<Integer, SymbolTable> TABLES = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> indices = new ConcurrentHashMap<>();
+
+    private final int inputSize;
+
+    private volatile String[] symbols;
+
+    private SymbolTable(String[] inputs) {
+        symbols = new String[0];
+        for (String input : inputs) index(input);
+        inputSize = symbols.length;
+    }
+
+    /**
+     * Returns the SymbolTable of the given problem.
+     *
+     * @param number the problem number.
+     * @param inputs the inputs of the problem.
+     *
+     * @return the SymbolTable.
+     */
+    public static SymbolTable forProblem(int number, String[] inputs) {
+        return TABLES.computeIfAbsent(number, n -> new SymbolTable(inputs));
+    }
+
+    /**
+     * Returns the number of inputs.
+     *
+     * @return the number of inputs.
+     */
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Returns the number of symbols (inputs and outputs) seen so far.
+     *
+     * @return the number of symbols.
+     */
+    public int size() {
+        return symbols.length;
+    }
+
+    /**
+     * Returns the index of the given symbol, adding it if it was not seen before.
+     *
+     * @param symbol the symbol.
+     *
+     * @return the index.
+     */
+    public int index(String symbol) {
+        final Integer index = indices.get(symbol);
+        if (index != null) return index;
+
+        synchronized (this) {
+            final Integer existing = indices.get(symbol);
+            if (existing != null) return existing;
+
+            final String[] newSymbols = Arrays.copyOf(symbols, symbols.length + 1);
+            newSymbols[symbols.length] = symbol;
+            symbols = newSymbols;
+            indices.put(symbol, symbols.length - 1);
+
+            return symbols.length - 1;
+        }
+    }
+
+    /**
+     * Returns the index of the given input.
+     *
+     * @param input the input.
+     *
+     * @return the index, between {@code 0} and {@link #getInputSize()}.
+     *
+     * @throws IllegalArgumentException when the symbol is not an input of the problem.
+     */
+    public int inputIndex(String input) {
+        final Integer index = indices.get(input);
+        if (index == null || index >= inputSize) throw new IllegalArgumentException("not an input: " + input);
+
+        return index;
+    }
+
+    /**
+     * Returns the symbol with the given index.
+     *
+     * @param index the index.
+     *
+     * @return the (canonical) symbol.
+     */
+    public String symbol(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * Returns the canonical instance of the given symbol.
+     *
+     * @param symbol the symbol.
+     *
+     * @return the canonical instance.
+     */
+    public String intern(String symbol) {
+        return symbol == null ? null : symbol(index(symbol));
+    }
+}
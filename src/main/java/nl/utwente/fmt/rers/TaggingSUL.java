@@ -0,0 +1,73 @@
+package nl.utwente.fmt.rers;
+
+import de.learnlib.api.ObservableSUL;
+
+/**
+ * A SUL that tells the {@link ErrorIndex} which oracle executes the current query, by setting the oracle name on the
+ * executing thread in {@link #pre()}, and clearing it in {@link #post()}.
+ *
+ * The state can only be observed if the delegate is an {@link ObservableSUL}.
+ *
+ * @param <S> the state type.
+ *
+ * @author Jeroen Meijer
+ */
+public class TaggingSUL<S> implements ObservableSUL<S, String, String>, IndexedSUL {
+
+    private final String oracle;
+
+    private final IndexedSUL delegate;
+
+    public TaggingSUL(String oracle, IndexedSUL delegate) {
+        this.oracle = oracle;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void pre() {
+        ErrorIndex.setOracle(oracle);
+        delegate.pre();
+    }
+
+    @Override
+    public void post() {
+        try {
+            delegate.post();
+        } finally {
+            ErrorIndex.setOracle(null);
+        }
+    }
+
+    @Override
+    public SymbolTable getSymbols() {
+        return delegate.getSymbols();
+    }
+
+    @Override
+    public int step(int input) {
+        return delegate.step(input);
+    }
+
+    @Override
+    public boolean canFork() {
+        return delegate.canFork();
+    }
+
+    @Override
+    public TaggingSUL<S> fork() {
+        return new TaggingSUL<>(oracle, delegate.fork());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public S getState() {
+        if (!(delegate instanceof ObservableSUL)) throw new UnsupportedOperationException("state is not observable");
+
+        return ((ObservableSUL<S, String, String>) delegate).getState();
+    }
+
+    @Override
+    public boolean deepCopies() {
+        return delegate instanceof ObservableSUL && ((ObservableSUL<?, ?, ?>) delegate).deepCopies();
+    }
+}
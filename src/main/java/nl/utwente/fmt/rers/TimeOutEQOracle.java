@@ -1,7 +1,5 @@
 package nl.utwente.fmt.rers;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.Collection;
 
 import javax.annotation.Nullable;
@@ -12,58 +10,79 @@ import de.learnlib.api.query.DefaultQuery;
 import net.automatalib.automata.transout.MealyMachine;
 import net.automatalib.words.Word;
 
+/**
+ * An equivalence oracle that stops finding counter examples once a timeout is reached.
+ *
+ * The timeout arms a {@link Deadline} on the first call, which cuts off the search within a single query or model
+ * checker call. A counter example found before the deadline is used, even if the call returns after the deadline.
+ *
+ * The queries and symbols of a call that does not produce a counter example are useless; they are recorded as
+ * discarded in the {@link ExperimentMetrics}, instead of being subtracted from the counts.
+ */
 public class TimeOutEQOracle implements EquivalenceOracle.MealyEquivalenceOracle<String, String> {
 
     public static final LearnLogger LOGGER = LearnLogger.getLogger(TimeOutEQOracle.class);
 
     private final int seconds;
 
-    private Instant start;
-
     private final MealyEquivalenceOracle<String, String> eqOracle;
 
-    public TimeOutEQOracle(MealyEquivalenceOracle<String, String> eqOracle, int seconds) {
+    private final ExperimentMetrics metrics;
+
+    private final ExperimentMetrics.Counters eqCounters, realCounters;
+
+    private final Deadline deadline;
+
+    public TimeOutEQOracle(MealyEquivalenceOracle<String, String> eqOracle,
+                           int seconds,
+                           ExperimentMetrics metrics,
+                           Deadline deadline) {
         this.eqOracle = eqOracle;
         this.seconds = seconds;
+        this.deadline = deadline;
+        this.metrics = metrics;
+        this.eqCounters = metrics.get(ExperimentMetrics.Category.EQ);
+        this.realCounters = metrics.get(ExperimentMetrics.Category.REAL);
     }
 
     @Nullable
     @Override
     public DefaultQuery<String, Word<String>> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
                                                                  Collection<? extends String> inputs) {
-        if (start == null) start = Instant.now();
+        if (seconds != -1 && !deadline.isArmed()) deadline.arm(seconds);
+        metrics.setHypothesisSize(hypothesis.size());
 
-        long queries = RERSExperiment.getEqQueryCounterSUL().getStatisticalData().getCount();
-        long symbols = RERSExperiment.getEqSymbolCounterSUL().getStatisticalData().getCount();
-
-        long realQueries = RERSExperiment.getRealQueryCounterSUL().getStatisticalData().getCount();
-        long realSymbols = RERSExperiment.getRealSymbolCounterSUL().getStatisticalData().getCount();
+        if (deadline.isExceeded()) {
+            LOGGER.info("Timeout reached.");
+            return null;
+        }
 
-        DefaultQuery<String, Word<String>> ce = eqOracle.findCounterExample(hypothesis, inputs);
+        final long queries = eqCounters.getQueries();
+        final long symbols = eqCounters.getSymbols();
 
-        final Instant end = Instant.now();
-        final Duration timeElapsed = Duration.between(start, end);
+        final long realQueries = realCounters.getQueries();
+        final long realSymbols = realCounters.getSymbols();
 
-        if (timeElapsed.getSeconds() > seconds && seconds != -1) {
+        DefaultQuery<String, Word<String>> ce;
+        try {
+            ce = eqOracle.findCounterExample(hypothesis, inputs);
+        } catch (Deadline.ExceededException dee) {
             LOGGER.info("Timeout reached.");
-            if (ce != null) LOGGER.info("Not using counter example!");
             ce = null;
         }
 
         if (ce == null) {
-            queries = RERSExperiment.getEqQueryCounterSUL().getStatisticalData().getCount() - queries;
-            LOGGER.info("Useless equivalence queries: " + queries);
-            symbols = RERSExperiment.getEqSymbolCounterSUL().getStatisticalData().getCount() - symbols;
-            LOGGER.info("Useless equivalence symbols: " + symbols);
-            RERSExperiment.getEqQueryCounterSUL().getStatisticalData().increment(-queries);
-            RERSExperiment.getEqSymbolCounterSUL().getStatisticalData().increment(-symbols);
-
-            realQueries = RERSExperiment.getRealQueryCounterSUL().getStatisticalData().getCount() - realQueries;
-            LOGGER.info("Real useless queries: " + realQueries);
-            realSymbols = RERSExperiment.getRealSymbolCounterSUL().getStatisticalData().getCount() - realSymbols;
-            LOGGER.info("Real useless symbols: " + realSymbols);
-            RERSExperiment.getRealQueryCounterSUL().getStatisticalData().increment(-realQueries);
-            RERSExperiment.getRealSymbolCounterSUL().getStatisticalData().increment(-realSymbols);
+            final long uselessQueries = eqCounters.getQueries() - queries;
+            LOGGER.info("Useless equivalence queries: " + uselessQueries);
+            final long uselessSymbols = eqCounters.getSymbols() - symbols;
+            LOGGER.info("Useless equivalence symbols: " + uselessSymbols);
+            eqCounters.discard(uselessQueries, uselessSymbols);
+
+            final long uselessRealQueries = realCounters.getQueries() - realQueries;
+            LOGGER.info("Real useless queries: " + uselessRealQueries);
+            final long uselessRealSymbols = realCounters.getSymbols() - realSymbols;
+            LOGGER.info("Real useless symbols: " + uselessRealSymbols);
+            realCounters.discard(uselessRealQueries, uselessRealSymbols);
         }
 
         return ce;
@@ -0,0 +1,71 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.ModelChecker;
+
+/**
+ * A MealyModelChecker that records the number and duration of calls per formula in the {@link ExperimentMetrics}.
+ *
+ * It wraps the model checker itself, below the caching and prefetching wrappers, such that cache lookups are not
+ * recorded as calls, and calls on the threads of a {@link PropertyScheduler} are recorded as well.
+ *
+ * It is an {@link IncrementalSearch} that forwards the {@link ProductReuse} to the wrapped model checker, if that is an
+ * IncrementalSearch too, such that an incremental wrapper on top of it can still reuse the explored product.
+ *
+ * @param <R> the type of counter example.
+ *
+ * @author Jeroen Meijer
+ */
+public class TimedModelChecker<R> implements ModelChecker.MealyModelChecker<String, String, String, R>,
+                                                 IncrementalSearch<R> {
+
+    private final ModelChecker.MealyModelChecker<String, String, String, R> modelChecker;
+
+    private final ExperimentMetrics metrics;
+
+    public TimedModelChecker(ModelChecker.MealyModelChecker<String, String, String, R> modelChecker,
+                             ExperimentMetrics metrics) {
+        this.modelChecker = modelChecker;
+        this.metrics = metrics;
+    }
+
+    @Nullable
+    @Override
+    public R findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                Collection<? extends String> inputs,
+                                String property) throws ModelCheckingException {
+        final long start = System.nanoTime();
+        try {
+            return modelChecker.findCounterExample(hypothesis, inputs, property);
+        } finally {
+            metrics.getModelChecker(property).record(System.nanoTime() - start);
+        }
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public R findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                Collection<? extends String> inputs,
+                                String property,
+                                ProductReuse reuse) throws ModelCheckingException {
+        if (!isReusing()) return findCounterExample(hypothesis, inputs, property);
+
+        final long start = System.nanoTime();
+        try {
+            return ((IncrementalSearch<R>) modelChecker).findCounterExample(hypothesis, inputs, property, reuse);
+        } finally {
+            metrics.getModelChecker(property).record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean isReusing() {
+        return modelChecker instanceof IncrementalSearch && ((IncrementalSearch<?>) modelChecker).isReusing();
+    }
+}
@@ -0,0 +1,94 @@
+package nl.utwente.fmt.rers;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.Lasso.MealyLasso;
+import net.automatalib.modelchecking.ModelCheckerLasso;
+
+/**
+ * A MealyModelCheckerLasso that records the number and duration of calls per formula in the
+ * {@link ExperimentMetrics}.
+ *
+ * It wraps the model checker itself, below the caching and prefetching wrappers, such that cache lookups are not
+ * recorded as calls, and calls on the threads of a {@link PropertyScheduler} are recorded as well.
+ *
+ * It is an {@link IncrementalSearch} that forwards the {@link ProductReuse} to the wrapped model checker, if that is an
+ * IncrementalSearch too, such that an incremental wrapper on top of it can still reuse the explored product.
+ *
+ * @author Jeroen Meijer
+ */
+public class TimedModelCheckerLasso implements ModelCheckerLasso.MealyModelCheckerLasso<String, String, String>,
+                                               IncrementalSearch<MealyLasso<String, String>> {
+
+    private final ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> modelChecker;
+
+    private final ExperimentMetrics metrics;
+
+    public TimedModelCheckerLasso(ModelCheckerLasso.MealyModelCheckerLasso<String, String, String> modelChecker,
+                                  ExperimentMetrics metrics) {
+        this.modelChecker = modelChecker;
+        this.metrics = metrics;
+    }
+
+    @Nullable
+    @Override
+    public MealyLasso<String, String> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                         Collection<? extends String> inputs,
+                                                         String property) throws ModelCheckingException {
+        final long start = System.nanoTime();
+        try {
+            return modelChecker.findCounterExample(hypothesis, inputs, property);
+        } finally {
+            metrics.getModelChecker(property).record(System.nanoTime() - start);
+        }
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public MealyLasso<String, String> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                         Collection<? extends String> inputs,
+                                                         String property,
+                                                         ProductReuse reuse) throws ModelCheckingException {
+        if (!isReusing()) return findCounterExample(hypothesis, inputs, property);
+
+        final long start = System.nanoTime();
+        try {
+            return ((IncrementalSearch<MealyLasso<String, String>>) modelChecker).findCounterExample(hypothesis,
+                                                                                                     inputs,
+                                                                                                     property,
+                                                                                                     reuse);
+        } finally {
+            metrics.getModelChecker(property).record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean isReusing() {
+        return modelChecker instanceof IncrementalSearch && ((IncrementalSearch<?>) modelChecker).isReusing();
+    }
+
+    @Override
+    public double getMultiplier() {
+        return modelChecker.getMultiplier();
+    }
+
+    @Override
+    public void setMultiplier(double multiplier) throws IllegalArgumentException {
+        modelChecker.setMultiplier(multiplier);
+    }
+
+    @Override
+    public int getMinimumUnfolds() {
+        return modelChecker.getMinimumUnfolds();
+    }
+
+    @Override
+    public void setMinimumUnfolds(int minimumUnfolds) throws IllegalArgumentException {
+        modelChecker.setMinimumUnfolds(minimumUnfolds);
+    }
+}
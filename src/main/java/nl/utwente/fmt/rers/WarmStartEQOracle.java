@@ -0,0 +1,132 @@
+package nl.utwente.fmt.rers;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+
+import javax.annotation.Nullable;
+
+import de.learnlib.api.logging.LearnLogger;
+import de.learnlib.api.oracle.EquivalenceOracle;
+import de.learnlib.api.oracle.MembershipOracle;
+import de.learnlib.api.query.DefaultQuery;
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.words.Word;
+
+/**
+ * An equivalence oracle that steers a learner towards the hypothesis of a {@link Checkpoint}.
+ *
+ * LearnLib learners can not be seeded with a hypothesis, hence a resumed learner starts from scratch. This oracle
+ * searches the product of the current and the saved hypothesis for words on which they disagree, and returns such a
+ * word as a counter example when the SUL agrees with the saved hypothesis. Since the {@link QueryCache} is restored
+ * from the same checkpoint, these queries are (mostly) answered from the cache, and the learner converges to the saved
+ * hypothesis without executing the SUL.
+ *
+ * Once the current hypothesis has no disagreement with the saved one that the SUL confirms, this oracle is exhausted,
+ * and the remaining oracles of the chain take over; hence it must be the first oracle of the chain, such that no
+ * properties are checked on the hypotheses of the re-learning.
+ *
+ * The counts of the checkpoint are restored into the metrics, so the queries of the re-learning would be counted
+ * twice. When this oracle is exhausted, all work counted since it was constructed is therefore marked as discarded.
+ *
+ * @author Jeroen Meijer
+ */
+public class WarmStartEQOracle implements EquivalenceOracle.MealyEquivalenceOracle<String, String> {
+
+    public static final LearnLogger LOGGER = LearnLogger.getLogger(WarmStartEQOracle.class);
+
+    private final MembershipOracle.MealyMembershipOracle<String, String> oracle;
+
+    private final ExperimentMetrics metrics;
+
+    /**
+     * The useful queries and symbols of every category when the re-learning started.
+     */
+    private final ExperimentMetrics.Snapshot restored;
+
+    /**
+     * The saved hypothesis, {@code null} when this oracle is exhausted.
+     */
+    private HypothesisSnapshot saved;
+
+    /**
+     * Constructs a new WarmStartEQOracle.
+     *
+     * @param oracle the membership oracle to confirm disagreements with.
+     * @param saved the hypothesis of the checkpoint.
+     * @param metrics the counts of the experiment, to which the counts of the checkpoint have been added.
+     */
+    public WarmStartEQOracle(MembershipOracle.MealyMembershipOracle<String, String> oracle,
+                             HypothesisSnapshot saved,
+                             ExperimentMetrics metrics) {
+        this.oracle = oracle;
+        this.saved = saved;
+        this.metrics = metrics;
+        this.restored = metrics.snapshot();
+    }
+
+    @Nullable
+    @Override
+    public DefaultQuery<String, Word<String>> findCounterExample(MealyMachine<?, String, ?, String> hypothesis,
+                                                                 Collection<? extends String> inputs) {
+        if (saved == null) return null;
+
+        final HypothesisSnapshot current = HypothesisSnapshot.of(hypothesis, inputs);
+        final List<String> alphabet = current.getInputs();
+        final int[] savedInput = new int[alphabet.size()];
+        for (int i = 0; i < alphabet.size(); i++) savedInput[i] = saved.getInputs().indexOf(alphabet.get(i));
+
+        // breadth-first over pairs of states, such that the shortest disagreements are tried first
+        final Map<Long, Word<String>> access = new HashMap<>();
+        final Queue<Long> queue = new ArrayDeque<>();
+        if (current.size() > 0 && saved.size() > 0) {
+            access.put(0L, Word.epsilon());
+            queue.add(0L);
+        }
+
+        while (!queue.isEmpty()) {
+            final long pair = queue.poll();
+            final int c = (int) (pair >>> 32), s = (int) pair;
+            final Word<String> prefix = access.get(pair);
+
+            for (int i = 0; i < alphabet.size(); i++) {
+                final int cSucc = current.getSuccessor(c, i);
+                final int sSucc = savedInput[i] == -1 ? -1 : saved.getSuccessor(s, savedInput[i]);
+                if (cSucc == -1 || sSucc == -1) continue;
+
+                final Word<String> word = prefix.append(alphabet.get(i));
+                if (!Objects.equals(current.getOutput(c, i), saved.getOutput(s, savedInput[i]))) {
+                    final DefaultQuery<String, Word<String>> query = new DefaultQuery<>(word);
+                    oracle.processQueries(Collections.singleton(query));
+                    if (!query.getOutput().equals(hypothesis.computeOutput(word))) {
+                        LOGGER.info(String.format("Warm start counter example of length %d", word.length()));
+                        return query;
+                    }
+                    continue;
+                }
+
+                final long key = (long) cSucc << 32 | sSucc;
+                if (access.putIfAbsent(key, word) == null) queue.add(key);
+            }
+        }
+
+        saved = null;
+
+        // the re-learning repeated work that the restored counts already include.
+        long discarded = 0;
+        for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+            final ExperimentMetrics.Counters counters = metrics.get(category);
+            final long queries = counters.getUsefulQueries() - restored.getQueries(category);
+            counters.discard(queries, counters.getUsefulSymbols() - restored.getSymbols(category));
+            if (category != ExperimentMetrics.Category.REAL) discarded += queries;
+        }
+        LOGGER.info(String.format("Warm start exhausted, %d queries of the re-learning discarded", discarded));
+
+        return null;
+    }
+}
@@ -0,0 +1,139 @@
+package nl.utwente.fmt.rers.ltl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * A state-labeled generalized Büchi automaton.
+ *
+ * A letter is read when a state is entered; the letter must satisfy all {@link #positive} and {@link #negative}
+ * propositions of that state. A run is accepting if it visits every acceptance set infinitely often; if there are no
+ * acceptance sets every infinite run is accepting.
+ *
+ * @author Jeroen Meijer
+ */
+@Getter
+public final class BuchiAutomaton {
+
+    private final int size;
+
+    private final int[][] successors;
+
+    private final int[] initialStates;
+
+    private final Proposition[][] positive;
+
+    private final Proposition[][] negative;
+
+    /**
+     * The number of acceptance sets, at most 64.
+     */
+    private final int acceptanceSets;
+
+    /**
+     * For every state the acceptance sets it is in, as a bit mask.
+     */
+    private final long[] acceptance;
+
+    BuchiAutomaton(int[][] successors,
+                   int[] initialStates,
+                   Proposition[][] positive,
+                   Proposition[][] negative,
+                   int acceptanceSets,
+                   long[] acceptance) {
+        this.size = successors.length;
+        this.successors = successors;
+        this.initialStates = initialStates;
+        this.positive = positive;
+        this.negative = negative;
+        this.acceptanceSets = acceptanceSets;
+        this.acceptance = acceptance;
+    }
+
+    /**
+     * Returns the bit mask with all acceptance sets.
+     *
+     * @return the mask.
+     */
+    public long getAllAcceptanceSets() {
+        return acceptanceSets == 64 ? -1L : (1L << acceptanceSets) - 1;
+    }
+
+    /**
+     * Returns whether the given letter may be read when entering the given state.
+     *
+     * @param state the state.
+     * @param letter the letter.
+     *
+     * @return whether the state's label holds for the letter.
+     */
+    public boolean matches(int state, String[] letter) {
+        for (Proposition p : positive[state]) if (!p.holds(letter)) return false;
+        for (Proposition p : negative[state]) if (p.holds(letter)) return false;
+
+        return true;
+    }
+
+    /**
+     * Returns whether some letter satisfies the label of the given state. Assumes that every variable can take a value
+     * other than the ones mentioned in the formula.
+     *
+     * @param state the state.
+     *
+     * @return whether the label is satisfiable.
+     */
+    public boolean isSatisfiable(int state) {
+        for (Proposition p : positive[state]) {
+            for (Proposition q : positive[state]) {
+                if (p.getSlot() == q.getSlot() && !p.getValue().equals(q.getValue())) return false;
+            }
+            for (Proposition q : negative[state]) {
+                if (p.getSlot() == q.getSlot() && p.getValue().equals(q.getValue())) return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the states from which some infinite word is accepted.
+     *
+     * @return the live states.
+     */
+    public BitSet getLiveStates() {
+        final BitSet satisfiable = new BitSet(size);
+        for (int s = 0; s < size; s++) if (isSatisfiable(s)) satisfiable.set(s);
+
+        final SCCs sccs = new SCCs(size, s -> satisfiable.get(s) ? successors[s] : null);
+
+        // a component is accepting if it has a cycle, and intersects every acceptance set
+        final long[] componentAcceptance = new long[sccs.getCount()];
+        for (int s = 0; s < size; s++) {
+            if (satisfiable.get(s)) componentAcceptance[sccs.getComponents()[s]] |= acceptance[s];
+        }
+
+        // components are numbered in reverse topological order, so successors are decided first
+        final List<List<Integer>> members = new ArrayList<>();
+        for (int c = 0; c < sccs.getCount(); c++) members.add(new ArrayList<>());
+        for (int s = 0; s < size; s++) if (satisfiable.get(s)) members.get(sccs.getComponents()[s]).add(s);
+
+        final boolean[] live = new boolean[sccs.getCount()];
+        final long all = getAllAcceptanceSets();
+        for (int c = 0; c < sccs.getCount(); c++) {
+            live[c] = sccs.getNontrivial()[c] && (componentAcceptance[c] & all) == all;
+            for (int s : members.get(c)) {
+                for (int t : successors[s]) {
+                    if (satisfiable.get(t) && live[sccs.getComponents()[t]]) live[c] = true;
+                }
+            }
+        }
+
+        final BitSet result = new BitSet(size);
+        for (int s = 0; s < size; s++) if (satisfiable.get(s) && live[sccs.getComponents()[s]]) result.set(s);
+
+        return result;
+    }
+}
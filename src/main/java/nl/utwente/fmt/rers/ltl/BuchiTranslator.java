@@ -0,0 +1,250 @@
+package nl.utwente.fmt.rers.ltl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Translates LTL formulae to generalized Büchi automata, with the tableau construction of Gerth, Peled, Vardi and
+ * Wolper ("Simple on-the-fly automatic verification of linear temporal logic", 1995).
+ *
+ * Nodes are expanded with an explicit work list instead of recursion, such that large formulae do not overflow the
+ * stack.
+ *
+ * @author Jeroen Meijer
+ */
+public final class BuchiTranslator {
+
+    /**
+     * The incoming "node" of initial nodes.
+     */
+    private static final int INIT = -1;
+
+    private BuchiTranslator() {
+    }
+
+    private static final class Node {
+
+        final Set<Integer> incoming = new HashSet<>();
+
+        final Set<Formula> todo = new LinkedHashSet<>();
+
+        final Set<Formula> old = new HashSet<>();
+
+        final Set<Formula> next = new HashSet<>();
+
+        Node copy() {
+            final Node copy = new Node();
+            copy.incoming.addAll(incoming);
+            copy.todo.addAll(todo);
+            copy.old.addAll(old);
+            copy.next.addAll(next);
+            return copy;
+        }
+    }
+
+    /**
+     * Key of a finished node; nodes with equal old and next sets are merged.
+     */
+    private static final class Key {
+
+        final Set<Formula> old;
+
+        final Set<Formula> next;
+
+        Key(Node node) {
+            old = node.old;
+            next = node.next;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            final Key that = (Key) o;
+            return old.equals(that.old) && next.equals(that.next);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(old, next);
+        }
+    }
+
+    /**
+     * Translates the given formula to a generalized Büchi automaton accepting exactly the words satisfying it.
+     *
+     * @param formula the formula.
+     *
+     * @return the automaton.
+     *
+     * @throws IllegalArgumentException when the formula contains more than 64 until subformulae.
+     */
+    public static BuchiAutomaton translate(Formula formula) {
+        final Formula nnf = formula.toNNF();
+
+        final List<Node> finished = new ArrayList<>();
+        final Map<Key, Integer> index = new HashMap<>();
+        final Deque<Node> pending = new ArrayDeque<>();
+
+        final Node init = new Node();
+        init.incoming.add(INIT);
+        init.todo.add(nnf);
+        pending.push(init);
+
+        while (!pending.isEmpty()) {
+            final Node node = pending.pop();
+
+            if (node.todo.isEmpty()) {
+                final Key key = new Key(node);
+                final Integer existing = index.get(key);
+                if (existing != null) {
+                    finished.get(existing).incoming.addAll(node.incoming);
+                } else {
+                    final int id = finished.size();
+                    finished.add(node);
+                    index.put(key, id);
+                    final Node successor = new Node();
+                    successor.incoming.add(id);
+                    successor.todo.addAll(node.next);
+                    pending.push(successor);
+                }
+                continue;
+            }
+
+            final Formula eta = node.todo.iterator().next();
+            node.todo.remove(eta);
+            if (node.old.contains(eta)) {
+                pending.push(node);
+                continue;
+            }
+
+            switch (eta.getKind()) {
+                case TRUE:
+                    node.old.add(eta);
+                    pending.push(node);
+                    break;
+                case FALSE:
+                    // contradiction: discard the node
+                    break;
+                case PROPOSITION:
+                case NOT:
+                    if (node.old.contains(negate(eta))) break;
+                    node.old.add(eta);
+                    pending.push(node);
+                    break;
+                case AND:
+                    node.old.add(eta);
+                    addTodo(node, eta.getLeft());
+                    addTodo(node, eta.getRight());
+                    pending.push(node);
+                    break;
+                case NEXT:
+                    node.old.add(eta);
+                    node.next.add(eta.getLeft());
+                    pending.push(node);
+                    break;
+                case OR:
+                case UNTIL:
+                case RELEASE: {
+                    final Node first = node.copy();
+                    final Node second = node;
+                    first.old.add(eta);
+                    second.old.add(eta);
+                    switch (eta.getKind()) {
+                        case OR:
+                            addTodo(first, eta.getLeft());
+                            addTodo(second, eta.getRight());
+                            break;
+                        case UNTIL:
+                            // a U b == b || (a && X (a U b))
+                            addTodo(first, eta.getLeft());
+                            first.next.add(eta);
+                            addTodo(second, eta.getRight());
+                            break;
+                        default:
+                            // a R b == b && (a || X (a R b))
+                            addTodo(first, eta.getRight());
+                            first.next.add(eta);
+                            addTodo(second, eta.getLeft());
+                            addTodo(second, eta.getRight());
+                            break;
+                    }
+                    pending.push(second);
+                    pending.push(first);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("formula not in negation normal form: " + eta);
+            }
+        }
+
+        final List<Formula> untils = new ArrayList<>();
+        collectUntils(nnf, new HashSet<>(), untils);
+        if (untils.size() > 64) {
+            throw new IllegalArgumentException("too many until subformulae (" + untils.size() + "): " + formula);
+        }
+
+        final int size = finished.size();
+        final List<List<Integer>> successors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) successors.add(new ArrayList<>());
+        final List<Integer> initial = new ArrayList<>();
+        final Proposition[][] positive = new Proposition[size][];
+        final Proposition[][] negative = new Proposition[size][];
+        final long[] acceptance = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            final Node node = finished.get(i);
+            for (int in : node.incoming) {
+                if (in == INIT) initial.add(i);
+                else successors.get(in).add(i);
+            }
+
+            final List<Proposition> pos = new ArrayList<>();
+            final List<Proposition> neg = new ArrayList<>();
+            for (Formula f : node.old) {
+                if (f.getKind() == Formula.Kind.PROPOSITION) pos.add(f.getProposition());
+                else if (f.getKind() == Formula.Kind.NOT) neg.add(f.getLeft().getProposition());
+            }
+            positive[i] = pos.toArray(new Proposition[pos.size()]);
+            negative[i] = neg.toArray(new Proposition[neg.size()]);
+
+            for (int u = 0; u < untils.size(); u++) {
+                final Formula until = untils.get(u);
+                if (!node.old.contains(until) || node.old.contains(until.getRight())) acceptance[i] |= 1L << u;
+            }
+        }
+
+        final int[][] successorArray = new int[size][];
+        for (int i = 0; i < size; i++) successorArray[i] = toArray(successors.get(i));
+
+        return new BuchiAutomaton(successorArray, toArray(initial), positive, negative, untils.size(), acceptance);
+    }
+
+    private static void addTodo(Node node, Formula formula) {
+        if (!node.old.contains(formula)) node.todo.add(formula);
+    }
+
+    private static Formula negate(Formula literal) {
+        return literal.getKind() == Formula.Kind.NOT ? literal.getLeft() : Formula.not(literal);
+    }
+
+    private static void collectUntils(Formula formula, Set<Formula> seen, List<Formula> untils) {
+        if (formula == null || !seen.add(formula)) return;
+        if (formula.getKind() == Formula.Kind.UNTIL) untils.add(formula);
+        collectUntils(formula.getLeft(), seen, untils);
+        collectUntils(formula.getRight(), seen, untils);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        final int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) result[i] = list.get(i);
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package nl.utwente.fmt.rers.ltl;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The LTL formulae of the RERS problems.
+ *
+ * The formulae of a problem are parsed once per edge semantics. Every formula is registered by its rendering in LTSmin
+ * syntax (the property strings passed to the model checkers), such that the in-process model checkers can look up the
+ * AST instead of parsing the string again.
+ *
+ * @author Jeroen Meijer
+ */
+public final class Constraints {
+
+    private static final Map<String, List<Formula>> FORMULAE = new ConcurrentHashMap<>();
+
+    private static final Map<String, Formula> RENDERED = new ConcurrentHashMap<>();
+
+    private Constraints() {
+    }
+
+    /**
+     * Returns the formulae of the given problem.
+     *
+     * @param problem the problem number.
+     * @param alternate whether to use alternating edge semantics.
+     *
+     * @return the (unmodifiable) List of formulae.
+     *
+     * @throws FileNotFoundException when the constraints file of the problem can not be found.
+     */
+    public static List<Formula> load(int problem, boolean alternate) throws FileNotFoundException {
+        final String key = problem + ";" + alternate;
+        final List<Formula> cached = FORMULAE.get(key);
+        if (cached != null) return cached;
+
+        final String resource = String.format("/constraints-Problem%d.txt", problem);
+        final InputStream is = Constraints.class.getResourceAsStream(resource);
+        if (is == null) throw new FileNotFoundException(resource);
+
+        final List<Formula> result = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty() || line.charAt(0) == '#') continue;
+                final Formula formula = ConstraintsParser.parse(line, alternate);
+                RENDERED.putIfAbsent(formula.toString(), formula);
+                result.add(formula);
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+
+        final List<Formula> formulae = Collections.unmodifiableList(result);
+        final List<Formula> previous = FORMULAE.putIfAbsent(key, formulae);
+
+        return previous != null ? previous : formulae;
+    }
+
+    /**
+     * Returns the formula with the given rendering in LTSmin syntax; formulae loaded with {@link #load(int, boolean)}
+     * are returned without parsing.
+     *
+     * @param formula the formula in LTSmin syntax.
+     *
+     * @return the formula.
+     *
+     * @throws IllegalArgumentException when the formula can not be parsed.
+     */
+    public static Formula compile(String formula) {
+        return RENDERED.computeIfAbsent(formula, FormulaParser::parse);
+    }
+}
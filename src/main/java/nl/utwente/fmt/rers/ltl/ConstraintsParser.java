@@ -0,0 +1,147 @@
+package nl.utwente.fmt.rers.ltl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses LTL formulae in the format of the RERS constraints files, e.g. {@code (! iA WU oZ)}.
+ *
+ * Propositions {@code iX} and {@code oX} are the input and output {@code X}; with alternating edge semantics both are
+ * a value of the variable {@code letter}, otherwise of the variables {@code input} and {@code output} respectively.
+ * Unary operators ({@code !}, {@code X}, {@code F}, {@code G}) bind strongest, followed by the (right associative)
+ * temporal operators {@code U}, {@code R} and {@code WU}, then {@code &} and {@code |}.
+ *
+ * @author Jeroen Meijer
+ */
+public final class ConstraintsParser {
+
+    private final List<String> tokens;
+
+    private final String inputVariable;
+
+    private final String outputVariable;
+
+    private int position;
+
+    private ConstraintsParser(String formula, boolean alternate) {
+        tokens = tokenize(formula);
+        inputVariable = alternate ? Proposition.LETTER : Proposition.INPUT;
+        outputVariable = alternate ? Proposition.LETTER : Proposition.OUTPUT;
+    }
+
+    /**
+     * Parses the given formula.
+     *
+     * @param formula the formula in RERS syntax.
+     * @param alternate whether to use alternating edge semantics.
+     *
+     * @return the parsed formula.
+     *
+     * @throws IllegalArgumentException when the formula can not be parsed.
+     */
+    public static Formula parse(String formula, boolean alternate) {
+        final ConstraintsParser parser = new ConstraintsParser(formula, alternate);
+        final Formula result = parser.parseDisjunction();
+        if (parser.position != parser.tokens.size()) {
+            throw new IllegalArgumentException("unexpected token '" + parser.peek() + "' in: " + formula);
+        }
+
+        return result;
+    }
+
+    private Formula parseDisjunction() {
+        Formula result = parseConjunction();
+        while (accept("|")) result = Formula.or(result, parseConjunction());
+
+        return result;
+    }
+
+    private Formula parseConjunction() {
+        Formula result = parseBinary();
+        while (accept("&")) result = Formula.and(result, parseBinary());
+
+        return result;
+    }
+
+    private Formula parseBinary() {
+        final Formula left = parseUnary();
+        if (accept("U")) return Formula.until(left, parseBinary());
+        if (accept("R")) return Formula.release(left, parseBinary());
+        if (accept("WU")) return Formula.weakUntil(left, parseBinary());
+
+        return left;
+    }
+
+    private Formula parseUnary() {
+        if (accept("!")) return Formula.not(parseUnary());
+        if (accept("X")) return Formula.next(parseUnary());
+        if (accept("G")) return Formula.release(Formula.ff(), parseUnary());
+        if (accept("F")) return Formula.until(Formula.tt(), parseUnary());
+
+        return parsePrimary();
+    }
+
+    private Formula parsePrimary() {
+        if (accept("true")) return Formula.tt();
+        if (accept("false")) return Formula.ff();
+        if (accept("(")) {
+            final Formula result = parseDisjunction();
+            expect(")");
+            return result;
+        }
+
+        final String token = next();
+        if (token.length() == 2 && Character.isUpperCase(token.charAt(1))) {
+            final String value = token.substring(1);
+            if (token.charAt(0) == 'i') return Formula.proposition(Proposition.of(inputVariable, value));
+            if (token.charAt(0) == 'o') return Formula.proposition(Proposition.of(outputVariable, value));
+        }
+
+        throw new IllegalArgumentException("I do not know what to do with token: " + token);
+    }
+
+    private String peek() {
+        return position < tokens.size() ? tokens.get(position) : "<end>";
+    }
+
+    private String next() {
+        if (position >= tokens.size()) throw new IllegalArgumentException("unexpected end of formula");
+
+        return tokens.get(position++);
+    }
+
+    private boolean accept(String token) {
+        if (position < tokens.size() && tokens.get(position).equals(token)) {
+            position++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) throw new IllegalArgumentException("expected '" + token + "', but got '" + peek() + "'");
+    }
+
+    private static List<String> tokenize(String formula) {
+        final List<String> result = new ArrayList<>();
+
+        int i = 0;
+        while (i < formula.length()) {
+            final char c = formula.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isLetterOrDigit(c)) {
+                int end = i;
+                while (end < formula.length() && Character.isLetterOrDigit(formula.charAt(end))) end++;
+                result.add(formula.substring(i, end));
+                i = end;
+            } else if (c == '(' || c == ')' || c == '!' || c == '&' || c == '|') {
+                result.add(String.valueOf(c));
+                i++;
+            } else throw new IllegalArgumentException("unexpected character '" + c + "' in: " + formula);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package nl.utwente.fmt.rers.ltl;
+
+import java.util.Objects;
+
+import lombok.Getter;
+
+/**
+ * An immutable LTL formula.
+ *
+ * {@link #toString()} renders the formula in LTSmin syntax, which {@link FormulaParser} parses again.
+ *
+ * @author Jeroen Meijer
+ */
+@Getter
+public final class Formula {
+
+    public enum Kind {
+        TRUE,
+        FALSE,
+        PROPOSITION,
+        NOT,
+        AND,
+        OR,
+        NEXT,
+        UNTIL,
+        RELEASE,
+        WEAK_UNTIL
+    }
+
+    private static final Formula TRUE = new Formula(Kind.TRUE, null, null, null);
+
+    private static final Formula FALSE = new Formula(Kind.FALSE, null, null, null);
+
+    private final Kind kind;
+
+    private final Formula left;
+
+    private final Formula right;
+
+    private final Proposition proposition;
+
+    private final int hash;
+
+    private Formula(Kind kind, Formula left, Formula right, Proposition proposition) {
+        this.kind = kind;
+        this.left = left;
+        this.right = right;
+        this.proposition = proposition;
+        this.hash = Objects.hash(kind, left, right, proposition);
+    }
+
+    public static Formula tt() {
+        return TRUE;
+    }
+
+    public static Formula ff() {
+        return FALSE;
+    }
+
+    public static Formula proposition(Proposition proposition) {
+        return new Formula(Kind.PROPOSITION, null, null, proposition);
+    }
+
+    public static Formula not(Formula formula) {
+        return new Formula(Kind.NOT, formula, null, null);
+    }
+
+    public static Formula and(Formula left, Formula right) {
+        return new Formula(Kind.AND, left, right, null);
+    }
+
+    public static Formula or(Formula left, Formula right) {
+        return new Formula(Kind.OR, left, right, null);
+    }
+
+    public static Formula next(Formula formula) {
+        return new Formula(Kind.NEXT, formula, null, null);
+    }
+
+    public static Formula until(Formula left, Formula right) {
+        return new Formula(Kind.UNTIL, left, right, null);
+    }
+
+    public static Formula release(Formula left, Formula right) {
+        return new Formula(Kind.RELEASE, left, right, null);
+    }
+
+    public static Formula weakUntil(Formula left, Formula right) {
+        return new Formula(Kind.WEAK_UNTIL, left, right, null);
+    }
+
+    /**
+     * Returns whether this formula is a (possibly negated) proposition, or a constant.
+     *
+     * @return whether this formula is a literal.
+     */
+    public boolean isLiteral() {
+        return kind == Kind.TRUE || kind == Kind.FALSE || kind == Kind.PROPOSITION ||
+               (kind == Kind.NOT && left.kind == Kind.PROPOSITION);
+    }
+
+    /**
+     * Returns an equivalent formula in negation normal form; negations only occur in front of propositions, and
+     * weak until is rewritten to release.
+     *
+     * @return the formula in negation normal form.
+     */
+    public Formula toNNF() {
+        return toNNF(false);
+    }
+
+    private Formula toNNF(boolean negated) {
+        switch (kind) {
+            case TRUE:
+                return negated ? FALSE : TRUE;
+            case FALSE:
+                return negated ? TRUE : FALSE;
+            case PROPOSITION:
+                return negated ? not(this) : this;
+            case NOT:
+                return left.toNNF(!negated);
+            case AND:
+                return negated ? or(left.toNNF(true), right.toNNF(true)) : and(left.toNNF(false), right.toNNF(false));
+            case OR:
+                return negated ? and(left.toNNF(true), right.toNNF(true)) : or(left.toNNF(false), right.toNNF(false));
+            case NEXT:
+                return next(left.toNNF(negated));
+            case UNTIL:
+                return negated ? release(left.toNNF(true), right.toNNF(true)) : until(left.toNNF(false), right.toNNF(false));
+            case RELEASE:
+                return negated ? until(left.toNNF(true), right.toNNF(true)) : release(left.toNNF(false), right.toNNF(false));
+            case WEAK_UNTIL:
+                // a W b == b R (a || b)
+                return release(right, or(left, right)).toNNF(negated);
+            default:
+                throw new IllegalStateException("unknown kind: " + kind);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Formula)) return false;
+        final Formula that = (Formula) o;
+        return hash == that.hash &&
+               kind == that.kind &&
+               Objects.equals(left, that.left) &&
+               Objects.equals(right, that.right) &&
+               Objects.equals(proposition, that.proposition);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case TRUE:
+                return "true";
+            case FALSE:
+                return "false";
+            case PROPOSITION:
+                return proposition.toString();
+            case NOT:
+                return "!" + left;
+            case AND:
+                return "(" + left + " && " + right + ")";
+            case OR:
+                return "(" + left + " || " + right + ")";
+            case NEXT:
+                return "X " + left;
+            case UNTIL:
+                return "(" + left + " U " + right + ")";
+            case RELEASE:
+                return "(" + left + " R " + right + ")";
+            case WEAK_UNTIL:
+                return "(" + left + " W " + right + ")";
+            default:
+                throw new IllegalStateException("unknown kind: " + kind);
+        }
+    }
+}
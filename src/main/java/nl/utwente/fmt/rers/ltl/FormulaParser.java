@@ -0,0 +1,156 @@
+package nl.utwente.fmt.rers.ltl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses LTL formulae in the LTSmin syntax, as rendered by {@link Formula#toString()}.
+ *
+ * Unary operators ({@code !}, {@code X}, {@code []}, {@code <>}) bind strongest, followed by the (right associative)
+ * temporal operators {@code U}, {@code R} and {@code W}, then {@code &&}, {@code ||} and {@code ->}.
+ *
+ * @author Jeroen Meijer
+ */
+public final class FormulaParser {
+
+    private final List<String> tokens;
+
+    private int position;
+
+    private FormulaParser(String formula) {
+        tokens = tokenize(formula);
+    }
+
+    /**
+     * Parses the given formula.
+     *
+     * @param formula the formula in LTSmin syntax.
+     *
+     * @return the parsed formula.
+     *
+     * @throws IllegalArgumentException when the formula can not be parsed.
+     */
+    public static Formula parse(String formula) {
+        final FormulaParser parser = new FormulaParser(formula);
+        final Formula result = parser.parseImplication();
+        if (parser.position != parser.tokens.size()) {
+            throw new IllegalArgumentException("unexpected token '" + parser.peek() + "' in: " + formula);
+        }
+
+        return result;
+    }
+
+    private Formula parseImplication() {
+        final Formula left = parseDisjunction();
+        if (accept("->")) return Formula.or(Formula.not(left), parseImplication());
+
+        return left;
+    }
+
+    private Formula parseDisjunction() {
+        Formula result = parseConjunction();
+        while (accept("||")) result = Formula.or(result, parseConjunction());
+
+        return result;
+    }
+
+    private Formula parseConjunction() {
+        Formula result = parseBinary();
+        while (accept("&&")) result = Formula.and(result, parseBinary());
+
+        return result;
+    }
+
+    private Formula parseBinary() {
+        final Formula left = parseUnary();
+        if (accept("U")) return Formula.until(left, parseBinary());
+        if (accept("R")) return Formula.release(left, parseBinary());
+        if (accept("W")) return Formula.weakUntil(left, parseBinary());
+
+        return left;
+    }
+
+    private Formula parseUnary() {
+        if (accept("!")) return Formula.not(parseUnary());
+        if (accept("X")) return Formula.next(parseUnary());
+        if (accept("[]")) return Formula.release(Formula.ff(), parseUnary());
+        if (accept("<>")) return Formula.until(Formula.tt(), parseUnary());
+
+        return parsePrimary();
+    }
+
+    private Formula parsePrimary() {
+        if (accept("true")) return Formula.tt();
+        if (accept("false")) return Formula.ff();
+
+        expect("(");
+        final Formula result;
+        if (position + 1 < tokens.size() && tokens.get(position + 1).equals("==")) {
+            final String variable = next();
+            expect("==");
+            final String value = next();
+            if (value.length() < 2 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+                throw new IllegalArgumentException("expected a string, but got: " + value);
+            }
+            result = Formula.proposition(Proposition.of(variable, value.substring(1, value.length() - 1)));
+        } else result = parseImplication();
+        expect(")");
+
+        return result;
+    }
+
+    private String peek() {
+        return position < tokens.size() ? tokens.get(position) : "<end>";
+    }
+
+    private String next() {
+        if (position >= tokens.size()) throw new IllegalArgumentException("unexpected end of formula");
+
+        return tokens.get(position++);
+    }
+
+    private boolean accept(String token) {
+        if (position < tokens.size() && tokens.get(position).equals(token)) {
+            position++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) throw new IllegalArgumentException("expected '" + token + "', but got '" + peek() + "'");
+    }
+
+    private static List<String> tokenize(String formula) {
+        final List<String> result = new ArrayList<>();
+
+        int i = 0;
+        while (i < formula.length()) {
+            final char c = formula.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                final int end = formula.indexOf('"', i + 1);
+                if (end < 0) throw new IllegalArgumentException("unterminated string in: " + formula);
+                result.add(formula.substring(i, end + 1));
+                i = end + 1;
+            } else if (Character.isLetterOrDigit(c) || c == '_') {
+                int end = i;
+                while (end < formula.length() &&
+                       (Character.isLetterOrDigit(formula.charAt(end)) || formula.charAt(end) == '_')) end++;
+                result.add(formula.substring(i, end));
+                i = end;
+            } else if (formula.startsWith("&&", i) || formula.startsWith("||", i) || formula.startsWith("==", i) ||
+                       formula.startsWith("->", i) || formula.startsWith("[]", i) || formula.startsWith("<>", i)) {
+                result.add(formula.substring(i, i + 2));
+                i += 2;
+            } else if (c == '(' || c == ')' || c == '!') {
+                result.add(String.valueOf(c));
+                i++;
+            } else throw new IllegalArgumentException("unexpected character '" + c + "' in: " + formula);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package nl.utwente.fmt.rers.ltl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+/**
+ * An atomic proposition of the form {@code variable == "value"}, e.g. {@code input == "A"}.
+ *
+ * The variable is one of {@code letter} (alternating edge semantics), or {@code input} and {@code output}
+ * (input/output edge semantics). A letter of a trace assigns a value to every variable; the value of {@code letter} and
+ * {@code input} is stored in slot 0 of a letter, the value of {@code output} in slot 1.
+ *
+ * Propositions are interned, and numbered densely in the order they are first created, such that per-proposition data
+ * can be stored in arrays indexed by {@link #getIndex()}.
+ *
+ * @author Jeroen Meijer
+ */
+@Getter
+public final class Proposition {
+
+    public static final String LETTER = "letter";
+
+    public static final String INPUT = "input";
+
+    public static final String OUTPUT = "output";
+
+    private static final Map<String, Proposition> PROPOSITIONS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private final String variable;
+
+    private final String value;
+
+    /**
+     * The slot of {@link #variable} in a letter.
+     */
+    private final int slot;
+
+    private final int index;
+
+    private Proposition(String variable, String value, int index) {
+        this.variable = variable;
+        this.value = value;
+        this.index = index;
+
+        switch (variable) {
+            case LETTER:
+            case INPUT:
+                slot = 0;
+                break;
+            case OUTPUT:
+                slot = 1;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown variable: " + variable);
+        }
+    }
+
+    /**
+     * Returns the proposition {@code variable == "value"}.
+     *
+     * @param variable the variable.
+     * @param value the value.
+     *
+     * @return the (interned) proposition.
+     *
+     * @throws IllegalArgumentException when the variable is unknown.
+     */
+    public static Proposition of(String variable, String value) {
+        return PROPOSITIONS.computeIfAbsent(variable + "==" + value,
+                                            k -> new Proposition(variable, value, COUNT.getAndIncrement()));
+    }
+
+    /**
+     * Returns the number of distinct propositions created so far.
+     *
+     * @return the number of propositions.
+     */
+    public static int count() {
+        return COUNT.get();
+    }
+
+    /**
+     * Returns whether this proposition holds for the given letter.
+     *
+     * @param letter the values of the variables.
+     *
+     * @return whether the proposition holds.
+     */
+    public boolean holds(String[] letter) {
+        return value.equals(letter[slot]);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + variable + " == \"" + value + "\")";
+    }
+}
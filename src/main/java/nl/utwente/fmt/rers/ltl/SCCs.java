@@ -0,0 +1,105 @@
+package nl.utwente.fmt.rers.ltl;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+import lombok.Getter;
+
+/**
+ * The strongly connected components of an explicit graph, computed with an iterative version of Tarjan's algorithm.
+ *
+ * @author Jeroen Meijer
+ */
+@Getter
+public final class SCCs {
+
+    /**
+     * For every vertex the index of its component; components are numbered in reverse topological order.
+     */
+    private final int[] components;
+
+    private final int count;
+
+    /**
+     * For every component whether it contains a cycle (i.e. more than one vertex, or a self-loop).
+     */
+    private final boolean[] nontrivial;
+
+    /**
+     * Computes the strongly connected components.
+     *
+     * @param size the number of vertices.
+     * @param successors the successors of every vertex, vertices for which this returns {@code null} are ignored.
+     */
+    public SCCs(int size, IntFunction<int[]> successors) {
+        components = new int[size];
+        Arrays.fill(components, -1);
+
+        final int[] index = new int[size];
+        final int[] lowLink = new int[size];
+        Arrays.fill(index, -1);
+        final boolean[] onStack = new boolean[size];
+        final int[] stack = new int[size];
+        int stackSize = 0;
+
+        final int[] callStack = new int[size];
+        final int[] edge = new int[size];
+        int next = 0;
+        int count = 0;
+        boolean[] nontrivial = new boolean[Math.max(1, size)];
+
+        for (int root = 0; root < size; root++) {
+            if (index[root] != -1 || successors.apply(root) == null) continue;
+
+            int depth = 0;
+            callStack[depth] = root;
+            edge[depth] = 0;
+            index[root] = lowLink[root] = next++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                final int v = callStack[depth];
+                final int[] vSuccessors = successors.apply(v);
+                if (edge[depth] < vSuccessors.length) {
+                    final int w = vSuccessors[edge[depth]++];
+                    if (successors.apply(w) == null) continue;
+                    if (index[w] == -1) {
+                        index[w] = lowLink[w] = next++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        depth++;
+                        callStack[depth] = w;
+                        edge[depth] = 0;
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], index[w]);
+                    }
+                } else {
+                    if (lowLink[v] == index[v]) {
+                        int w;
+                        int members = 0;
+                        boolean selfLoop = false;
+                        do {
+                            w = stack[--stackSize];
+                            onStack[w] = false;
+                            components[w] = count;
+                            members++;
+                        } while (w != v);
+                        for (int s : vSuccessors) selfLoop |= s == v;
+                        if (count >= nontrivial.length) nontrivial = Arrays.copyOf(nontrivial, nontrivial.length * 2);
+                        nontrivial[count] = members > 1 || selfLoop;
+                        count++;
+                    }
+                    depth--;
+                    if (depth >= 0) {
+                        final int parent = callStack[depth];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                    }
+                }
+            }
+        }
+
+        this.count = count;
+        this.nontrivial = Arrays.copyOf(nontrivial, count);
+    }
+}
@@ -8,6 +8,13 @@ bbos=("" "-C" "-D")
 LOG=$(date +%s)"-$1"
 mkdir -p "$LOG"
 
+# set MC_CACHE to a file on the local disk of the nodes (e.g. /tmp/$USER-rers-mc-cache.bin) to share model checker
+# results between the jobs on a node; calls answered from it are not timed, so timings then depend on earlier jobs.
+mc_cache=()
+if [ -n "$MC_CACHE" ]; then
+	mc_cache=("-F" "$MC_CACHE")
+fi
+
 export CLASSPATH="$CLASSPATH:../../../target/RERS-1.0-SNAPSHOT-jar-with-dependencies.jar"
 
 for problem in $problems; do
@@ -17,7 +24,7 @@ for problem in $problems; do
 				name="problem-$problem-$learner-$aut-$bbo"
 				name=${name// /_}
 				file="$LOG/$name"
-				srun "-J$name" -t90 -N1 -c7 --output="$file.csv" --error="$file.log" java "nl.utwente.fmt.rers.Main" "-c" "-t60" "$problem" "$learner" $aut $bbo
+				srun "-J$name" -t90 -N1 -c7 --output="$file.csv" --error="$file.log" java "nl.utwente.fmt.rers.Main" "-c" "${mc_cache[@]}" "-t60" "$problem" "$learner" $aut $bbo
 			done;
 		done
 	done
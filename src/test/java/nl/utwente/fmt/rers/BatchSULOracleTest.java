@@ -0,0 +1,135 @@
+package nl.utwente.fmt.rers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.learnlib.api.query.DefaultQuery;
+import de.learnlib.oracle.membership.SULOracle;
+import net.automatalib.words.Word;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link BatchSULOracle} answers a batch as a {@link SULOracle} does, while continuing queries that extend
+ * the previous query, answering duplicates without executing them, and counting the batch in bulk.
+ *
+ * @author Jeroen Meijer
+ */
+public class BatchSULOracleTest {
+
+    /**
+     * A problem number that is not a RERS problem, such that the SymbolTable is not shared with other tests.
+     */
+    private static final int PROBLEM = -25;
+
+    private final SymbolTable symbols = SymbolTable.forProblem(PROBLEM, new String[] {"A", "B"});
+
+    /**
+     * A SUL that outputs X after an even number of A's, and Y after an odd number; it counts what is executed.
+     */
+    private final class CountingSUL implements IndexedSUL {
+
+        int pres;
+
+        int posts;
+
+        int steps;
+
+        private int as;
+
+        @Override
+        public SymbolTable getSymbols() {
+            return symbols;
+        }
+
+        @Override
+        public void pre() {
+            pres++;
+            as = 0;
+        }
+
+        @Override
+        public void post() {
+            posts++;
+        }
+
+        @Override
+        public int step(int input) {
+            steps++;
+            if (input == symbols.inputIndex("A")) as++;
+            return symbols.index(as % 2 == 0 ? "X" : "Y");
+        }
+    }
+
+    private static Word<String> word(String... symbols) {
+        return Word.fromSymbols(symbols);
+    }
+
+    /**
+     * Returns a batch with prefixes of later queries, duplicates with different prefix/suffix slicing, and an empty
+     * query; in an order that is not sorted.
+     */
+    private static List<DefaultQuery<String, Word<String>>> batch() {
+        return new ArrayList<>(Arrays.asList(new DefaultQuery<>(word("A"), word("B", "A")),
+                                             new DefaultQuery<>(word("B"), word("A")),
+                                             new DefaultQuery<>(word(), word("A", "B")),
+                                             new DefaultQuery<>(word("A", "B"), word("A")),
+                                             new DefaultQuery<>(word(), word()),
+                                             new DefaultQuery<>(word("A", "B", "A"), word())));
+    }
+
+    @Test
+    public void testBatch() {
+        final List<DefaultQuery<String, Word<String>>> expected = batch();
+        new SULOracle<>(new CountingSUL()).processQueries(expected);
+
+        final CountingSUL sul = new CountingSUL();
+        final ExperimentMetrics metrics = new ExperimentMetrics();
+        final ExperimentMetrics.Counters counters = metrics.get(ExperimentMetrics.Category.LEARN);
+        final BatchSULOracle oracle =
+                new BatchSULOracle(new IndexedSULOracle(sul), counters, null, new Deadline(), sul);
+
+        final List<DefaultQuery<String, Word<String>>> actual = batch();
+        oracle.processQueries(actual);
+
+        for (int q = 0; q < expected.size(); q++) assertEquals(expected.get(q).getOutput(), actual.get(q).getOutput());
+        assertEquals(word("Y", "X"), actual.get(0).getOutput());
+        assertEquals(word("Y"), actual.get(1).getOutput());
+        assertEquals(word("Y", "Y"), actual.get(2).getOutput());
+        assertEquals(word("X"), actual.get(3).getOutput());
+        assertEquals(word(), actual.get(4).getOutput());
+        assertEquals(word(), actual.get(5).getOutput());
+
+        // sorted: (), AB, ABA (three times), BA; the SUL is only reset before BA
+        assertEquals(2, sul.pres);
+        assertEquals(2, sul.posts);
+        assertEquals(3 + 2, sul.steps);
+
+        // counted as if every query was executed separately
+        assertEquals(6, counters.getQueries());
+        assertEquals(0 + 2 + 3 + 3 + 3 + 2, counters.getSymbols());
+    }
+
+    @Test
+    public void testSymbolQueries() {
+        final CountingSUL sul = new CountingSUL();
+        final ExperimentMetrics.Counters counters = new ExperimentMetrics().get(ExperimentMetrics.Category.LEARN);
+        final BatchSULOracle oracle =
+                new BatchSULOracle(new IndexedSULOracle(sul), counters, null, new Deadline(), sul);
+
+        assertEquals("Y", oracle.query("A"));
+        assertEquals("Y", oracle.query("B"));
+
+        // a batch finishes the pending symbol query first
+        final List<DefaultQuery<String, Word<String>>> batch = batch();
+        oracle.processQueries(batch);
+        assertEquals(word("Y", "X"), batch.get(0).getOutput());
+        assertEquals(sul.pres, sul.posts);
+
+        assertEquals("Y", oracle.query("A"));
+        oracle.reset();
+        assertEquals(sul.pres, sul.posts);
+    }
+}
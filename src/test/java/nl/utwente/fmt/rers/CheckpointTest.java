@@ -0,0 +1,159 @@
+package nl.utwente.fmt.rers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.learnlib.api.query.DefaultQuery;
+import net.automatalib.automata.transout.impl.compact.CompactMealy;
+import net.automatalib.words.Word;
+import net.automatalib.words.impl.Alphabets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that a {@link Checkpoint} that is written can be read back: the hypothesis, the query cache, the counters and
+ * the counter examples.
+ *
+ * @author Jeroen Meijer
+ */
+public class CheckpointTest {
+
+    /**
+     * A problem number that is not a RERS problem, such that the SymbolTable is not shared with other tests.
+     */
+    private static final int PROBLEM = -14;
+
+    private static final List<String> INPUTS = Arrays.asList("A", "B");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final SymbolTable symbols = SymbolTable.forProblem(PROBLEM, INPUTS.toArray(new String[0]));
+
+    /**
+     * A hypothesis that outputs Z after two A's, and X otherwise; B resets it.
+     */
+    private static HypothesisSnapshot hypothesis() {
+        final CompactMealy<String, String> result = new CompactMealy<>(Alphabets.fromCollection(INPUTS));
+        final int s0 = result.addInitialState();
+        final int s1 = result.addState();
+        result.addTransition(s0, "A", s1, "X");
+        result.addTransition(s0, "B", s0, "X");
+        result.addTransition(s1, "A", s1, "Z");
+        result.addTransition(s1, "B", s0, "X");
+        return HypothesisSnapshot.of(result, INPUTS);
+    }
+
+    private static RERSProperty disproved(int number, DefaultQuery<String, Word<String>> counterExample) {
+        final RERSProperty result = new RERSProperty(PROBLEM,
+                                                     "ttt",
+                                                     null,
+                                                     number,
+                                                     "mc",
+                                                     "bbo",
+                                                     null,
+                                                     new ExperimentMetrics(),
+                                                     new Deadline(),
+                                                     null);
+        result.resume(counterExample);
+        return result;
+    }
+
+    private Checkpoint roundTrip(HypothesisSnapshot hypothesis,
+                                 QueryCache cache,
+                                 List<RERSProperty> properties,
+                                 ExperimentMetrics metrics,
+                                 QueryCache readCache,
+                                 ExperimentMetrics readMetrics) throws IOException {
+        final Path path = folder.getRoot().toPath().resolve("checkpoint.bin");
+        Checkpoint.write(path, PROBLEM, "ttt", symbols, hypothesis, cache, properties, metrics);
+        return Checkpoint.read(path, PROBLEM, readCache, readMetrics);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final HypothesisSnapshot hypothesis = hypothesis();
+
+        final int a = symbols.inputIndex("A");
+        final int b = symbols.inputIndex("B");
+        final QueryCache cache = new QueryCache(symbols);
+        final QueryCache.Node ax = cache.addSuccessor(cache.getRoot(), a, symbols.index("X"));
+        cache.addSuccessor(ax, a, symbols.index("Z"));
+        cache.addSuccessor(cache.getRoot(), b, symbols.index("X"));
+
+        final ExperimentMetrics metrics = new ExperimentMetrics();
+        metrics.get(ExperimentMetrics.Category.EQ).add(10, 50);
+        metrics.get(ExperimentMetrics.Category.EQ).discard(2, 7);
+        metrics.get(ExperimentMetrics.Category.REAL).add(3, 4);
+
+        // the output Y is not in the SymbolTable before the checkpoint is written
+        final DefaultQuery<String, Word<String>> ce =
+                new DefaultQuery<>(Word.fromSymbols("A", "A", "B"), Word.fromSymbols("X", "Z", "Y"));
+        final List<RERSProperty> properties = Arrays.asList(disproved(0, ce));
+
+        final QueryCache readCache = new QueryCache(symbols);
+        final ExperimentMetrics readMetrics = new ExperimentMetrics();
+        final Checkpoint checkpoint = roundTrip(hypothesis, cache, properties, metrics, readCache, readMetrics);
+
+        assertEquals(PROBLEM, checkpoint.getProblem());
+        assertEquals("ttt", checkpoint.getLearner());
+
+        final HypothesisSnapshot read = checkpoint.getHypothesis();
+        assertNotNull(read);
+        assertEquals(hypothesis.getInputs(), read.getInputs());
+        assertEquals(hypothesis.size(), read.size());
+        for (int s = 0; s < hypothesis.size(); s++) {
+            for (int i = 0; i < INPUTS.size(); i++) {
+                assertEquals(hypothesis.getSuccessor(s, i), read.getSuccessor(s, i));
+                assertEquals(hypothesis.getOutput(s, i), read.getOutput(s, i));
+            }
+        }
+        assertTrue(read.diff(hypothesis).isIdentical());
+
+        final QueryCache.Node readAX = readCache.getSuccessor(readCache.getRoot(), a);
+        assertNotNull(readAX);
+        assertEquals("X", symbols.symbol(readAX.output));
+        assertEquals("Z", symbols.symbol(readCache.getSuccessor(readAX, a).output));
+        assertNull(readCache.getSuccessor(readAX, b));
+        assertEquals("X", symbols.symbol(readCache.getSuccessor(readCache.getRoot(), b).output));
+        assertEquals(cache.size(), readCache.size());
+
+        for (ExperimentMetrics.Category category : ExperimentMetrics.Category.values()) {
+            final ExperimentMetrics.Counters written = metrics.get(category);
+            final ExperimentMetrics.Counters counters = readMetrics.get(category);
+            assertEquals(written.getQueries(), counters.getQueries());
+            assertEquals(written.getSymbols(), counters.getSymbols());
+            assertEquals(written.getDiscardedQueries(), counters.getDiscardedQueries());
+            assertEquals(written.getDiscardedSymbols(), counters.getDiscardedSymbols());
+        }
+
+        assertEquals(1, checkpoint.getCounterExamples().size());
+        final DefaultQuery<String, Word<String>> readCe = checkpoint.getCounterExamples().get(0);
+        assertEquals(ce.getInput(), readCe.getInput());
+        assertEquals(ce.getOutput(), readCe.getOutput());
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final QueryCache readCache = new QueryCache(symbols);
+        final Checkpoint checkpoint = roundTrip(null,
+                                                null,
+                                                Collections.emptyList(),
+                                                new ExperimentMetrics(),
+                                                readCache,
+                                                new ExperimentMetrics());
+
+        assertNull(checkpoint.getHypothesis());
+        assertEquals(0, readCache.size());
+        assertEquals(0, checkpoint.getCounterExamples().size());
+    }
+}
@@ -0,0 +1,110 @@
+package nl.utwente.fmt.rers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that a {@link CompiledProblemSUL} answers random queries on RERS problems as the plain {@link ProblemSUL}
+ * does, with every step checked against the Problem (verify mode), from the table, and after the table is full.
+ *
+ * @author Jeroen Meijer
+ */
+public class CompiledProblemSULTest {
+
+    private static final int QUERIES = 500;
+
+    private static final int MAX_LENGTH = 30;
+
+    /**
+     * Returns random queries of input indices, with a fixed seed.
+     */
+    private static List<int[]> randomQueries(int inputs) {
+        final Random random = new Random(42);
+        final List<int[]> result = new ArrayList<>(QUERIES);
+        for (int q = 0; q < QUERIES; q++) {
+            final int[] query = new int[1 + random.nextInt(MAX_LENGTH)];
+            for (int i = 0; i < query.length; i++) query[i] = random.nextInt(inputs);
+            result.add(query);
+        }
+
+        return result;
+    }
+
+    /**
+     * Answers a query; the outputs are followed by the status of every step.
+     */
+    private static int[] answer(ProblemSUL sul, int[] query) {
+        final int[] result = new int[query.length * 2];
+        sul.pre();
+        try {
+            for (int i = 0; i < query.length; i++) {
+                result[i] = sul.step(query[i]);
+                result[query.length + i] = sul.getLastStatus();
+            }
+        } finally {
+            sul.post();
+        }
+
+        return result;
+    }
+
+    private static void assertSameAnswers(ProblemSUL expected, ProblemSUL actual, List<int[]> queries) {
+        for (int[] query : queries) assertArrayEquals(answer(expected, query), answer(actual, query));
+    }
+
+    private static void testProblem(int number) throws FileNotFoundException {
+        final ProblemSUL plain = new ProblemSUL(number);
+        final List<int[]> queries = randomQueries(plain.getSymbols().getInputSize());
+
+        // every step is executed, and checked against the table (an IllegalStateException if they differ)
+        final ProblemStateTable table = ProblemStateTable.create(plain.getSymbols(),
+                                                                 ProblemSUL.newProblem(number),
+                                                                 ProblemStateTable.DEFAULT_MAX_STATES);
+        final CompiledProblemSUL verified = new CompiledProblemSUL(number, true, table);
+        assertSameAnswers(plain, verified, queries);
+        assertSameAnswers(plain, verified, queries);
+
+        // the second time the queries are answered from the table
+        final CompiledProblemSUL compiled = new CompiledProblemSUL(number, false, table);
+        assertSameAnswers(plain, compiled, queries);
+        assertEquals(0, compiled.getMisses());
+        assertTrue(compiled.getHits() > 0);
+    }
+
+    @Test
+    public void testProblem1() throws FileNotFoundException {
+        testProblem(1);
+    }
+
+    @Test
+    public void testProblem2() throws FileNotFoundException {
+        testProblem(2);
+    }
+
+    @Test
+    public void testTableFull() throws FileNotFoundException {
+        final int number = 1;
+        final ProblemSUL plain = new ProblemSUL(number);
+        final List<int[]> queries = randomQueries(plain.getSymbols().getInputSize());
+
+        // queries leave the table after two states, and continue on the Problem
+        final ProblemStateTable table = ProblemStateTable.create(plain.getSymbols(), ProblemSUL.newProblem(number), 2);
+        final CompiledProblemSUL compiled = new CompiledProblemSUL(number, false, table);
+        assertSameAnswers(plain, compiled, queries);
+        assertSameAnswers(plain, compiled, queries);
+        assertEquals(2, table.size());
+        assertTrue(compiled.getHits() > 0);
+
+        final CompiledProblemSUL verified = new CompiledProblemSUL(number, true, table);
+        assertSameAnswers(plain, verified, queries);
+        assertEquals(2, table.size());
+    }
+}
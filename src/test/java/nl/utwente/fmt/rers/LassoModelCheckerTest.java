@@ -0,0 +1,164 @@
+package nl.utwente.fmt.rers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.automatalib.automata.transout.impl.compact.CompactMealy;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.modelchecking.Lasso.MealyLasso;
+import net.automatalib.words.Word;
+import net.automatalib.words.impl.Alphabets;
+import org.junit.Test;
+
+/**
+ * Tests {@link LassoModelChecker} on small hypotheses, and the number of unfolds of its lassos.
+ *
+ * @author Jeroen Meijer
+ */
+public class LassoModelCheckerTest {
+
+    private static final List<String> INPUTS = Arrays.asList("A", "B");
+
+    /**
+     * A hypothesis that outputs the given output after two A's, and X otherwise; B resets it.
+     */
+    private static CompactMealy<String, String> hypothesis(String secondOutput) {
+        final CompactMealy<String, String> result = new CompactMealy<>(Alphabets.fromCollection(INPUTS));
+        final int s0 = result.addInitialState();
+        final int s1 = result.addState();
+        result.addTransition(s0, "A", s1, "X");
+        result.addTransition(s0, "B", s0, "X");
+        result.addTransition(s1, "A", s1, secondOutput);
+        result.addTransition(s1, "B", s0, "X");
+        return result;
+    }
+
+    /**
+     * Checks that the lasso is a loop of the hypothesis, and returns the outputs of its prefix and one unroll.
+     */
+    private static Word<String> check(CompactMealy<String, String> hypothesis, MealyLasso<String, String> lasso) {
+        final Word<String> prefix = lasso.getPrefix();
+        final Word<String> loop = lasso.getLoop();
+        assertFalse(loop.isEmpty());
+        assertEquals(hypothesis.getState(prefix), hypothesis.getState(prefix.concat(loop)));
+
+        return hypothesis.computeOutput(prefix.concat(loop));
+    }
+
+    @Test
+    public void testComputeUnfolds() {
+        final LassoModelChecker modelChecker = new LassoModelChecker(false, Collections.emptyList(), 3, 0.5);
+        assertEquals(3, modelChecker.computeUnfolds(0));
+        assertEquals(3, modelChecker.computeUnfolds(6));
+        assertEquals(4, modelChecker.computeUnfolds(7));
+        assertEquals(50, modelChecker.computeUnfolds(100));
+
+        modelChecker.setMultiplier(0.0);
+        assertEquals(3, modelChecker.computeUnfolds(100));
+
+        modelChecker.setMinimumUnfolds(1);
+        modelChecker.setMultiplier(1.5);
+        assertEquals(15, modelChecker.computeUnfolds(10));
+        assertEquals(1, modelChecker.computeUnfolds(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMultiplier() {
+        new LassoModelChecker(false, Collections.emptyList(), 3, -1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoUnfolds() {
+        new LassoModelChecker(false, Collections.emptyList(), 0, 1.0);
+    }
+
+    @Test
+    public void testUnfolds() throws ModelCheckingException {
+        final CompactMealy<String, String> hypothesis = hypothesis("Y");
+        final LassoModelChecker modelChecker = new LassoModelChecker(false, Collections.emptyList(), 1, 3.0);
+        final MealyLasso<String, String> lasso =
+                modelChecker.findCounterExample(hypothesis, INPUTS, "<> (output == \"Z\")");
+
+        assertNotNull(lasso);
+        assertEquals(6, lasso.getUnfolds());
+        assertEquals(modelChecker.computeUnfolds(hypothesis.size()), lasso.getUnfolds());
+    }
+
+    @Test
+    public void testLiveness() throws ModelCheckingException {
+        final CompactMealy<String, String> hypothesis = hypothesis("Y");
+        final LassoModelChecker modelChecker = new LassoModelChecker(false, Collections.emptyList(), 1, 1.0);
+        final MealyLasso<String, String> lasso =
+                modelChecker.findCounterExample(hypothesis, INPUTS, "<> (output == \"Z\")");
+
+        assertNotNull(lasso);
+        assertFalse(check(hypothesis, lasso).asList().contains("Z"));
+    }
+
+    @Test
+    public void testRecurrence() throws ModelCheckingException {
+        // B never outputs Z, so looping on B violates [] <> Z
+        final CompactMealy<String, String> hypothesis = hypothesis("Z");
+        final LassoModelChecker modelChecker = new LassoModelChecker(false, Collections.emptyList(), 1, 1.0);
+        final MealyLasso<String, String> lasso =
+                modelChecker.findCounterExample(hypothesis, INPUTS, "[] <> (output == \"Z\")");
+
+        assertNotNull(lasso);
+        assertFalse(loopOutput(hypothesis, lasso).asList().contains("Z"));
+    }
+
+    @Test
+    public void testSafety() throws ModelCheckingException {
+        final CompactMealy<String, String> hypothesis = hypothesis("Z");
+        final LassoModelChecker modelChecker = new LassoModelChecker(false, Collections.emptyList(), 1, 1.0);
+        final MealyLasso<String, String> lasso =
+                modelChecker.findCounterExample(hypothesis, INPUTS, "[] !(output == \"Z\")");
+
+        assertNotNull(lasso);
+        assertTrue(check(hypothesis, lasso).asList().contains("Z"));
+    }
+
+    @Test
+    public void testNoViolation() throws ModelCheckingException {
+        final LassoModelChecker modelChecker = new LassoModelChecker(false, Collections.emptyList(), 1, 1.0);
+        assertNull(modelChecker.findCounterExample(hypothesis("Y"), INPUTS, "[] !(output == \"Z\")"));
+        assertNull(modelChecker.findCounterExample(hypothesis("Z"), INPUTS, "[] ((input == \"B\") -> (output == \"X\"))"));
+    }
+
+    @Test
+    public void testSkipOutputs() throws ModelCheckingException {
+        final LassoModelChecker modelChecker = new LassoModelChecker(false, Collections.singleton("Z"), 1, 1.0);
+        assertNull(modelChecker.findCounterExample(hypothesis("Z"), INPUTS, "[] !(output == \"Z\")"));
+    }
+
+    @Test
+    public void testAlternating() throws ModelCheckingException {
+        final CompactMealy<String, String> hypothesis = hypothesis("Z");
+        final LassoModelChecker modelChecker = new LassoModelChecker(true, Collections.emptyList(), 1, 1.0);
+        final MealyLasso<String, String> lasso =
+                modelChecker.findCounterExample(hypothesis, INPUTS, "[] !(letter == \"Z\")");
+
+        assertNotNull(lasso);
+        assertTrue(check(hypothesis, lasso).asList().contains("Z"));
+
+        // in alternating semantics the output is the letter after the input
+        assertNull(modelChecker.findCounterExample(hypothesis,
+                                                   INPUTS,
+                                                   "[] ((letter == \"A\") -> X ((letter == \"X\") || (letter == \"Z\")))"));
+    }
+
+    /**
+     * Returns the outputs of the loop of the lasso, from the state of the hypothesis after the prefix.
+     */
+    private static Word<String> loopOutput(CompactMealy<String, String> hypothesis, MealyLasso<String, String> lasso) {
+        final Word<String> outputs = check(hypothesis, lasso);
+        return outputs.subWord(lasso.getPrefix().length());
+    }
+}
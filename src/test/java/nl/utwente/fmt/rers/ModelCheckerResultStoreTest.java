@@ -0,0 +1,140 @@
+package nl.utwente.fmt.rers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import net.automatalib.automata.transout.impl.compact.CompactMealy;
+import net.automatalib.words.impl.Alphabets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link ModelCheckerResultStore}: added keys, keys read back from the file, sharing a store through
+ * {@link ModelCheckerResultStore#open(File)}, and keys of hypotheses.
+ *
+ * @author Jeroen Meijer
+ */
+public class ModelCheckerResultStoreTest {
+
+    private static final List<String> INPUTS = Arrays.asList("A", "B");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A hypothesis that outputs Z after two A's, the given output after one A, and X otherwise; B resets it. The
+     * states are added in the given order.
+     */
+    private static CompactMealy<String, String> hypothesis(boolean reversed, String output) {
+        final CompactMealy<String, String> result = new CompactMealy<>(Alphabets.fromCollection(INPUTS));
+        final int s1;
+        final int s0;
+        if (reversed) {
+            s1 = result.addState();
+            s0 = result.addInitialState();
+        } else {
+            s0 = result.addInitialState();
+            s1 = result.addState();
+        }
+        result.addTransition(s0, "A", s1, output);
+        result.addTransition(s0, "B", s0, "X");
+        result.addTransition(s1, "A", s1, "Z");
+        result.addTransition(s1, "B", s0, "X");
+        return result;
+    }
+
+    private File file() {
+        return new File(folder.getRoot(), "mc-cache.bin");
+    }
+
+    @Test
+    public void testAddContains() throws IOException {
+        final ModelCheckerResultStore.Key key = new ModelCheckerResultStore.Key(1, 2);
+        try (ModelCheckerResultStore store = ModelCheckerResultStore.open(file())) {
+            assertFalse(store.contains(key));
+            store.add(key);
+            assertTrue(store.contains(key));
+            assertTrue(store.contains(new ModelCheckerResultStore.Key(1, 2)));
+            assertFalse(store.contains(new ModelCheckerResultStore.Key(2, 1)));
+
+            // adding a key twice does not write it twice
+            store.add(key);
+            assertEquals(2, store.getHits());
+        }
+
+        assertEquals(8 + 16, file().length());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        final ModelCheckerResultStore.Key first = new ModelCheckerResultStore.Key(1, 2);
+        final ModelCheckerResultStore.Key second = new ModelCheckerResultStore.Key(-1, Long.MAX_VALUE);
+        try (ModelCheckerResultStore store = ModelCheckerResultStore.open(file())) {
+            store.add(first);
+            store.add(second);
+        }
+
+        try (ModelCheckerResultStore store = ModelCheckerResultStore.open(file())) {
+            assertEquals(0, store.getHits());
+            assertTrue(store.contains(first));
+            assertTrue(store.contains(second));
+            assertFalse(store.contains(new ModelCheckerResultStore.Key(2, 1)));
+            assertEquals(2, store.getHits());
+        }
+    }
+
+    @Test
+    public void testSharedOpen() throws IOException {
+        final ModelCheckerResultStore.Key key = new ModelCheckerResultStore.Key(1, 2);
+        final File relative = new File(new File(folder.getRoot(), "."), file().getName());
+
+        final ModelCheckerResultStore first = ModelCheckerResultStore.open(file());
+        final ModelCheckerResultStore second = ModelCheckerResultStore.open(relative);
+        assertSame(first, second);
+
+        // the file stays open until its last user closes it
+        first.add(key);
+        first.close();
+        assertTrue(second.contains(key));
+        second.add(new ModelCheckerResultStore.Key(3, 4));
+        second.close();
+
+        try (ModelCheckerResultStore third = ModelCheckerResultStore.open(file())) {
+            assertNotSame(first, third);
+            assertTrue(third.contains(key));
+            assertTrue(third.contains(new ModelCheckerResultStore.Key(3, 4)));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAStore() throws IOException {
+        Files.write(file().toPath(), "not a result store".getBytes(StandardCharsets.US_ASCII));
+        ModelCheckerResultStore.open(file()).close();
+    }
+
+    @Test
+    public void testKey() {
+        final String formula = "[] (oZ -> <> oX)";
+        final ModelCheckerResultStore.Key key =
+                ModelCheckerResultStore.key("ltsmin", formula, hypothesis(false, "X"), INPUTS);
+
+        // the key does not depend on the numbering of the states
+        assertEquals(key, ModelCheckerResultStore.key("ltsmin", formula, hypothesis(true, "X"), INPUTS));
+
+        assertNotEquals(key, ModelCheckerResultStore.key("ltsmin", "[] (oX -> <> oZ)", hypothesis(false, "X"), INPUTS));
+        assertNotEquals(key, ModelCheckerResultStore.key("monitor", formula, hypothesis(false, "X"), INPUTS));
+        assertNotEquals(key, ModelCheckerResultStore.key("ltsmin", formula, hypothesis(false, "Y"), INPUTS));
+    }
+}
@@ -0,0 +1,130 @@
+package nl.utwente.fmt.rers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.automatalib.automata.transout.MealyMachine;
+import net.automatalib.automata.transout.impl.compact.CompactMealy;
+import net.automatalib.exception.ModelCheckingException;
+import net.automatalib.words.impl.Alphabets;
+import org.junit.Test;
+
+/**
+ * Tests {@link MonitorModelChecker} on small hypotheses, with known bad prefixes.
+ *
+ * @author Jeroen Meijer
+ */
+public class MonitorModelCheckerTest {
+
+    private static final List<String> INPUTS = Arrays.asList("A", "B");
+
+    private static final String NEVER_Z = "[] !(output == \"Z\")";
+
+    private static final String A_THEN_Z = "[] ((input == \"A\") -> X (output == \"Z\"))";
+
+    /**
+     * A hypothesis that outputs Z after two A's, and X otherwise; B resets it.
+     */
+    private static CompactMealy<String, String> hypothesis(String secondOutput) {
+        final CompactMealy<String, String> result = new CompactMealy<>(Alphabets.fromCollection(INPUTS));
+        final int s0 = result.addInitialState();
+        final int s1 = result.addState();
+        result.addTransition(s0, "A", s1, "X");
+        result.addTransition(s0, "B", s0, "X");
+        result.addTransition(s1, "A", s1, secondOutput);
+        result.addTransition(s1, "B", s0, "X");
+        return result;
+    }
+
+    /**
+     * Returns the trace of a linear MealyMachine, as {@code input/output} pairs.
+     */
+    private static <S, T> List<String> trace(MealyMachine<S, String, T, String> counterExample) {
+        final List<String> result = new ArrayList<>();
+        S state = counterExample.getInitialState();
+        while (state != null) {
+            S successor = null;
+            for (String input : INPUTS) {
+                final T transition = counterExample.getTransition(state, input);
+                if (transition == null) continue;
+                result.add(input + "/" + counterExample.getTransitionOutput(transition));
+                successor = counterExample.getSuccessor(transition);
+            }
+            state = successor;
+        }
+
+        return result;
+    }
+
+    @Test
+    public void testShortestBadPrefix() throws ModelCheckingException {
+        final MonitorModelChecker modelChecker = new MonitorModelChecker(false, Collections.emptyList());
+        final MealyMachine<?, String, ?, String> counterExample =
+                modelChecker.findCounterExample(hypothesis("Z"), INPUTS, NEVER_Z);
+
+        assertNotNull(counterExample);
+        assertEquals(Arrays.asList("A/X", "A/Z"), trace(counterExample));
+    }
+
+    @Test
+    public void testNoViolation() throws ModelCheckingException {
+        final MonitorModelChecker modelChecker = new MonitorModelChecker(false, Collections.emptyList());
+        assertNull(modelChecker.findCounterExample(hypothesis("Y"), INPUTS, NEVER_Z));
+    }
+
+    @Test
+    public void testNextViolation() throws ModelCheckingException {
+        final MonitorModelChecker modelChecker = new MonitorModelChecker(false, Collections.emptyList());
+        final MealyMachine<?, String, ?, String> counterExample =
+                modelChecker.findCounterExample(hypothesis("Z"), INPUTS, A_THEN_Z);
+
+        // the first A is not followed by Z when B is read next
+        assertNotNull(counterExample);
+        assertEquals(Arrays.asList("A/X", "B/X"), trace(counterExample));
+    }
+
+    @Test
+    public void testLivenessIsNotMonitored() throws ModelCheckingException {
+        // the hypothesis never outputs Z, but no finite trace is a bad prefix of <> Z
+        final MonitorModelChecker modelChecker = new MonitorModelChecker(false, Collections.emptyList());
+        assertNull(modelChecker.findCounterExample(hypothesis("Y"), INPUTS, "<> (output == \"Z\")"));
+    }
+
+    @Test
+    public void testSkipOutputs() throws ModelCheckingException {
+        final MonitorModelChecker modelChecker = new MonitorModelChecker(false, Collections.singleton("Z"));
+        assertNull(modelChecker.findCounterExample(hypothesis("Z"), INPUTS, NEVER_Z));
+    }
+
+    @Test
+    public void testAlternating() throws ModelCheckingException {
+        final MonitorModelChecker modelChecker = new MonitorModelChecker(true, Collections.emptyList());
+        final MealyMachine<?, String, ?, String> counterExample =
+                modelChecker.findCounterExample(hypothesis("Z"), INPUTS, "[] !(letter == \"Z\")");
+
+        assertNotNull(counterExample);
+        assertEquals(Arrays.asList("A/X", "A/Z"), trace(counterExample));
+
+        // in alternating semantics the output is the letter after the input
+        assertNull(modelChecker.findCounterExample(hypothesis("Z"),
+                                                   INPUTS,
+                                                   "[] ((letter == \"A\") -> X ((letter == \"X\") || (letter == \"Z\")))"));
+    }
+
+    @Test
+    public void testMonitorsAreShared() throws ModelCheckingException {
+        assertSame(MonitorModelChecker.getMonitor(NEVER_Z), MonitorModelChecker.getMonitor(NEVER_Z));
+    }
+
+    @Test(expected = ModelCheckingException.class)
+    public void testInvalidFormula() throws ModelCheckingException {
+        MonitorModelChecker.getMonitor("[] (input == \"A\"");
+    }
+}
@@ -0,0 +1,167 @@
+package nl.utwente.fmt.rers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link QueryCacheSUL}: hits, misses that replay the cached prefix, forks sharing the cache, and the counters.
+ *
+ * @author Jeroen Meijer
+ */
+public class QueryCacheSULTest {
+
+    /**
+     * A problem number that is not a RERS problem, such that the SymbolTable is not shared with other tests.
+     */
+    private static final int PROBLEM = -1;
+
+    private final SymbolTable symbols = SymbolTable.forProblem(PROBLEM, new String[] {"A", "B"});
+
+    private final int a = symbols.inputIndex("A");
+
+    private final int b = symbols.inputIndex("B");
+
+    private final int x = symbols.index("X");
+
+    private final int y = symbols.index("Y");
+
+    private CountingSUL delegate;
+
+    private QueryCacheSUL sul;
+
+    /**
+     * A SUL that outputs X after an even number of A's, and Y after an odd number; it counts what is executed.
+     */
+    private final class CountingSUL implements IndexedSUL {
+
+        int pres;
+
+        int posts;
+
+        int steps;
+
+        private int as;
+
+        @Override
+        public SymbolTable getSymbols() {
+            return symbols;
+        }
+
+        @Override
+        public void pre() {
+            pres++;
+            as = 0;
+        }
+
+        @Override
+        public void post() {
+            posts++;
+        }
+
+        @Override
+        public int step(int input) {
+            steps++;
+            if (input == a) as++;
+            return as % 2 == 0 ? x : y;
+        }
+
+        @Override
+        public boolean canFork() {
+            return true;
+        }
+
+        @Override
+        public CountingSUL fork() {
+            return new CountingSUL();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        delegate = new CountingSUL();
+        sul = new QueryCacheSUL("test", new QueryCache(symbols), delegate);
+    }
+
+    private static int[] query(IndexedSUL sul, int... inputs) {
+        final int[] result = new int[inputs.length];
+        sul.pre();
+        try {
+            for (int i = 0; i < inputs.length; i++) result[i] = sul.step(inputs[i]);
+        } finally {
+            sul.post();
+        }
+        return result;
+    }
+
+    @Test
+    public void testMiss() {
+        assertArrayEquals(new int[] {y, y, x}, query(sul, a, b, a));
+
+        assertEquals(0, sul.getHits());
+        assertEquals(3, sul.getMisses());
+        assertEquals(0, sul.getReplayed());
+        assertEquals(1, delegate.pres);
+        assertEquals(1, delegate.posts);
+        assertEquals(3, delegate.steps);
+        assertEquals(3, sul.getCache().size());
+    }
+
+    @Test
+    public void testHit() {
+        query(sul, a, b, a);
+        assertArrayEquals(new int[] {y, y, x}, query(sul, a, b, a));
+        assertArrayEquals(new int[] {y, y}, query(sul, a, b));
+
+        // the delegate is not started for cached queries
+        assertEquals(5, sul.getHits());
+        assertEquals(3, sul.getMisses());
+        assertEquals(1, delegate.pres);
+        assertEquals(1, delegate.posts);
+        assertEquals(3, delegate.steps);
+        assertEquals(3, sul.getCache().size());
+    }
+
+    @Test
+    public void testMissAfterHit() {
+        query(sul, a, b);
+        assertArrayEquals(new int[] {y, y, x, x}, query(sul, a, b, a, b));
+
+        // the cached prefix A B is replayed on the delegate before the miss
+        assertEquals(2, sul.getHits());
+        assertEquals(4, sul.getMisses());
+        assertEquals(2, sul.getReplayed());
+        assertEquals(2, delegate.pres);
+        assertEquals(2, delegate.posts);
+        assertEquals(2 + 2 + 2, delegate.steps);
+        assertEquals(4, sul.getCache().size());
+        assertEquals(0.0, sul.getHitRatio(), 0.0);
+
+        assertArrayEquals(new int[] {y, y, x, x}, query(sul, a, b, a, b));
+        assertEquals((6.0 - 2.0) / (6.0 + 4.0), sul.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void testFork() {
+        final QueryCacheSUL fork = sul.fork();
+        assertSame(sul.getCache(), fork.getCache());
+
+        query(sul, a, b, a);
+        assertArrayEquals(new int[] {y, y, x}, query(fork, a, b, a));
+        assertArrayEquals(new int[] {x, y}, query(fork, b, a));
+
+        // the fork answers from the shared cache, and counts in the shared counters
+        assertEquals(3, sul.getHits());
+        assertEquals(3 + 2, sul.getMisses());
+        assertEquals(fork.getHits(), sul.getHits());
+        assertEquals(fork.getMisses(), sul.getMisses());
+        assertEquals(5, sul.getCache().size());
+
+        // the original answers the queries of the fork from the cache
+        assertArrayEquals(new int[] {x, y}, query(sul, b, a));
+        assertEquals(3, delegate.steps);
+    }
+}
@@ -0,0 +1,128 @@
+package nl.utwente.fmt.rers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that a {@link SinkDetectingSUL} answers random queries on RERS problems as the plain {@link ProblemSUL} does,
+ * that deadlocks that are not absorbing are not cut off, and that queries in a sink are not executed further.
+ *
+ * @author Jeroen Meijer
+ */
+public class SinkDetectingSULTest {
+
+    private static final int QUERIES = 500;
+
+    private static final int MAX_LENGTH = 30;
+
+    /**
+     * Returns random queries of input indices, with a fixed seed.
+     */
+    private static List<int[]> randomQueries(int inputs) {
+        final Random random = new Random(42);
+        final List<int[]> result = new ArrayList<>(QUERIES);
+        for (int q = 0; q < QUERIES; q++) {
+            final int[] query = new int[1 + random.nextInt(MAX_LENGTH)];
+            for (int i = 0; i < query.length; i++) query[i] = random.nextInt(inputs);
+            result.add(query);
+        }
+
+        return result;
+    }
+
+    private static int[] answer(IndexedSUL sul, int[] query) {
+        final int[] result = new int[query.length];
+        sul.pre();
+        try {
+            for (int i = 0; i < query.length; i++) result[i] = sul.step(query[i]);
+        } finally {
+            sul.post();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the node of the given prefix of a query in the trie, {@code null} if it is not in the trie.
+     */
+    private static SinkTrie.Node node(SinkTrie trie, int[] query, int length) {
+        SinkTrie.Node node = trie.getRoot();
+        for (int i = 0; node != null && i < length; i++) node = trie.getSuccessor(node, query[i]);
+        return node;
+    }
+
+    private static void testProblem(int number) throws FileNotFoundException {
+        final ProblemSUL plain = new ProblemSUL(number);
+        final int deadlock = plain.getDeadlock();
+        final List<int[]> queries = randomQueries(plain.getSymbols().getInputSize());
+
+        final SinkTrie trie = new SinkTrie(plain.getSymbols());
+        final SinkDetectingSUL sinkSUL = new SinkDetectingSUL(trie, new ProblemSUL(number), new ProblemSUL(number));
+
+        // the second time, deadlocks are looked up in the trie
+        for (int pass = 0; pass < 2; pass++) {
+            for (int[] query : queries) assertArrayEquals(answer(plain, query), answer(sinkSUL, query));
+        }
+
+        // a deadlock followed by an output is live, and the query continued after it
+        int live = 0;
+        for (int[] query : queries) {
+            final int[] outputs = answer(plain, query);
+            for (int i = 0; i < outputs.length - 1; i++) {
+                if (outputs[i] != deadlock) continue;
+
+                boolean output = false;
+                for (int j = i + 1; j < outputs.length; j++) output |= outputs[j] != deadlock;
+                if (!output) continue;
+
+                final SinkTrie.Node node = node(trie, query, i + 1);
+                assertNotNull(node);
+                assertEquals(SinkTrie.LIVE, node.status);
+                live++;
+            }
+        }
+        assertTrue("no live deadlocks in the random queries", live > 0);
+    }
+
+    @Test
+    public void testProblem1() throws FileNotFoundException {
+        testProblem(1);
+    }
+
+    @Test
+    public void testProblem2() throws FileNotFoundException {
+        testProblem(2);
+    }
+
+    @Test
+    public void testCutOff() throws FileNotFoundException {
+        final int number = 1;
+        final ProblemSUL problemSUL = new ProblemSUL(number);
+        final int deadlock = problemSUL.getDeadlock();
+        final ExperimentMetrics metrics = new ExperimentMetrics();
+        final ExperimentMetrics.Counters real = metrics.get(ExperimentMetrics.Category.REAL);
+
+        // the prefix 0 is marked as a sink, such that the rest of a query is not executed
+        final SinkTrie trie = new SinkTrie(problemSUL.getSymbols());
+        trie.add(new int[] {0}, 1, SinkTrie.SINK);
+        final SinkDetectingSUL sinkSUL =
+                new SinkDetectingSUL(trie, new ProblemSUL(number), new MetricsSUL<>(real, problemSUL));
+
+        final int[] outputs = answer(sinkSUL, new int[] {0, 1, 0, 1});
+        assertEquals(deadlock, outputs[1]);
+        assertEquals(deadlock, outputs[2]);
+        assertEquals(deadlock, outputs[3]);
+        assertEquals(1, real.getQueries());
+        assertEquals(1, real.getSymbols());
+        assertEquals(3, trie.getSavedSymbols());
+    }
+}
@@ -0,0 +1,276 @@
+package nl.utwente.fmt.rers.ltl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.IntPredicate;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link BuchiTranslator} on known formulae, by comparing the acceptance of every ultimately periodic word up to
+ * a small length with the semantics of LTL on that word.
+ *
+ * @author Jeroen Meijer
+ */
+public class BuchiTranslatorTest {
+
+    /**
+     * The letters of the words, with input/output edge semantics.
+     */
+    private static final String[][] LETTERS = {{"A", "Y"}, {"A", "Z"}, {"B", "Y"}, {"B", "Z"}};
+
+    private static final int MAX_LENGTH = 3;
+
+    private static final String[] FORMULAE = {"true",
+                                              "false",
+                                              "(input == \"A\")",
+                                              "X (output == \"Z\")",
+                                              "[] !(output == \"Z\")",
+                                              "<> (output == \"Z\")",
+                                              "((input == \"A\") U (output == \"Z\"))",
+                                              "((input == \"A\") R (output == \"Z\"))",
+                                              "((input == \"A\") W (output == \"Z\"))",
+                                              "[] ((input == \"A\") -> X (output == \"Z\"))",
+                                              "[] <> (input == \"A\")",
+                                              "<> [] (output == \"Y\")",
+                                              "([] <> (input == \"A\") -> [] <> (output == \"Z\"))",
+                                              "([] <> (input == \"B\") && [] <> (output == \"Z\"))",
+                                              "((input == \"A\") && (input == \"B\"))",
+                                              "!((input == \"A\") U ((input == \"B\") U (output == \"Z\")))"};
+
+    private static final String[] CONSTRAINTS = {"(! iA WU oZ)",
+                                                 "(G (! iA | (F oZ)))",
+                                                 "(! oZ WU (oY & ! oZ))",
+                                                 "(F oZ) | (! iB U (iA & X oY))"};
+
+    /**
+     * An ultimately periodic word; after the last letter the word continues at {@link #loop}.
+     */
+    private static final class Lasso {
+
+        final String[][] letters;
+
+        final int loop;
+
+        Lasso(String[][] letters, int loop) {
+            this.letters = letters;
+            this.loop = loop;
+        }
+
+        int successor(int position) {
+            return position + 1 < letters.length ? position + 1 : loop;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder result = new StringBuilder();
+            for (int i = 0; i < letters.length; i++) {
+                if (i == loop) result.append('(');
+                result.append(Arrays.toString(letters[i]));
+            }
+
+            return result.append(")^w").toString();
+        }
+    }
+
+    @Test
+    public void testFormulae() {
+        for (String formula : FORMULAE) check(FormulaParser.parse(formula));
+    }
+
+    @Test
+    public void testConstraints() {
+        for (String constraint : CONSTRAINTS) check(ConstraintsParser.parse(constraint, false));
+    }
+
+    @Test
+    public void testFalse() {
+        final BuchiAutomaton automaton = BuchiTranslator.translate(Formula.ff());
+        assertTrue(automaton.getLiveStates().isEmpty());
+    }
+
+    @Test
+    public void testInvariantIsLive() {
+        final BuchiAutomaton automaton = BuchiTranslator.translate(FormulaParser.parse("[] !(output == \"Z\")"));
+        final BitSet live = automaton.getLiveStates();
+        assertFalse(live.isEmpty());
+        for (int s = live.nextSetBit(0); s >= 0; s = live.nextSetBit(s + 1)) {
+            assertTrue(automaton.matches(s, LETTERS[0]));
+            assertFalse(automaton.matches(s, LETTERS[1]));
+        }
+    }
+
+    @Test
+    public void testAcceptanceSets() {
+        // one acceptance set for every until subformula, <> a is true U a
+        assertEquals(0, BuchiTranslator.translate(FormulaParser.parse("[] (input == \"A\")")).getAcceptanceSets());
+        assertEquals(1, BuchiTranslator.translate(FormulaParser.parse("<> (input == \"A\")")).getAcceptanceSets());
+        assertEquals(2,
+                     BuchiTranslator.translate(FormulaParser.parse("([] <> (input == \"B\") && [] <> (output == \"Z\"))"))
+                                    .getAcceptanceSets());
+    }
+
+    @Test
+    public void testLasso() {
+        final BuchiAutomaton automaton = BuchiTranslator.translate(FormulaParser.parse("[] (input == \"A\")"));
+        assertTrue(accepts(automaton, new Lasso(new String[][] {LETTERS[0], LETTERS[1]}, 1)));
+        assertFalse(accepts(automaton, new Lasso(new String[][] {LETTERS[0], LETTERS[2]}, 1)));
+    }
+
+    /**
+     * Checks that the automaton of the given formula accepts exactly the words satisfying it, for all lassos up to
+     * {@link #MAX_LENGTH} letters.
+     */
+    private static void check(Formula formula) {
+        final BuchiAutomaton automaton = BuchiTranslator.translate(formula);
+        for (Lasso lasso : lassos()) {
+            assertEquals(formula + " on " + lasso, holds(formula, lasso)[0], accepts(automaton, lasso));
+        }
+    }
+
+    private static List<Lasso> lassos() {
+        final List<Lasso> result = new ArrayList<>();
+        for (int length = 1; length <= MAX_LENGTH; length++) {
+            final int[] digits = new int[length];
+            do {
+                final String[][] letters = new String[length][];
+                for (int i = 0; i < length; i++) letters[i] = LETTERS[digits[i]];
+                for (int loop = 0; loop < length; loop++) result.add(new Lasso(letters, loop));
+            } while (increment(digits));
+        }
+
+        return result;
+    }
+
+    private static boolean increment(int[] digits) {
+        for (int i = 0; i < digits.length; i++) {
+            if (++digits[i] < LETTERS.length) return true;
+            digits[i] = 0;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns for every position of the lasso whether the formula holds on the suffix of the word from that position.
+     * Until is computed as a least fixed point, release and weak until as a greatest fixed point.
+     */
+    private static boolean[] holds(Formula formula, Lasso lasso) {
+        final int n = lasso.letters.length;
+        final boolean[] result = new boolean[n];
+        final boolean[] left = formula.getLeft() == null ? null : holds(formula.getLeft(), lasso);
+        final boolean[] right = formula.getRight() == null ? null : holds(formula.getRight(), lasso);
+
+        switch (formula.getKind()) {
+            case TRUE:
+                Arrays.fill(result, true);
+                return result;
+            case FALSE:
+                return result;
+            case PROPOSITION:
+                for (int i = 0; i < n; i++) result[i] = formula.getProposition().holds(lasso.letters[i]);
+                return result;
+            case NOT:
+                for (int i = 0; i < n; i++) result[i] = !left[i];
+                return result;
+            case AND:
+                for (int i = 0; i < n; i++) result[i] = left[i] && right[i];
+                return result;
+            case OR:
+                for (int i = 0; i < n; i++) result[i] = left[i] || right[i];
+                return result;
+            case NEXT:
+                for (int i = 0; i < n; i++) result[i] = left[lasso.successor(i)];
+                return result;
+            case UNTIL:
+                fixedPoint(result, lasso, false, i -> right[i], i -> left[i]);
+                return result;
+            case RELEASE:
+                // a R b == b && (a || X (a R b))
+                fixedPoint(result, lasso, true, i -> right[i] && left[i], i -> right[i]);
+                return result;
+            case WEAK_UNTIL:
+                fixedPoint(result, lasso, true, i -> right[i], i -> left[i]);
+                return result;
+            default:
+                throw new IllegalStateException("unknown kind: " + formula.getKind());
+        }
+    }
+
+    /**
+     * Computes the fixed point of {@code result[i] = now(i) || (later(i) && result[successor(i)])}.
+     */
+    private static void fixedPoint(boolean[] result,
+                                   Lasso lasso,
+                                   boolean greatest,
+                                   IntPredicate now,
+                                   IntPredicate later) {
+        Arrays.fill(result, greatest);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < result.length; i++) {
+                final boolean value = now.test(i) || (later.test(i) && result[lasso.successor(i)]);
+                changed |= value != result[i];
+                result[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the automaton accepts the lasso; i.e. whether the product of the automaton and the positions of
+     * the lasso has a reachable cycle that visits every acceptance set.
+     */
+    private static boolean accepts(BuchiAutomaton automaton, Lasso lasso) {
+        final int n = lasso.letters.length;
+        final int size = automaton.getSize() * n;
+
+        final int[][] successors = new int[size][];
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (int q : automaton.getInitialStates()) {
+            if (automaton.matches(q, lasso.letters[0]) && successors[q * n] == null) {
+                successors[q * n] = new int[0];
+                queue.add(q * n);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            final int node = queue.poll();
+            final int q = node / n;
+            final int position = lasso.successor(node % n);
+
+            final List<Integer> targets = new ArrayList<>();
+            for (int t : automaton.getSuccessors()[q]) {
+                if (!automaton.matches(t, lasso.letters[position])) continue;
+                final int target = t * n + position;
+                targets.add(target);
+                if (successors[target] == null) {
+                    successors[target] = new int[0];
+                    queue.add(target);
+                }
+            }
+            successors[node] = targets.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        final SCCs sccs = new SCCs(size, node -> successors[node]);
+        final long[] acceptance = new long[sccs.getCount()];
+        for (int node = 0; node < size; node++) {
+            if (successors[node] != null) acceptance[sccs.getComponents()[node]] |= automaton.getAcceptance()[node / n];
+        }
+
+        final long all = automaton.getAllAcceptanceSets();
+        for (int c = 0; c < sccs.getCount(); c++) {
+            if (sccs.getNontrivial()[c] && (acceptance[c] & all) == all) return true;
+        }
+
+        return false;
+    }
+}
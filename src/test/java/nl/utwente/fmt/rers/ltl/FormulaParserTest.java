@@ -0,0 +1,114 @@
+package nl.utwente.fmt.rers.ltl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link FormulaParser}, and that it parses the rendering of {@link Formula#toString()} and
+ * {@link ConstraintsParser} again.
+ *
+ * @author Jeroen Meijer
+ */
+public class FormulaParserTest {
+
+    private static final Formula A = Formula.proposition(Proposition.of(Proposition.INPUT, "A"));
+
+    private static final Formula B = Formula.proposition(Proposition.of(Proposition.INPUT, "B"));
+
+    private static final Formula Z = Formula.proposition(Proposition.of(Proposition.OUTPUT, "Z"));
+
+    @Test
+    public void testPropositions() {
+        assertEquals(A, FormulaParser.parse("(input == \"A\")"));
+        assertEquals(Z, FormulaParser.parse("(output == \"Z\")"));
+        assertEquals(Formula.proposition(Proposition.of(Proposition.LETTER, "A")),
+                     FormulaParser.parse("(letter == \"A\")"));
+        assertEquals(Formula.tt(), FormulaParser.parse("true"));
+        assertEquals(Formula.ff(), FormulaParser.parse("false"));
+    }
+
+    @Test
+    public void testUnaryOperators() {
+        assertEquals(Formula.not(A), FormulaParser.parse("!(input == \"A\")"));
+        assertEquals(Formula.next(A), FormulaParser.parse("X (input == \"A\")"));
+        assertEquals(Formula.release(Formula.ff(), A), FormulaParser.parse("[] (input == \"A\")"));
+        assertEquals(Formula.until(Formula.tt(), A), FormulaParser.parse("<> (input == \"A\")"));
+        assertEquals(Formula.release(Formula.ff(), Formula.until(Formula.tt(), Formula.not(A))),
+                     FormulaParser.parse("[] <> !(input == \"A\")"));
+    }
+
+    @Test
+    public void testPrecedence() {
+        assertEquals(Formula.or(Formula.until(A, B), Z),
+                     FormulaParser.parse("(input == \"A\") U (input == \"B\") || (output == \"Z\")"));
+        assertEquals(Formula.or(A, Formula.and(B, Z)),
+                     FormulaParser.parse("(input == \"A\") || (input == \"B\") && (output == \"Z\")"));
+        assertEquals(Formula.and(Formula.not(A), B), FormulaParser.parse("!(input == \"A\") && (input == \"B\")"));
+        assertEquals(Formula.until(Formula.next(A), B), FormulaParser.parse("X (input == \"A\") U (input == \"B\")"));
+        assertEquals(Formula.or(Formula.not(Formula.and(A, B)), Z),
+                     FormulaParser.parse("(input == \"A\") && (input == \"B\") -> (output == \"Z\")"));
+    }
+
+    @Test
+    public void testAssociativity() {
+        assertEquals(Formula.until(A, Formula.until(B, Z)),
+                     FormulaParser.parse("(input == \"A\") U (input == \"B\") U (output == \"Z\")"));
+        assertEquals(Formula.release(A, Formula.weakUntil(B, Z)),
+                     FormulaParser.parse("(input == \"A\") R (input == \"B\") W (output == \"Z\")"));
+        assertEquals(Formula.or(Formula.not(A), Formula.or(Formula.not(B), Z)),
+                     FormulaParser.parse("(input == \"A\") -> (input == \"B\") -> (output == \"Z\")"));
+        assertEquals(Formula.and(Formula.and(A, B), Z),
+                     FormulaParser.parse("(input == \"A\") && (input == \"B\") && (output == \"Z\")"));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final Formula[] formulae = {Formula.tt(),
+                                    Formula.not(Formula.ff()),
+                                    Formula.until(A, Formula.release(B, Formula.next(Z))),
+                                    Formula.weakUntil(Formula.or(A, B), Formula.and(Formula.not(B), Z)),
+                                    Formula.release(Formula.ff(), Formula.or(Formula.not(A), Formula.next(Z)))};
+        for (Formula formula : formulae) assertEquals(formula, FormulaParser.parse(formula.toString()));
+    }
+
+    @Test
+    public void testConstraintsRoundTrip() {
+        final String[] constraints = {"(! iA WU oZ)",
+                                      "(G (! iA | (F oZ)))",
+                                      "(! oZ WU (oY & ! oZ))",
+                                      "(F oZ) | (! iB U (iA & X oY))",
+                                      "(G (! (iA & ! oZ) | (! oZ U oY)))"};
+        for (String constraint : constraints) {
+            for (boolean alternate : new boolean[] {false, true}) {
+                final Formula formula = ConstraintsParser.parse(constraint, alternate);
+                assertEquals(constraint, formula, FormulaParser.parse(formula.toString()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownVariable() {
+        FormulaParser.parse("(state == \"A\")");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnterminatedString() {
+        FormulaParser.parse("(input == \"A)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingParenthesis() {
+        FormulaParser.parse("((input == \"A\") U (input == \"B\")");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTrailingToken() {
+        FormulaParser.parse("(input == \"A\") (input == \"B\")");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnquotedValue() {
+        FormulaParser.parse("(input == A)");
+    }
+}